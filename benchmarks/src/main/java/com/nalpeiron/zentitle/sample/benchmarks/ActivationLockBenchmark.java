@@ -0,0 +1,57 @@
+package com.nalpeiron.zentitle.sample.benchmarks;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.sample.LockingActivationActionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ActivationLockBenchmark {
+    private BenchmarkFixture fixture;
+    private ISharedActivation activation;
+    private LockingActivationActionHandler actionHandler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = new BenchmarkFixture();
+        activation = fixture.getRuntime().getActivation();
+        actionHandler = fixture.getRuntime().getActionHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ActivationState executeWithLock() {
+        return activation.executeWithLock(a -> {
+            return a.getState();
+        });
+    }
+
+    @Benchmark
+    public void pullPersistedState() {
+        activation.executeWithLock(a -> {
+            a.pullPersistedState();
+        });
+    }
+
+    @Benchmark
+    public boolean lockPullStateAndExecute(final Blackhole blackhole) {
+        return actionHandler.lockPullStateAndExecute(callbackActivation -> blackhole.consume(callbackActivation.getState()), activation);
+    }
+}
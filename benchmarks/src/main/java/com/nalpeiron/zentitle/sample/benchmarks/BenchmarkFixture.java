@@ -0,0 +1,152 @@
+package com.nalpeiron.zentitle.sample.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.PlainTextFileActivationStorage;
+import com.nalpeiron.zentitle.sample.LicenseStorage;
+import com.nalpeiron.zentitle.sample.LicensingRuntime;
+import com.nalpeiron.zentitle.sample.ObjectMapperFactory;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Activation wired like in the sample program against an in-memory storage, seeded with the persisted data of an
+ * activation made once by the sample program with 'UseCoreLibrary' disabled, so that the benchmarks time the local
+ * paths of an active license without any licensing API call. The licensing API URL points to a closed port.
+ * <p>
+ * The seed is the plain-text storage file in the system property {@value #SEED_PROPERTY}, by default the
+ * 'license.json' of the sample program.
+ */
+public class BenchmarkFixture implements AutoCloseable {
+    public static final String SEED_PROPERTY = "zentitle.seed";
+    private static final String UNREACHABLE_API_URL = "http://127.0.0.1:9";
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.create();
+    private final Path directory;
+    private final IActivationStorage storage;
+    private final LicensingRuntime runtime;
+    private final String featureKey;
+
+    /**
+     * @throws IllegalStateException when there is no seed or it does not load as an active activation with a feature
+     */
+    public BenchmarkFixture() throws IOException {
+        final PersistentData seed = loadSeed();
+        directory = Files.createTempDirectory("zentitle-benchmark");
+        storage = new InMemoryActivationStorage(new PlainTextFileActivationStorage(directory.resolve("license.json")));
+        storage.save(seed);
+        runtime = new LicensingRuntime(createSettings(objectMapper), storage, () -> "benchmark-seat");
+        try {
+            runtime.initialize();
+            featureKey = verifyActive();
+        } catch (final RuntimeException exception) {
+            try {
+                close();
+            } catch (final Exception closeFailure) {
+                exception.addSuppressed(closeFailure);
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * @return the persisted data of the seed activation
+     */
+    public static PersistentData loadSeed() {
+        final Path seedFile = seedFile();
+        if (!Files.isRegularFile(seedFile)) {
+            throw new IllegalStateException("No benchmark seed at " + seedFile + ", activate the sample program once with "
+                    + "'UseCoreLibrary' disabled or pass the plain-text storage file of an activation with -D" + SEED_PROPERTY + "=<file>");
+        }
+        final PersistentData seed = new PlainTextFileActivationStorage(seedFile).load();
+        if (seed == null || seed.isEmpty()) {
+            throw new IllegalStateException("The benchmark seed " + seedFile + " holds no activation");
+        }
+        return seed;
+    }
+
+    private static Path seedFile() {
+        final String seed = System.getProperty(SEED_PROPERTY);
+        return seed == null ? LicenseStorage.appDirectory().resolve("license.json") : Paths.get(seed);
+    }
+
+    private static AppSettings createSettings(final ObjectMapper objectMapper) throws IOException {
+        final ObjectNode settings = objectMapper.createObjectNode();
+        settings.put("UseCoreLibrary", false);
+        settings.put("PrintLibraryLogs", false);
+        settings.putObject("Licensing")
+                .put("ApiUrl", UNREACHABLE_API_URL)
+                .put("TenantId", "benchmark-tenant")
+                .put("TenantRsaKeyModulus", "")
+                .put("ProductId", "benchmark-product");
+        settings.putObject("LeaseRefresh").put("Enabled", false);
+        return objectMapper.treeToValue(settings, AppSettings.class);
+    }
+
+    /**
+     * Fails the benchmark setup unless the seed loaded as an active activation with at least one feature, so that no
+     * benchmark measures the error path of a broken fixture.
+     *
+     * @return key of the first feature of the activation
+     */
+    private String verifyActive() {
+        final ActivationState state = runtime.getActivation().executeWithLock(a -> {
+            return a.getState();
+        });
+        if (state != ActivationState.ACTIVE) {
+            throw new IllegalStateException("The benchmark seed loaded as " + state + " activation");
+        }
+        final List<IActivationFeature> features = runtime.getActivation().executeWithLock(a -> {
+            return a.getInfo().getFeatures();
+        });
+        if (features == null || features.isEmpty()) {
+            throw new IllegalStateException("The benchmark seed has no features");
+        }
+        return features.get(0).getKey();
+    }
+
+    public LicensingRuntime getRuntime() {
+        return runtime;
+    }
+
+    /**
+     * @return key of a feature of the seeded activation
+     */
+    public String getFeatureKey() {
+        return featureKey;
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            runtime.close();
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Deletes the directory with everything in it, ignoring a directory that does not exist.
+     */
+    public static void deleteDirectory(final Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
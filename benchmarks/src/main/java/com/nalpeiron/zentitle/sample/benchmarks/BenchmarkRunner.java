@@ -0,0 +1,34 @@
+package com.nalpeiron.zentitle.sample.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks at 1, 4 and 16 threads, writing one JSON result file per thread count.
+ * An optional first argument restricts the run to benchmarks matching the given regular expression. The
+ * {@value BenchmarkFixture#SEED_PROPERTY} system property is passed on to the forked benchmark JVMs.
+ */
+public class BenchmarkRunner {
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    public static void main(final String[] args) throws Exception {
+        final String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + ".*";
+        final String seed = System.getProperty(BenchmarkFixture.SEED_PROPERTY);
+        final String[] jvmArgs = seed == null ? new String[0] : new String[]{"-D" + BenchmarkFixture.SEED_PROPERTY + "=" + seed};
+        for (final int threads : THREAD_COUNTS) {
+            final Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .forks(1)
+                    .jvmArgsAppend(jvmArgs)
+                    .warmupIterations(3)
+                    .measurementIterations(5)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-" + threads + "-threads.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
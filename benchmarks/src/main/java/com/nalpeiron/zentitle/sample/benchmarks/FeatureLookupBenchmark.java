@@ -0,0 +1,54 @@
+package com.nalpeiron.zentitle.sample.benchmarks;
+
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.sample.FeatureDecision;
+import com.nalpeiron.zentitle.sample.FeatureGate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FeatureLookupBenchmark {
+
+    private BenchmarkFixture fixture;
+    private ISharedActivation activation;
+    private FeatureGate featureGate;
+    private String featureKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = new BenchmarkFixture();
+        activation = fixture.getRuntime().getActivation();
+        featureGate = fixture.getRuntime().getFeatureGate();
+        featureKey = fixture.getFeatureKey();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public Optional<IActivationFeature> tryGetWithLock() {
+        return activation.executeWithLock(a -> {
+            return a.getFeatures().tryGet(featureKey);
+        });
+    }
+
+    @Benchmark
+    public FeatureDecision featureGate() {
+        return featureGate.check(featureKey);
+    }
+}
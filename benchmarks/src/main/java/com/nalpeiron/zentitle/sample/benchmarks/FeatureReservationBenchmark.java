@@ -0,0 +1,114 @@
+package com.nalpeiron.zentitle.sample.benchmarks;
+
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.IFeatures;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
+import com.nalpeiron.zentitle.sample.FeatureReservationPool;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cost of a unit checkout and return through the {@link FeatureReservationPool} the licensing daemon uses for the
+ * features in 'FeatureReservation.FeatureKeys'. The pool draws from an in-memory element-pool feature, because its
+ * refills are licensing API checkouts that the seeded fixture cannot make, and refills are rare by design.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FeatureReservationBenchmark {
+    private static final String FEATURE_KEY = "element-pool-feature";
+    private static final long AVAILABLE = 100;
+
+    private FeatureReservationPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new FeatureReservationPool(createActivation(), FEATURE_KEY, new AppSettings.FeatureReservation(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public boolean acquireAndRelease() {
+        // with more threads than units some acquisitions find the feature exhausted, which is part of the cost
+        if (!pool.tryAcquire()) {
+            return false;
+        }
+        pool.release();
+        return true;
+    }
+
+    /**
+     * @return activation with one element-pool feature of {@value #AVAILABLE} units, checkouts and returns only
+     * change its counters
+     */
+    private static ISharedActivation createActivation() {
+        final long[] active = {0};
+        final IActivationFeature feature = proxy(IActivationFeature.class, (method, args) -> {
+            switch (method) {
+                case "getKey":
+                    return FEATURE_KEY;
+                case "getType":
+                    return FeatureType.ELEMENT_POOL;
+                case "getActive":
+                    return active[0];
+                case "getAvailable":
+                    return AVAILABLE - active[0];
+                case "getTotal":
+                    return AVAILABLE;
+                default:
+                    return null;
+            }
+        });
+        final IFeatures features = proxy(IFeatures.class, (method, args) -> Optional.of(feature));
+        final ISharedActivation[] activation = new ISharedActivation[1];
+        activation[0] = proxy(ISharedActivation.class, (method, args) -> {
+            switch (method) {
+                case "executeWithLock":
+                    synchronized (active) {
+                        @SuppressWarnings("unchecked") final Function<IActivation, Object> function = (Function<IActivation, Object>) args[0];
+                        return function.apply(activation[0]);
+                    }
+                case "getFeatures":
+                    return features;
+                case "checkoutFeature":
+                    active[0] += (Long) args[1];
+                    return null;
+                case "returnFeature":
+                    active[0] -= (Long) args[1];
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        return activation[0];
+    }
+
+    private static <T> T proxy(final Class<T> type, final Handler handler) {
+        return type.cast(Proxy.newProxyInstance(FeatureReservationBenchmark.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(method.getName(), args)));
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+}
@@ -0,0 +1,43 @@
+package com.nalpeiron.zentitle.sample.benchmarks;
+
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+
+/**
+ * Storage that keeps the persisted data in memory, taking the initial content from another storage.
+ * Used to measure the locking and state handling without any file system cost.
+ */
+public class InMemoryActivationStorage implements IActivationStorage {
+    private final IActivationStorage initial;
+    private volatile PersistentData data;
+
+    public InMemoryActivationStorage(final IActivationStorage initial) {
+        this.initial = initial;
+    }
+
+    @Override
+    public PersistentData load() {
+        PersistentData current = data;
+        if (current == null) {
+            current = initial.load();
+            data = current;
+        }
+        return current;
+    }
+
+    @Override
+    public void save(final PersistentData persistentData) {
+        data = persistentData;
+    }
+
+    @Override
+    public void clear() {
+        data = null;
+        initial.clear();
+    }
+
+    @Override
+    public String getStorageId() {
+        return "in-memory:" + initial.getStorageId();
+    }
+}
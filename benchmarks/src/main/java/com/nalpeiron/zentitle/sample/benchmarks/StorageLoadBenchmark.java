@@ -0,0 +1,74 @@
+package com.nalpeiron.zentitle.sample.benchmarks;
+
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.PlainTextFileActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.zentitle2core.PredefinedSystemFolder;
+import com.nalpeiron.zentitle.licensingclient.zentitle2core.SecureActivationStorage;
+import com.nalpeiron.zentitle.sample.BinaryActivationStorage;
+import com.nalpeiron.zentitle.sample.ChangeDetectingActivationStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading the persisted data of the {@link BenchmarkFixture} seed. Every storage writes to a directory of its
+ * own that is deleted after the trial. The secure storage needs the Zentitle2Core native library and only takes a
+ * directory below the user data folder, so it gets a uniquely named one there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StorageLoadBenchmark {
+
+    @Param({"PLAIN_TEXT", "PLAIN_TEXT_CHANGE_DETECTING", "BINARY", "SECURE"})
+    public String storageType;
+
+    private IActivationStorage storage;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final PersistentData seed = BenchmarkFixture.loadSeed();
+        if ("SECURE".equals(storageType)) {
+            storage = SecureActivationStorage.withAppDirectory(PredefinedSystemFolder.USER_DATA,
+                    "Z2_Benchmark-" + UUID.randomUUID(), "license.encrypted");
+            directory = Paths.get(storage.getStorageId()).getParent();
+        } else if ("BINARY".equals(storageType)) {
+            directory = Files.createTempDirectory("zentitle-benchmark");
+            storage = new BinaryActivationStorage(directory.resolve("license.bin"), directory.resolve("license.json"));
+        } else {
+            directory = Files.createTempDirectory("zentitle-benchmark");
+            final Path file = directory.resolve("license.json");
+            final IActivationStorage plainTextStorage = new PlainTextFileActivationStorage(file);
+            storage = "PLAIN_TEXT_CHANGE_DETECTING".equals(storageType)
+                    ? new ChangeDetectingActivationStorage(plainTextStorage, file)
+                    : plainTextStorage;
+        }
+        storage.save(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        storage.clear();
+        BenchmarkFixture.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public PersistentData load() {
+        return storage.load();
+    }
+}
@@ -0,0 +1,169 @@
+package com.nalpeiron.zentitle.sample.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.PlainTextFileActivationStorage;
+import com.nalpeiron.zentitle.sample.LicenseStorage;
+import com.nalpeiron.zentitle.sample.LicensingRuntime;
+import com.nalpeiron.zentitle.sample.ObjectMapperFactory;
+import com.nalpeiron.zentitle.sample.SharedRuntimeResources;
+import com.nalpeiron.zentitle.sample.VirtualThreads;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Drives concurrent seats through the licensing runtime wired like in the sample program and prints the throughput
+ * and latency percentiles of every {@link Operation}.
+ * <p>
+ * The seats do not call the licensing API: the wire protocol of the licensing client is not part of this sample, so
+ * no stand-in API can serve it. Every seat starts from a seed instead, the persisted data of an activation made once
+ * by the sample program with 'UseCoreLibrary' disabled, and times the local paths: storage loads, feature lookups
+ * and locked actions.
+ * <p>
+ * Options, all optional: {@code --seats=16 --iterations=100 --seed=<plain-text storage file>}, the seed defaults to
+ * the 'license.json' of the sample program.
+ */
+public class LoadTestRunner {
+    // never called, an operation reaching the licensing API fails instead of timing a remote call
+    private static final String UNREACHABLE_API_URL = "http://127.0.0.1:9";
+
+    private final int seats;
+    private final int iterations;
+    private final Path seedFile;
+
+    public LoadTestRunner(final int seats, final int iterations, final Path seedFile) {
+        if (seats <= 0 || iterations < 0) {
+            throw new IllegalArgumentException("Seats must be positive and iterations must not be negative");
+        }
+        this.seats = seats;
+        this.iterations = iterations;
+        this.seedFile = seedFile;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        int seats = 16;
+        int iterations = 100;
+        Path seedFile = LicenseStorage.appDirectory().resolve("license.json");
+        for (final String arg : args) {
+            final String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Options must be given as --name=value, got '" + arg + "'");
+            }
+            switch (option[0]) {
+                case "--seats":
+                    seats = Integer.parseInt(option[1]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(option[1]);
+                    break;
+                case "--seed":
+                    seedFile = Paths.get(option[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option '" + option[0] + "'");
+            }
+        }
+        new LoadTestRunner(seats, iterations, seedFile).run();
+    }
+
+    public OperationStatistics run() throws Exception {
+        final ObjectMapper objectMapper = ObjectMapperFactory.create();
+        final PersistentData seed = loadSeed(seedFile);
+        final Path directory = Files.createTempDirectory("zentitle-loadtest");
+        final OperationStatistics statistics = new OperationStatistics();
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("loadtest-seat");
+        try {
+            final AppSettings config = createSettings(objectMapper);
+            final ActivationState seedState = verifySeed(config, seed, Files.createDirectory(directory.resolve("seed")));
+            final CountDownLatch startSignal = new CountDownLatch(1);
+            final List<Future<?>> workloads = new ArrayList<>();
+            for (int seat = 0; seat < seats; seat++) {
+                workloads.add(executor.submit(new SeatWorkload(config, seed, directory, seat, iterations, statistics, startSignal)));
+            }
+
+            final long start = System.nanoTime();
+            startSignal.countDown();
+            for (final Future<?> workload : workloads) {
+                workload.get();
+            }
+            final long elapsedNanos = System.nanoTime() - start;
+
+            System.out.printf("%d seats, %d iterations each, seeded from %s in state %s%n", seats, iterations, seedFile, seedState);
+            statistics.print(System.out, elapsedNanos);
+        } finally {
+            executor.shutdownNow();
+            deleteDirectory(directory);
+        }
+        return statistics;
+    }
+
+    private static PersistentData loadSeed(final Path seedFile) {
+        if (!Files.isRegularFile(seedFile)) {
+            throw new IllegalArgumentException("No seed at " + seedFile + ", activate the sample program once with "
+                    + "'UseCoreLibrary' disabled or pass the plain-text storage file of an activation with --seed=<file>");
+        }
+        final PersistentData seed = new PlainTextFileActivationStorage(seedFile).load();
+        if (seed == null || seed.isEmpty()) {
+            throw new IllegalArgumentException("The seed " + seedFile + " holds no activation");
+        }
+        return seed;
+    }
+
+    /**
+     * @return state the seats start in
+     * @throws IllegalStateException when the seed does not load as an activation, so the seats would time nothing
+     */
+    private static ActivationState verifySeed(final AppSettings config, final PersistentData seed, final Path directory) throws Exception {
+        final IActivationStorage storage = new PlainTextFileActivationStorage(directory.resolve("license.json"));
+        storage.save(seed);
+        try (final LicensingRuntime runtime = new LicensingRuntime(config, config.getLicensing(), storage, () -> "loadtest-seed",
+                "Global-Zentitle.Licensing.Client-LoadTest-Seed", SharedRuntimeResources.none())) {
+            runtime.initialize();
+            final ActivationState state = runtime.getActivation().executeWithLock(a -> {
+                return a.getState();
+            });
+            if (state == ActivationState.NOT_ACTIVATED) {
+                throw new IllegalStateException("The seed does not load as an activation, it is " + state);
+            }
+            return state;
+        }
+    }
+
+    private static AppSettings createSettings(final ObjectMapper objectMapper) throws IOException {
+        final ObjectNode settings = objectMapper.createObjectNode();
+        settings.put("UseCoreLibrary", false);
+        settings.put("PrintLibraryLogs", false);
+        settings.putObject("Licensing")
+                .put("ApiUrl", UNREACHABLE_API_URL)
+                .put("TenantId", "loadtest-tenant")
+                .put("TenantRsaKeyModulus", "")
+                .put("ProductId", "loadtest-product");
+        // the load test measures the operations of the seats, not the background components
+        settings.putObject("LeaseRefresh").put("Enabled", false);
+        settings.putObject("Metrics").put("Enabled", false);
+        settings.putObject("CircuitBreaker").put("Enabled", false);
+        return objectMapper.treeToValue(settings, AppSettings.class);
+    }
+
+    private static void deleteDirectory(final Path directory) throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.nalpeiron.zentitle.sample.loadtest;
+
+/**
+ * Local activation paths driven by the load test, none of them calls the licensing API.
+ */
+public enum Operation {
+    /**
+     * {@code pullPersistedState} under the activation lock, i.e. a load of the seat's storage.
+     */
+    PULL_PERSISTED_STATE,
+    /**
+     * Feature lookup under the activation lock.
+     */
+    FEATURE_LOOKUP,
+    /**
+     * Feature decision through the {@link com.nalpeiron.zentitle.sample.FeatureGate}.
+     */
+    FEATURE_GATE,
+    /**
+     * Action run through {@link com.nalpeiron.zentitle.sample.LockingActivationActionHandler}, the way the menu
+     * actions run.
+     */
+    LOCKED_ACTION
+}
@@ -0,0 +1,86 @@
+package com.nalpeiron.zentitle.sample.loadtest;
+
+import com.nalpeiron.zentitle.sample.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and failures of every {@link Operation}, recorded concurrently by all seats of a load test.
+ * Latencies of failed calls are recorded too.
+ */
+public class OperationStatistics {
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failures = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicReference<RuntimeException>> firstFailures = new EnumMap<>(Operation.class);
+
+    public OperationStatistics() {
+        for (final Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            failures.put(operation, new LongAdder());
+            firstFailures.put(operation, new AtomicReference<>());
+        }
+    }
+
+    /**
+     * Runs and times one call.
+     *
+     * @return {@code false} when the call failed
+     */
+    public boolean record(final Operation operation, final Runnable call) {
+        final long start = System.nanoTime();
+        try {
+            call.run();
+            return true;
+        } catch (final RuntimeException exception) {
+            failures.get(operation).increment();
+            firstFailures.get(operation).compareAndSet(null, exception);
+            return false;
+        } finally {
+            latencies.get(operation).recordSince(start);
+        }
+    }
+
+    public long getCount(final Operation operation) {
+        return latencies.get(operation).getCount();
+    }
+
+    public long getFailures(final Operation operation) {
+        return failures.get(operation).sum();
+    }
+
+    /**
+     * @return the exception of the first failed call, {@code null} when no call failed
+     */
+    public RuntimeException getFirstFailure(final Operation operation) {
+        return firstFailures.get(operation).get();
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (final LatencyHistogram histogram : latencies.values()) {
+            total += histogram.getCount();
+        }
+        return total;
+    }
+
+    public void print(final PrintStream output, final long elapsedNanos) {
+        final double elapsedSeconds = elapsedNanos / 1e9;
+        output.printf("%-14s %9s %9s %10s %9s %9s %9s %9s%n",
+                "operation", "calls", "failures", "calls/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (final Operation operation : Operation.values()) {
+            final LatencyHistogram histogram = latencies.get(operation);
+            output.printf("%-14s %9d %9d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation, histogram.getCount(), getFailures(operation), histogram.getCount() / elapsedSeconds,
+                    histogram.getPercentile(0.5, TimeUnit.MILLISECONDS),
+                    histogram.getPercentile(0.99, TimeUnit.MILLISECONDS),
+                    histogram.getPercentile(0.999, TimeUnit.MILLISECONDS),
+                    histogram.getMaxNanos() / 1e6);
+        }
+        output.printf("%-14s %9d %9s %10.1f%n", "total", getTotalCount(), "", getTotalCount() / elapsedSeconds);
+    }
+}
@@ -0,0 +1,86 @@
+package com.nalpeiron.zentitle.sample.loadtest;
+
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.PlainTextFileActivationStorage;
+import com.nalpeiron.zentitle.sample.FeatureGate;
+import com.nalpeiron.zentitle.sample.LicensingRuntime;
+import com.nalpeiron.zentitle.sample.LockingActivationActionHandler;
+import com.nalpeiron.zentitle.sample.SharedRuntimeResources;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * One seat of the load test: its own runtime, storage and system lock, seeded with the persisted data of an
+ * activation, running the local {@link Operation}s.
+ */
+public class SeatWorkload implements Runnable {
+    /**
+     * Looked up when the seeded activation has no features, which times the lookup of a missing feature.
+     */
+    static final String MISSING_FEATURE = "missing-feature";
+
+    private final AppSettings config;
+    private final PersistentData seed;
+    private final Path directory;
+    private final int seat;
+    private final int iterations;
+    private final OperationStatistics statistics;
+    private final CountDownLatch startSignal;
+
+    public SeatWorkload(final AppSettings config, final PersistentData seed, final Path directory, final int seat,
+                        final int iterations, final OperationStatistics statistics, final CountDownLatch startSignal) {
+        this.config = config;
+        this.seed = seed;
+        this.directory = directory;
+        this.seat = seat;
+        this.iterations = iterations;
+        this.statistics = statistics;
+        this.startSignal = startSignal;
+    }
+
+    @Override
+    public void run() {
+        final String seatId = "loadtest-seat-" + seat;
+        final IActivationStorage storage = new PlainTextFileActivationStorage(directory.resolve(seatId + ".json"));
+        storage.save(seed);
+        try (final LicensingRuntime runtime = new LicensingRuntime(config, config.getLicensing(), storage, () -> seatId,
+                "Global-Zentitle.Licensing.Client-LoadTest-" + seat, SharedRuntimeResources.none())) {
+            runtime.initialize();
+            final ISharedActivation activation = runtime.getActivation();
+            final String featureKey = activation.executeWithLock(a -> {
+                final List<IActivationFeature> features = a.getInfo().getFeatures();
+                return features == null || features.isEmpty() ? MISSING_FEATURE : features.get(0).getKey();
+            });
+            startSignal.await();
+            for (int i = 0; i < iterations; i++) {
+                runIteration(activation, runtime.getFeatureGate(), runtime.getActionHandler(), featureKey);
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (final Exception exception) {
+            throw new IllegalStateException("Load test seat " + seat + " failed", exception);
+        }
+    }
+
+    private void runIteration(final ISharedActivation activation, final FeatureGate featureGate,
+                              final LockingActivationActionHandler actionHandler, final String featureKey) {
+        statistics.record(Operation.PULL_PERSISTED_STATE, () -> activation.executeWithLock(a -> {
+            a.pullPersistedState();
+        }));
+        statistics.record(Operation.FEATURE_LOOKUP, () -> activation.executeWithLock(a -> {
+            return a.getFeatures().tryGet(featureKey);
+        }));
+        statistics.record(Operation.FEATURE_GATE, () -> featureGate.check(featureKey));
+        statistics.record(Operation.LOCKED_ACTION, () -> {
+            if (!actionHandler.lockPullStateAndExecute(lockedActivation -> lockedActivation.getState(), activation)) {
+                throw new IllegalStateException("The activation state changed while the action waited for the lock");
+            }
+        });
+    }
+}
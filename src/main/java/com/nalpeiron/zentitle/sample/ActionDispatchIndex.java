@@ -0,0 +1,134 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.api.model.ActivationMode;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Immutable index of the actions available per activation state and mode, precomputed so that listing the menu
+ * and resolving an action by name neither filters nor allocates. A {@code null} mode stands for an activation
+ * that is not activated yet.
+ * <p>
+ * Adding an action builds a new index, see {@link #with(ActivationAction, ActivationState...)}.
+ */
+public final class ActionDispatchIndex {
+    private static final Slot EMPTY_SLOT = new Slot(List.of());
+
+    private final Map<ActivationState, List<ActivationAction>> actionsByState;
+    private final Map<ActivationState, Map<ActivationMode, Slot>> slots = new EnumMap<>(ActivationState.class);
+    private final Map<ActivationState, Slot> noModeSlots = new EnumMap<>(ActivationState.class);
+
+    /**
+     * @param actionsByState actions of every activation state in menu order, states without an entry have none
+     * @throws IllegalArgumentException when two actions of a state and mode have the same name
+     */
+    public ActionDispatchIndex(final Map<ActivationState, List<ActivationAction>> actionsByState) {
+        Objects.requireNonNull(actionsByState, "Actions must not be null");
+        final Map<ActivationState, List<ActivationAction>> copy = new EnumMap<>(ActivationState.class);
+        for (final ActivationState state : ActivationState.values()) {
+            final List<ActivationAction> actions = List.copyOf(actionsByState.getOrDefault(state, List.of()));
+            copy.put(state, actions);
+            final Map<ActivationMode, Slot> modeSlots = new EnumMap<>(ActivationMode.class);
+            for (final ActivationMode mode : ActivationMode.values()) {
+                modeSlots.put(mode, Slot.of(state, mode, actions));
+            }
+            slots.put(state, modeSlots);
+            noModeSlots.put(state, Slot.of(state, null, actions));
+        }
+        this.actionsByState = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @return actions available in the state and mode, in menu order
+     */
+    public List<ActivationAction> getActions(final ActivationState state, final ActivationMode mode) {
+        return slot(state, mode).actions;
+    }
+
+    /**
+     * @return names of the actions available in the state and mode, in menu order
+     */
+    public List<String> getActionNames(final ActivationState state, final ActivationMode mode) {
+        return slot(state, mode).names;
+    }
+
+    /**
+     * @return the action with the name when it is available in the state and mode
+     */
+    public Optional<ActivationAction> find(final ActivationState state, final ActivationMode mode, final String actionName) {
+        return slot(state, mode).byName.getOrDefault(actionName, Optional.empty());
+    }
+
+    /**
+     * @return a new index with the action appended to the actions of the states
+     * @throws IllegalArgumentException when a state already has an action with the same name in one of its modes
+     */
+    public ActionDispatchIndex with(final ActivationAction action, final ActivationState... states) {
+        Objects.requireNonNull(action, "Action must not be null");
+        Validate.notEmpty(states, "States must not be empty");
+        final Map<ActivationState, List<ActivationAction>> extended = new EnumMap<>(actionsByState);
+        for (final ActivationState state : states) {
+            final List<ActivationAction> actions = new ArrayList<>(extended.get(Objects.requireNonNull(state, "State must not be null")));
+            actions.add(action);
+            extended.put(state, actions);
+        }
+        return new ActionDispatchIndex(extended);
+    }
+
+    /**
+     * @return actions of every activation state in menu order, regardless of the mode
+     */
+    public Map<ActivationState, List<ActivationAction>> getActionsByState() {
+        return actionsByState;
+    }
+
+    private Slot slot(final ActivationState state, final ActivationMode mode) {
+        if (state == null) {
+            return EMPTY_SLOT;
+        }
+        return mode == null ? noModeSlots.get(state) : slots.get(state).get(mode);
+    }
+
+    private static final class Slot {
+        private final List<ActivationAction> actions;
+        private final List<String> names;
+        // Optional instances are shared, so that resolving an action allocates nothing
+        private final Map<String, Optional<ActivationAction>> byName;
+
+        private Slot(final List<ActivationAction> actions) {
+            this.actions = List.copyOf(actions);
+            final List<String> actionNames = new ArrayList<>(actions.size());
+            final Map<String, Optional<ActivationAction>> actionsByName = new HashMap<>();
+            for (final ActivationAction action : actions) {
+                actionNames.add(action.getName());
+                actionsByName.put(action.getName(), Optional.of(action));
+            }
+            this.names = List.copyOf(actionNames);
+            this.byName = Map.copyOf(actionsByName);
+        }
+
+        private static Slot of(final ActivationState state, final ActivationMode mode, final List<ActivationAction> stateActions) {
+            final List<ActivationAction> available = new ArrayList<>();
+            for (final ActivationAction action : stateActions) {
+                if (!action.getAvailableInModes().contains(mode)) {
+                    continue;
+                }
+                for (final ActivationAction existing : available) {
+                    Validate.isTrue(!existing.getName().equals(action.getName()),
+                            "Action '%s' is registered twice for state %s and mode %s", action.getName(), state, mode);
+                }
+                available.add(action);
+            }
+            return new Slot(available);
+        }
+    }
+}
@@ -5,8 +5,8 @@ import com.nalpeiron.zentitle.licensingclient.api.model.ActivationMode;
 import org.apache.commons.lang3.Validate;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -14,6 +14,7 @@ public final class ActivationAction {
     private final String name;
     private final Action action;
     private final List<ActivationMode> availableInModes;
+    private final boolean idempotent;
 
     @FunctionalInterface
     public interface Action {
@@ -21,9 +22,19 @@ public final class ActivationAction {
     }
 
     public ActivationAction(final String name, final Action action, final ActivationMode[] availableInModes) {
+        this(name, action, availableInModes, false);
+    }
+
+    /**
+     * @param idempotent whether the action can be safely re-run automatically when the activation state
+     *                   changed under it, see {@link RetryingActionExecutor}
+     */
+    public ActivationAction(final String name, final Action action, final ActivationMode[] availableInModes, final boolean idempotent) {
         this.name = Validate.notBlank(name, "Name must not be blank");
         this.action = Objects.requireNonNull(action, "Action must not be null");
-        this.availableInModes = Arrays.asList(availableInModes);
+        // a null mode stands for a not activated activation, which List.copyOf would reject
+        this.availableInModes = Collections.unmodifiableList(Arrays.asList(availableInModes.clone()));
+        this.idempotent = idempotent;
     }
 
     public String getName() {
@@ -34,7 +45,14 @@ public final class ActivationAction {
         action.execute(activation);
     }
 
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @return unmodifiable modes, {@code null} among them when the action is available before activation
+     */
     public List<ActivationMode> getAvailableInModes() {
-        return new ArrayList<>(availableInModes);
+        return availableInModes;
     }
 }
\ No newline at end of file
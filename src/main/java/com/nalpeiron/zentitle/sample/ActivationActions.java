@@ -2,22 +2,42 @@ package com.nalpeiron.zentitle.sample;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
 import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
 import com.nalpeiron.zentitle.licensingclient.api.model.ActivationMode;
 import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
 import com.nalpeiron.zentitle.licensingclient.persistence.models.ActivationEntitlementData;
+import com.nalpeiron.zentitle.sample.events.ActivationEvent;
+import com.nalpeiron.zentitle.sample.events.ActivationEventPublisher;
 import com.nalpeiron.zentitle.sample.gui.Panel;
 import com.nalpeiron.zentitle.sample.gui.Prompt;
+import com.nalpeiron.zentitle.sample.http.CircuitBreaker;
 import org.jline.terminal.Terminal;
 
 import java.time.OffsetDateTime;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class ActivationActions {
 
+    public static final String ACTIVATE_WITH_CODE = "Activate license with code";
+    public static final String GENERATE_OFFLINE_ACTIVATION_REQUEST = "Generate offline activation request (for End User Portal)";
+    public static final String ACTIVATE_OFFLINE = "Activate offline (with activation response from End User Portal)";
+    public static final String SHOW_ACTIVATION_INFO = "Show activation info";
+    public static final String PULL_STATE_FROM_SERVER = "Pull activation state from the server";
+    public static final String PULL_STATE_FROM_LOCAL_STORAGE = "Pull activation state from the local storage";
+    public static final String REFRESH_LEASE = "Refresh activation lease";
+    public static final String REFRESH_OFFLINE_LEASE = "Refresh offline activation lease (with refresh token from End User Portal)";
+    public static final String CHECKOUT_FEATURE = "Checkout advanced feature";
+    public static final String RETURN_FEATURE = "Return element-pool feature";
+    public static final String TRACK_BOOL_FEATURE_USAGE = "Track usage of a bool feature";
+    public static final String GET_ENTITLEMENT = "Get entitlement associated with the activation";
+    public static final String DEACTIVATE = "Deactivate license";
+    public static final String DEACTIVATE_OFFLINE = "Deactivate offline license";
+
     private final ActivationAction activateWithCode;
     private final ActivationAction generateOfflineActivationRequest;
     private final ActivationAction activateOffline;
@@ -32,12 +52,14 @@ public class ActivationActions {
     private final ActivationAction getActivationEntitlement;
     private final ActivationAction deactivate;
     private final ActivationAction deactivateOffline;
-    private final Map<ActivationState, ActivationAction[]> availableActions;
+    private volatile ActionDispatchIndex dispatchIndex;
 
-    public ActivationActions(final Terminal terminal, final Prompt prompt, final DisplayHelper displayHelper, final ObjectMapper objectMapper) {
+    public ActivationActions(final Terminal terminal, final Prompt prompt, final DisplayHelper displayHelper, final ObjectMapper objectMapper,
+                             final EntitlementCache entitlementCache, final CircuitBreaker circuitBreaker,
+                             final ActivationEventPublisher events, final FeatureUsageRecorder usageRecorder) {
 
         activateWithCode = new ActivationAction(
-                "Activate license with code",
+                ACTIVATE_WITH_CODE,
                 (activation) -> {
                     final String activationCode = prompt.input("Enter activation code: ");
                     final String seatName = prompt.input("Enter seat name (keep empty for no seat name): ");
@@ -49,7 +71,7 @@ public class ActivationActions {
         );
 
         generateOfflineActivationRequest = new ActivationAction(
-                "Generate offline activation request (for End User Portal)",
+                GENERATE_OFFLINE_ACTIVATION_REQUEST,
                 (activation) -> {
                     displayHelper.writeWarning(
                             "Make sure that the product/entitlement that you want to use for the offline activation has the " +
@@ -70,7 +92,7 @@ public class ActivationActions {
         );
 
         activateOffline = new ActivationAction(
-                "Activate offline (with activation response from End User Portal)",
+                ACTIVATE_OFFLINE,
                 (activation) -> {
                     final String offlineActivationResponseToken = prompt.input("Enter offline activation response token: ");
                     terminal.writer().println("Activating offline...");
@@ -82,60 +104,79 @@ public class ActivationActions {
         );
 
         showActivationInfo = new ActivationAction(
-                "Show activation info",
+                SHOW_ACTIVATION_INFO,
                 (activation) -> displayHelper.showActivationInfoPanel(activation),
-                new ActivationMode[]{ActivationMode.ONLINE, ActivationMode.OFFLINE, null}
+                new ActivationMode[]{ActivationMode.ONLINE, ActivationMode.OFFLINE, null},
+                true
         );
 
         pullActivationStateFromServer = new ActivationAction(
-                "Pull activation state from the server",
+                PULL_STATE_FROM_SERVER,
                 (activation) -> {
-                    terminal.writer().println("Pulling current activation state from the server...");
-                    terminal.flush();
-                    activation.pullRemoteState();
+                    if (isServedLocally(activation, circuitBreaker)) {
+                        displayHelper.writeWarning("Licensing API is unavailable, showing the last persisted state instead (retrying the API in "
+                                + circuitBreaker.getRemainingOpenTime().toSeconds() + " s)");
+                        activation.pullPersistedState();
+                    } else {
+                        terminal.writer().println("Pulling current activation state from the server...");
+                        terminal.flush();
+                        activation.pullRemoteState();
+                    }
                     displayHelper.showActivationInfoPanel(activation);
                 },
-                new ActivationMode[]{ActivationMode.ONLINE}
+                new ActivationMode[]{ActivationMode.ONLINE},
+                true
         );
 
         pullActivationStateFromLocalStorage = new ActivationAction(
-                "Pull activation state from the local storage",
+                PULL_STATE_FROM_LOCAL_STORAGE,
                 (activation) -> {
                     terminal.writer().println("Pulling current activation state from the local storage...");
                     terminal.flush();
                     activation.pullPersistedState();
                     displayHelper.showActivationInfoPanel(activation);
                 },
-                new ActivationMode[]{ActivationMode.ONLINE, ActivationMode.OFFLINE, null}
+                new ActivationMode[]{ActivationMode.ONLINE, ActivationMode.OFFLINE, null},
+                true
         );
 
         refreshActivationLease = new ActivationAction(
-                "Refresh activation lease",
+                REFRESH_LEASE,
                 (activation) -> {
+                    if (isServedLocally(activation, circuitBreaker)) {
+                        displayHelper.writeError("Licensing API is unavailable, the lease was not refreshed and stays valid until "
+                                + activation.getInfo().getLeaseExpiry());
+                        return;
+                    }
                     terminal.writer().println("Refreshing current activation...");
                     terminal.flush();
                     final OffsetDateTime previousLeaseExpiry = activation.getInfo().getLeaseExpiry();
                     final boolean refreshed = activation.refreshLease().isSuccess();
                     if (!refreshed) {
-                        terminal.writer().println("Activation lease period could not be refreshed, please activate again. Current lease expiry is " + activation.getInfo().getLeaseExpiry());
+                        displayHelper.writeError("Activation lease period could not be refreshed, please activate again. Current lease expiry is " + activation.getInfo().getLeaseExpiry());
                     } else {
+                        entitlementCache.invalidate();
                         OffsetDateTime newLeaseExpiry = activation.getInfo().getLeaseExpiry();
+                        events.publish(ActivationEvent.leaseRenewed(newLeaseExpiry));
                         terminal.writer().println("Activation lease successfully refreshed from [" + previousLeaseExpiry + "] to [" + newLeaseExpiry + "]");
                     }
                     terminal.flush();
                 },
-                new ActivationMode[]{ActivationMode.ONLINE}
+                new ActivationMode[]{ActivationMode.ONLINE},
+                true
         );
 
         refreshOfflineActivationLease = new ActivationAction(
-                "Refresh offline activation lease (with refresh token from End User Portal)",
+                REFRESH_OFFLINE_LEASE,
                 (activation) -> {
                     final OffsetDateTime previousLeaseExpiry = activation.getInfo().getLeaseExpiry();
                     final String offlineRefreshToken = prompt.input("Enter offline refresh token: ");
                     terminal.writer().println("Refreshing current offline activation...");
                     terminal.flush();
                     activation.refreshLeaseOffline(offlineRefreshToken);
+                    entitlementCache.invalidate();
                     final OffsetDateTime newLeaseExpiry = activation.getInfo().getLeaseExpiry();
+                    events.publish(ActivationEvent.leaseRenewed(newLeaseExpiry));
                     terminal.writer().println("Activation lease successfully refreshed from [" + previousLeaseExpiry + "] to [" + newLeaseExpiry + "]");
                     terminal.flush();
                 },
@@ -143,8 +184,13 @@ public class ActivationActions {
         );
 
         checkoutFeature = new ActivationAction(
-                "Checkout advanced feature",
+                CHECKOUT_FEATURE,
                 (activation) -> {
+                    if (!circuitBreaker.isCallPermitted()) {
+                        displayHelper.writeError("Licensing API is unavailable, features cannot be checked out for the next "
+                                + circuitBreaker.getRemainingOpenTime().toSeconds() + " s");
+                        return;
+                    }
                     final List<IActivationFeature> featuresToCheckout = activation.getInfo().getFeatures().stream()
                             .filter(feature -> !FeatureType.BOOL.equals(feature.getType()) && (feature.getAvailable() == null || (feature.getAvailable() > 0)))
                             .collect(Collectors.toList());
@@ -168,6 +214,7 @@ public class ActivationActions {
                     final IActivationFeature featureToCheckout = activation.getFeatures().tryGet(featureKey)
                             .orElseThrow(() -> new IllegalStateException("Feature with key '" + featureKey + "' not found"));
                     activation.checkoutFeature(featureToCheckout, amountToCheckout);
+                    events.publish(ActivationEvent.featureCheckedOut(featureKey, amountToCheckout));
 
                     terminal.writer().println("Feature successfully checked out!");
                     terminal.writer().println();
@@ -178,7 +225,7 @@ public class ActivationActions {
         );
 
         returnFeature = new ActivationAction(
-                "Return element-pool feature",
+                RETURN_FEATURE,
                 (activation) -> {
                     final List<IActivationFeature> featuresToReturn = activation.getInfo().getFeatures().stream()
                             .filter(feature -> (feature.getActive() != null) && (feature.getActive() > 0) && (FeatureType.ELEMENT_POOL.equals(feature.getType())))
@@ -204,6 +251,7 @@ public class ActivationActions {
                     final IActivationFeature feature = activation.getFeatures().tryGet(featureKey)
                             .orElseThrow(() -> new IllegalStateException("Feature with key '" + featureKey + "' not found"));
                     activation.returnFeature(feature, amountToReturn);
+                    events.publish(ActivationEvent.featureReturned(featureKey, amountToReturn));
 
                     terminal.writer().println("Feature successfully returned!");
                     terminal.writer().println();
@@ -214,7 +262,7 @@ public class ActivationActions {
         );
 
         trackBoolFeatureUsage = new ActivationAction(
-                "Track usage of a bool feature",
+                TRACK_BOOL_FEATURE_USAGE,
                 (activation) -> {
                     List<IActivationFeature> boolFeatures = activation.getInfo().getFeatures().stream()
                             .filter(f -> f.getType() == FeatureType.BOOL)
@@ -230,21 +278,23 @@ public class ActivationActions {
                     displayHelper.showFeaturesTable(boolFeatures);
 
                     final String featureKey = prompt.select("Select feature for tracking the usage", boolFeatures.stream().map(IActivationFeature::getKey).collect(Collectors.toList()));
-                    final IActivationFeature feature = activation.getFeatures().tryGet(featureKey)
-                            .orElseThrow(() -> new IllegalStateException("Feature with key '" + featureKey + "' not found"));
-                    activation.trackFeatureUsage(feature);
-                    terminal.writer().println("Feature usage successfully tracked!");
+                    // recorded for the background flusher, the action holds the activation lock so it must not flush itself
+                    if (!usageRecorder.offer(featureKey)) {
+                        displayHelper.writeError("Feature usage was not recorded, too many usage events are pending");
+                        return;
+                    }
+                    terminal.writer().println("Feature usage recorded, it is reported to the licensing API in the background");
                     terminal.flush();
                 },
                 new ActivationMode[]{ActivationMode.ONLINE}
         );
 
         getActivationEntitlement = new ActivationAction(
-                "Get entitlement associated with the activation",
+                GET_ENTITLEMENT,
                 (activation) -> {
                     terminal.writer().println("Retrieving the entitlement...");
                     terminal.flush();
-                    final ActivationEntitlementData activationEntitlement = activation.getActivationEntitlement();
+                    final ActivationEntitlementData activationEntitlement = entitlementCache.get(activation);
                     final String entitlementJson = objectMapper.writeValueAsString(activationEntitlement);
                     final Panel activationEntitlementAsPanel = new Panel(entitlementJson)
                             .header("Activation Entitlement");
@@ -252,11 +302,12 @@ public class ActivationActions {
                     terminal.writer().println(activationEntitlementAsString);
                     terminal.flush();
                 },
-                new ActivationMode[]{ActivationMode.ONLINE, ActivationMode.OFFLINE}
+                new ActivationMode[]{ActivationMode.ONLINE, ActivationMode.OFFLINE},
+                true
         );
 
         deactivate = new ActivationAction(
-                "Deactivate license",
+                DEACTIVATE,
                 (activation) -> {
                     terminal.writer().println("Deactivating the license...");
                     terminal.flush();
@@ -266,7 +317,7 @@ public class ActivationActions {
         );
 
         deactivateOffline = new ActivationAction(
-                "Deactivate offline license",
+                DEACTIVATE_OFFLINE,
                 (activation) -> {
                     terminal.writer().println("Deactivating the offline license...");
                     terminal.flush();
@@ -278,30 +329,56 @@ public class ActivationActions {
                 new ActivationMode[]{ActivationMode.OFFLINE}
         );
 
-        availableActions = new HashMap<>();
-        availableActions.put(ActivationState.ACTIVE, new ActivationAction[]{
+        final Map<ActivationState, List<ActivationAction>> availableActions = new EnumMap<>(ActivationState.class);
+        availableActions.put(ActivationState.ACTIVE, List.of(
                 showActivationInfo, pullActivationStateFromServer, pullActivationStateFromLocalStorage,
                 checkoutFeature, returnFeature, trackBoolFeatureUsage, refreshActivationLease,
                 deactivate, deactivateOffline, getActivationEntitlement
-        });
-        availableActions.put(ActivationState.LEASE_EXPIRED, new ActivationAction[]{
+        ));
+        availableActions.put(ActivationState.LEASE_EXPIRED, List.of(
                 showActivationInfo, pullActivationStateFromServer, pullActivationStateFromLocalStorage,
                 refreshActivationLease, refreshOfflineActivationLease, deactivate, deactivateOffline,
                 getActivationEntitlement
-        });
-        availableActions.put(ActivationState.NOT_ACTIVATED, new ActivationAction[]{
+        ));
+        availableActions.put(ActivationState.NOT_ACTIVATED, List.of(
                 showActivationInfo, pullActivationStateFromLocalStorage,
                 activateWithCode, generateOfflineActivationRequest, activateOffline
-        });
-        availableActions.put(ActivationState.ENTITLEMENT_NOT_ACTIVE, new ActivationAction[]{
+        ));
+        availableActions.put(ActivationState.ENTITLEMENT_NOT_ACTIVE, List.of(
                 showActivationInfo, pullActivationStateFromServer, pullActivationStateFromLocalStorage,
                 getActivationEntitlement,
                 activateWithCode, generateOfflineActivationRequest, activateOffline
-        });
+        ));
+        dispatchIndex = new ActionDispatchIndex(availableActions);
+    }
+
+    public ActionDispatchIndex getDispatchIndex() {
+        return dispatchIndex;
+    }
+
+    /**
+     * Adds an action to the menu of the activation states, after the built-in actions. Callers already holding
+     * the previous index keep seeing it.
+     *
+     * @throws IllegalArgumentException when one of the states already has an action with the same name
+     */
+    public synchronized void register(final ActivationAction action, final ActivationState... states) {
+        dispatchIndex = dispatchIndex.with(action, states);
+    }
 
+    public Optional<ActivationAction> findAvailableAction(final IActivation activation, final String actionName) {
+        return dispatchIndex.find(activation.getState(), activation.getInfo().getMode(), actionName);
     }
 
-    public Map<ActivationState, ActivationAction[]> getAvailableActions() {
-        return availableActions;
+    /**
+     * Whether an online operation is answered from the local state, because the licensing API circuit is open
+     * while the lease is still valid.
+     */
+    private static boolean isServedLocally(final IActivation activation, final CircuitBreaker circuitBreaker) {
+        if (circuitBreaker.isCallPermitted()) {
+            return false;
+        }
+        final OffsetDateTime leaseExpiry = activation.getInfo().getLeaseExpiry();
+        return leaseExpiry != null && OffsetDateTime.now().isBefore(leaseExpiry);
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.nalpeiron.zentitle.sample;
+
+import java.time.Duration;
+
+public class ActivationLockTimeoutException extends IllegalStateException {
+    private final Duration timeout;
+
+    public ActivationLockTimeoutException(final String scope, final Duration timeout) {
+        super("Timed out after " + timeout.toMillis() + " ms waiting for activation lock of '" + scope + "'");
+        this.timeout = timeout;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
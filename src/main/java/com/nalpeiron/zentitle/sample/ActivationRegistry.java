@@ -0,0 +1,210 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.options.OfflineActivationOptions;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.zentitle2core.DeviceFingerprint;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Activations of several products used by one process, configured by the {@code Registry} entries in
+ * 'appsettings.json'. The runtime of an entry is created and started on first use, with its own storage file and
+ * system lock, and entries resolving to the same tenant, product and seat share one runtime.
+ * <p>
+ * All runtimes share one background executor and the tenant RSA keys. Each has the HTTP client of its licensing
+ * client, which alone knows how to decorate the licensing API calls. The executor has at least one thread per
+ * entry, so that a product blocked in a slow licensing API call does not delay the lease refreshes of the others.
+ * <p>
+ * Used by {@code --registry-check}, which checks a feature in the activation of every entry.
+ */
+public class ActivationRegistry implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ActivationRegistry.class);
+    private static final String SYSTEM_LOCK_PREFIX = "Global-Zentitle.Licensing.Client-Registry-";
+
+    private final AppSettings config;
+    private final Map<String, AppSettings.RegistryEntry> entries;
+    private final ConcurrentHashMap<Key, Slot> slots = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, OfflineActivationOptions> offlineActivationOptions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService backgroundExecutor;
+    private String deviceFingerprint = null;
+    private volatile boolean closed = false;
+
+    public ActivationRegistry(final AppSettings config) {
+        this.config = Objects.requireNonNull(config, "Config must not be null");
+        final AppSettings.Registry settings = config.getRegistry();
+        Validate.isTrue(settings.getBackgroundThreads() > 0, "BackgroundThreads must be positive");
+
+        final Map<String, AppSettings.RegistryEntry> entriesByName = new LinkedHashMap<>();
+        for (final AppSettings.RegistryEntry entry : settings.getEntries()) {
+            Validate.notBlank(entry.getName(), "Registry entry name must not be blank");
+            Validate.notBlank(entry.getTenantId(), "TenantId of registry entry '%s' must not be blank", entry.getName());
+            Validate.notBlank(entry.getProductId(), "ProductId of registry entry '%s' must not be blank", entry.getName());
+            if (entriesByName.put(entry.getName(), entry) != null) {
+                throw new IllegalArgumentException("Duplicate registry entry name '" + entry.getName() + "'");
+            }
+        }
+        entries = Collections.unmodifiableMap(entriesByName);
+
+        final int backgroundThreads = Math.max(settings.getBackgroundThreads(), entries.size());
+        if (backgroundThreads > settings.getBackgroundThreads()) {
+            logger.info("Using {} registry background threads instead of {}, one per entry", backgroundThreads, settings.getBackgroundThreads());
+        }
+        backgroundExecutor = Executors.newScheduledThreadPool(backgroundThreads, new NamedThreadFactory("registry-background"));
+    }
+
+    /**
+     * Returns the started runtime of the entry with the given name, creating it on first use.
+     */
+    public LicensingRuntime get(final String name) {
+        final AppSettings.RegistryEntry entry = entries.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown registry entry '" + name + "'");
+        }
+        final Key key = new Key(entry.getTenantId(), entry.getProductId(), resolveSeatId(entry));
+        return slots.computeIfAbsent(key, Slot::new).get(entry);
+    }
+
+    public Set<String> getNames() {
+        return entries.keySet();
+    }
+
+    /**
+     * @return number of runtimes created so far
+     */
+    public int getActiveCount() {
+        return (int) slots.values().stream().filter(Slot::isCreated).count();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (final Slot slot : slots.values()) {
+            slot.close();
+        }
+        backgroundExecutor.shutdownNow();
+    }
+
+    private String resolveSeatId(final AppSettings.RegistryEntry entry) {
+        if (StringUtils.isNotBlank(entry.getSeatId())) {
+            return entry.getSeatId();
+        }
+        if (!config.isUseCoreLibrary()) {
+            throw new IllegalStateException("SeatId of registry entry '" + entry.getName() + "' must be set when the core library is disabled");
+        }
+        synchronized (this) {
+            if (deviceFingerprint == null) {
+                deviceFingerprint = DeviceFingerprint.generateForCurrentMachine();
+            }
+            return deviceFingerprint;
+        }
+    }
+
+    private SharedRuntimeResources sharedResources(final AppSettings.RegistryEntry entry) {
+        final String modulus = entry.getTenantRsaKeyModulus();
+        final OfflineActivationOptions tenantOptions = StringUtils.isBlank(modulus)
+                ? null
+                : offlineActivationOptions.computeIfAbsent(modulus, OfflineActivationOptions::new);
+        return new SharedRuntimeResources(tenantOptions, backgroundExecutor);
+    }
+
+    private final class Slot {
+        private final Key key;
+        private LicensingRuntime runtime = null;
+
+        private Slot(final Key key) {
+            this.key = key;
+        }
+
+        private synchronized LicensingRuntime get(final AppSettings.RegistryEntry entry) {
+            if (closed) {
+                throw new IllegalStateException("Activation registry is closed");
+            }
+            if (runtime == null) {
+                runtime = create(entry);
+            }
+            return runtime;
+        }
+
+        private synchronized boolean isCreated() {
+            return runtime != null;
+        }
+
+        private LicensingRuntime create(final AppSettings.RegistryEntry entry) {
+            // '.' is always escaped by toFileName, so the name identifies the key
+            final String name = LicenseStorage.toFileName(key.tenantId) + "." + LicenseStorage.toFileName(key.productId)
+                    + "." + LicenseStorage.toFileName(key.seatId);
+            final IActivationStorage storage = LicenseStorage.open(config, "license-" + name);
+            final LicensingRuntime created = new LicensingRuntime(config, entry, storage, () -> key.seatId,
+                    SYSTEM_LOCK_PREFIX + name, sharedResources(entry));
+            try {
+                created.start();
+            } catch (final RuntimeException exception) {
+                closeQuietly(created);
+                throw exception;
+            }
+            logger.info("Started activation of registry entry '{}' ({})", entry.getName(), key);
+            return created;
+        }
+
+        private synchronized void close() {
+            if (runtime != null) {
+                closeQuietly(runtime);
+                runtime = null;
+            }
+        }
+
+        private void closeQuietly(final LicensingRuntime target) {
+            try {
+                target.close();
+            } catch (final Exception exception) {
+                logger.warn("Failed to close the activation of {}", key, exception);
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String tenantId;
+        private final String productId;
+        private final String seatId;
+
+        private Key(final String tenantId, final String productId, final String seatId) {
+            this.tenantId = tenantId;
+            this.productId = productId;
+            this.seatId = seatId;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return tenantId.equals(key.tenantId) && productId.equals(key.productId) && seatId.equals(key.seatId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, productId, seatId);
+        }
+
+        @Override
+        public String toString() {
+            return tenantId + "/" + productId + "/" + seatId;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.persistence.models.ActivationEntitlementData;
+import com.nalpeiron.zentitle.sample.events.ActivationEvent;
+import com.nalpeiron.zentitle.sample.events.ActivationEventPublisher;
+import com.nalpeiron.zentitle.sample.http.CircuitBreaker;
+import com.nalpeiron.zentitle.sample.http.CircuitOpenException;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Non-blocking facade of the activation for event-loop callers: every call runs on the executor under the
+ * activation lock and completes the returned future.
+ * <p>
+ * A future completes with a {@link TimeoutException} when its deadline passes, and can be cancelled. A call that
+ * is cancelled or times out before it gets the activation lock is not made at all. A call that already holds the
+ * lock is not interrupted: the licensing API call runs to completion and its outcome is persisted, so that the
+ * local activation never diverges from the server, only the caller no longer gets the result.
+ * <p>
+ * The activation lock cannot be acquired with a timeout, so the calls of the facade first take turns on a local
+ * gate: only the call holding the gate waits for the activation lock, the others wait on the gate at most until
+ * their deadline and leave it shortly after being cancelled, instead of staying parked in the activation lock.
+ */
+public class AsyncActivation implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncActivation.class);
+    /**
+     * Longest wait on the gate before a call checks again whether it was cancelled.
+     */
+    private static final long CANCELLATION_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ISharedActivation activation;
+    private final EntitlementCache entitlementCache;
+    private final CircuitBreaker circuitBreaker;
+    private final ActivationEventPublisher events;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Duration defaultDeadline;
+    private final ReentrantLock gate = new ReentrantLock(true);
+    private final LongAdder skippedCalls = new LongAdder();
+
+    /**
+     * @param events publisher of the lease renewals and feature checkouts and returns, {@code null} to not publish them
+     */
+    public AsyncActivation(final ISharedActivation activation, final EntitlementCache entitlementCache,
+                           final CircuitBreaker circuitBreaker, final ActivationEventPublisher events,
+                           final AppSettings.AsyncActivation settings) {
+        this(activation, entitlementCache, circuitBreaker, events, createExecutor(settings), true,
+                Duration.ofMillis(settings.getDefaultDeadlineMillis()));
+    }
+
+    /**
+     * @param executor        executor running the calls, not shut down when the facade is closed
+     * @param defaultDeadline deadline of calls made without an explicit one, {@link Duration#ZERO} for none
+     */
+    public AsyncActivation(final ISharedActivation activation, final EntitlementCache entitlementCache,
+                           final CircuitBreaker circuitBreaker, final ActivationEventPublisher events,
+                           final Executor executor, final Duration defaultDeadline) {
+        this(activation, entitlementCache, circuitBreaker, events, executor, false, defaultDeadline);
+    }
+
+    private AsyncActivation(final ISharedActivation activation, final EntitlementCache entitlementCache,
+                            final CircuitBreaker circuitBreaker, final ActivationEventPublisher events,
+                            final Executor executor, final boolean ownsExecutor, final Duration defaultDeadline) {
+        this.activation = Objects.requireNonNull(activation, "Activation must not be null");
+        this.entitlementCache = Objects.requireNonNull(entitlementCache, "Entitlement cache must not be null");
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "Circuit breaker must not be null");
+        this.events = events;
+        this.executor = Objects.requireNonNull(executor, "Executor must not be null");
+        this.ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        this.defaultDeadline = validateDeadline(defaultDeadline);
+    }
+
+    public CompletableFuture<ActivationState> activateWithCode(final String activationCode, final String seatName) {
+        return activateWithCode(activationCode, seatName, defaultDeadline);
+    }
+
+    public CompletableFuture<ActivationState> activateWithCode(final String activationCode, final String seatName,
+                                                               final Duration deadline) {
+        return submit(deadline, a -> {
+            ActivationExtensions.activateWithCode(a, activationCode, seatName);
+            return a.getState();
+        });
+    }
+
+    public CompletableFuture<ActivationState> activateWithOpenIdToken(final String openIdAccessToken, final String seatName) {
+        return activateWithOpenIdToken(openIdAccessToken, seatName, defaultDeadline);
+    }
+
+    public CompletableFuture<ActivationState> activateWithOpenIdToken(final String openIdAccessToken, final String seatName,
+                                                                      final Duration deadline) {
+        return submit(deadline, a -> {
+            ActivationExtensions.activateWithOpenIdToken(a, openIdAccessToken, seatName);
+            return a.getState();
+        });
+    }
+
+    public CompletableFuture<ActivationState> activateWithPassword(final String username, final String password,
+                                                                   final String seatName) {
+        return activateWithPassword(username, password, seatName, defaultDeadline);
+    }
+
+    public CompletableFuture<ActivationState> activateWithPassword(final String username, final String password,
+                                                                   final String seatName, final Duration deadline) {
+        return submit(deadline, a -> {
+            ActivationExtensions.activateWithPassword(a, username, password, seatName);
+            return a.getState();
+        });
+    }
+
+    /**
+     * @return future of the new lease expiry, {@code null} when the lease could not be refreshed
+     */
+    public CompletableFuture<OffsetDateTime> refreshLease() {
+        return refreshLease(defaultDeadline);
+    }
+
+    public CompletableFuture<OffsetDateTime> refreshLease(final Duration deadline) {
+        return submit(deadline, a -> {
+            if (!a.refreshLease().isSuccess()) {
+                return null;
+            }
+            final OffsetDateTime leaseExpiry = a.getInfo().getLeaseExpiry();
+            entitlementCache.invalidate();
+            publish(ActivationEvent.leaseRenewed(leaseExpiry));
+            return leaseExpiry;
+        });
+    }
+
+    /**
+     * @return future of the feature after the checkout, completed with a {@link CircuitOpenException} right away
+     * while the circuit breaker of the licensing API is open
+     */
+    public CompletableFuture<FeatureDecision> checkoutFeature(final String featureKey, final long amount) {
+        return checkoutFeature(featureKey, amount, defaultDeadline);
+    }
+
+    public CompletableFuture<FeatureDecision> checkoutFeature(final String featureKey, final long amount, final Duration deadline) {
+        Validate.notBlank(featureKey, "Feature key must not be blank");
+        Validate.isTrue(amount > 0, "Amount must be positive");
+        // like the interactive checkout, so that an unavailable API does not occupy the activation lock
+        if (!circuitBreaker.isCallPermitted()) {
+            return CompletableFuture.failedFuture(new CircuitOpenException(circuitBreaker.getName(), circuitBreaker.getRemainingOpenTime()));
+        }
+        return submit(deadline, a -> {
+            a.checkoutFeature(findFeature(a, featureKey), amount);
+            publish(ActivationEvent.featureCheckedOut(featureKey, amount));
+            return decide(a, featureKey);
+        });
+    }
+
+    /**
+     * @return future of the feature after the return
+     */
+    public CompletableFuture<FeatureDecision> returnFeature(final String featureKey, final long amount) {
+        return returnFeature(featureKey, amount, defaultDeadline);
+    }
+
+    public CompletableFuture<FeatureDecision> returnFeature(final String featureKey, final long amount, final Duration deadline) {
+        Validate.notBlank(featureKey, "Feature key must not be blank");
+        Validate.isTrue(amount > 0, "Amount must be positive");
+        return submit(deadline, a -> {
+            a.returnFeature(findFeature(a, featureKey), amount);
+            publish(ActivationEvent.featureReturned(featureKey, amount));
+            return decide(a, featureKey);
+        });
+    }
+
+    /**
+     * Tracks the usage of the feature right away, see {@link FeatureUsageRecorder} for batched tracking.
+     */
+    public CompletableFuture<FeatureDecision> trackFeatureUsage(final String featureKey) {
+        return trackFeatureUsage(featureKey, defaultDeadline);
+    }
+
+    public CompletableFuture<FeatureDecision> trackFeatureUsage(final String featureKey, final Duration deadline) {
+        Validate.notBlank(featureKey, "Feature key must not be blank");
+        return submit(deadline, a -> {
+            a.trackFeatureUsage(findFeature(a, featureKey));
+            return decide(a, featureKey);
+        });
+    }
+
+    /**
+     * Returns the entitlement through the {@link EntitlementCache}, so that a cached entitlement needs no API call.
+     */
+    public CompletableFuture<ActivationEntitlementData> getActivationEntitlement() {
+        return getActivationEntitlement(defaultDeadline);
+    }
+
+    public CompletableFuture<ActivationEntitlementData> getActivationEntitlement(final Duration deadline) {
+        return submit(deadline, entitlementCache::get);
+    }
+
+    public CompletableFuture<ActivationState> deactivate() {
+        return deactivate(defaultDeadline);
+    }
+
+    public CompletableFuture<ActivationState> deactivate(final Duration deadline) {
+        return submit(deadline, a -> {
+            a.deactivate();
+            return a.getState();
+        });
+    }
+
+    /**
+     * @return calls not made because they were cancelled or timed out before getting the activation lock, or
+     * because their deadline had passed when their turn came
+     */
+    public long getSkippedCalls() {
+        return skippedCalls.sum();
+    }
+
+    /**
+     * Lets the submitted calls finish, waiting at most the default deadline when the facade owns its executor.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (ownedExecutor == null) {
+            return;
+        }
+        ownedExecutor.shutdown();
+        final long timeoutMillis = defaultDeadline.isZero() ? Long.MAX_VALUE : defaultDeadline.toMillis();
+        if (!ownedExecutor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            logger.warn("Asynchronous activation calls still running after {} ms", timeoutMillis);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(final Duration deadline, final Function<IActivation, T> call) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        // a deadline of zero never expires
+        final long deadlineNanos = validateDeadline(deadline).isZero() ? 0 : System.nanoTime() + deadline.toNanos();
+        if (deadlineNanos != 0) {
+            result.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        try {
+            executor.execute(() -> run(result, deadlineNanos, call));
+        } catch (final RejectedExecutionException exception) {
+            result.completeExceptionally(exception);
+        }
+        return result;
+    }
+
+    private <T> void run(final CompletableFuture<T> result, final long deadlineNanos, final Function<IActivation, T> call) {
+        try {
+            if (!enterGate(result, deadlineNanos)) {
+                skippedCalls.increment();
+                return;
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            skippedCalls.increment();
+            result.completeExceptionally(exception);
+            return;
+        }
+        try {
+            final T value = activation.executeWithLock(a -> {
+                // cancelled or timed out while waiting for the lock
+                if (result.isDone()) {
+                    skippedCalls.increment();
+                    return null;
+                }
+                return call.apply(a);
+            });
+            result.complete(value);
+        } catch (final RuntimeException exception) {
+            result.completeExceptionally(exception);
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /**
+     * Waits for the turn of the call on the gate until its deadline, checking regularly whether it was cancelled.
+     *
+     * @return {@code false}, without holding the gate, when the call was cancelled or its deadline passed
+     */
+    private boolean enterGate(final CompletableFuture<?> result, final long deadlineNanos) throws InterruptedException {
+        while (!result.isDone()) {
+            final long remainingNanos = deadlineNanos == 0 ? CANCELLATION_CHECK_NANOS : deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                // the timeout of the future may not have fired yet
+                result.completeExceptionally(new TimeoutException());
+                return false;
+            }
+            if (gate.tryLock(Math.min(remainingNanos, CANCELLATION_CHECK_NANOS), TimeUnit.NANOSECONDS)) {
+                if (!result.isDone()) {
+                    return true;
+                }
+                gate.unlock();
+            }
+        }
+        return false;
+    }
+
+    private void publish(final ActivationEvent event) {
+        if (events != null) {
+            events.publish(event);
+        }
+    }
+
+    private static IActivationFeature findFeature(final IActivation lockedActivation, final String featureKey) {
+        return lockedActivation.getFeatures().tryGet(featureKey)
+                .orElseThrow(() -> new IllegalStateException("Feature with key '" + featureKey + "' not found"));
+    }
+
+    private static FeatureDecision decide(final IActivation lockedActivation, final String featureKey) {
+        return FeatureDecision.of(findFeature(lockedActivation, featureKey), lockedActivation.getState() == ActivationState.ACTIVE);
+    }
+
+    private static Duration validateDeadline(final Duration deadline) {
+        Objects.requireNonNull(deadline, "Deadline must not be null");
+        Validate.isTrue(!deadline.isNegative(), "Deadline must not be negative");
+        return deadline;
+    }
+
+    private static ExecutorService createExecutor(final AppSettings.AsyncActivation settings) {
+        Validate.isTrue(settings.getThreads() > 0, "Threads must be positive");
+        return Executors.newFixedThreadPool(settings.getThreads(), new NamedThreadFactory("async-activation"));
+    }
+}
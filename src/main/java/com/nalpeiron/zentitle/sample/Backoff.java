@@ -0,0 +1,47 @@
+package com.nalpeiron.zentitle.sample;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff shared by the retries of the sample. The bound saturates at the maximum instead of
+ * overflowing, whatever the number of attempts.
+ */
+final class Backoff {
+
+    private Backoff() {
+    }
+
+    /**
+     * @param attempt number of the attempt that just failed, starting at 1
+     * @return {@code initialMillis * 2^(attempt - 1)}, at most {@code maxMillis}
+     */
+    static long exponentialMillis(final long initialMillis, final long maxMillis, final int attempt) {
+        final int exponent = Math.min(Math.max(attempt - 1, 0), Long.SIZE - 2);
+        try {
+            return Math.min(maxMillis, Math.multiplyExact(initialMillis, 1L << exponent));
+        } catch (final ArithmeticException exception) {
+            return maxMillis;
+        }
+    }
+
+    /**
+     * @return a random delay between zero and the bound, both included
+     */
+    static long fullJitter(final long boundMillis) {
+        if (boundMillis <= 0) {
+            return 0;
+        }
+        return boundMillis == Long.MAX_VALUE
+                ? ThreadLocalRandom.current().nextLong(boundMillis)
+                : ThreadLocalRandom.current().nextLong(boundMillis + 1);
+    }
+
+    /**
+     * @return a random delay between half the backoff and the backoff, keeping at least half of it while still
+     * spreading retries
+     */
+    static long equalJitter(final long backoffMillis) {
+        final long half = backoffMillis / 2;
+        return half + fullJitter(backoffMillis - half);
+    }
+}
@@ -0,0 +1,178 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.PlainTextFileActivationStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Stores the activation in a compact binary file instead of pretty printed JSON.
+ * <p>
+ * Layout: magic {@code ZASB}, format version byte, the persisted data encoded by {@link BinaryTreeCodec}, and
+ * a CRC32C of everything before it. Writes go to a temporary file that atomically replaces the previous one.
+ * An existing JSON file of {@link PlainTextFileActivationStorage} next to the binary file is migrated on first
+ * load and kept with a {@code .migrated} suffix.
+ */
+public class BinaryActivationStorage implements IActivationStorage {
+    private static final Logger logger = LoggerFactory.getLogger(BinaryActivationStorage.class);
+    private static final byte[] MAGIC = {'Z', 'A', 'S', 'B'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+    private static final int CHECKSUM_LENGTH = Integer.BYTES;
+    // fails on fields PersistentData does not know, e.g. after a rename, instead of loading the activation without them
+    private static final ObjectMapper objectMapper = ObjectMapperFactory.createStrict();
+
+    private final Path file;
+    private final Path legacyJsonFile;
+    private final IActivationStorage legacyStorage;
+
+    /**
+     * @param legacyJsonFile JSON file written by {@link PlainTextFileActivationStorage} to migrate from
+     */
+    public BinaryActivationStorage(final Path file, final Path legacyJsonFile) {
+        this.file = Objects.requireNonNull(file, "File must not be null").toAbsolutePath();
+        this.legacyJsonFile = Objects.requireNonNull(legacyJsonFile, "Legacy JSON file must not be null").toAbsolutePath();
+        this.legacyStorage = new PlainTextFileActivationStorage(this.legacyJsonFile);
+    }
+
+    @Override
+    public PersistentData load() {
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (final NoSuchFileException exception) {
+            return Files.exists(legacyJsonFile) ? migrate() : legacyStorage.load();
+        } catch (final IOException exception) {
+            throw new UncheckedIOException("Failed to read activation storage " + file, exception);
+        }
+        return decode(content);
+    }
+
+    @Override
+    public void save(final PersistentData data) {
+        final byte[] content = encode(data);
+        Path temporaryFile = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (final FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temporaryFile = null;
+        } catch (final IOException exception) {
+            throw new UncheckedIOException("Failed to write activation storage " + file, exception);
+        } finally {
+            if (temporaryFile != null) {
+                deleteQuietly(temporaryFile);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException exception) {
+            throw new UncheckedIOException("Failed to delete activation storage " + file, exception);
+        }
+        if (Files.exists(legacyJsonFile)) {
+            legacyStorage.clear();
+        }
+    }
+
+    @Override
+    public String getStorageId() {
+        return file.toString();
+    }
+
+    private PersistentData migrate() {
+        final long jsonStart = System.nanoTime();
+        final PersistentData data = legacyStorage.load();
+        final long jsonNanos = System.nanoTime() - jsonStart;
+        save(data);
+
+        try {
+            final long jsonSize = Files.size(legacyJsonFile);
+            final byte[] content = Files.readAllBytes(file);
+            final long binaryStart = System.nanoTime();
+            final PersistentData migrated = decode(content);
+            final long binaryNanos = System.nanoTime() - binaryStart;
+            if (!objectMapper.valueToTree(data).equals(objectMapper.valueToTree(migrated))) {
+                // the JSON file is kept, so that nothing is lost
+                deleteQuietly(file);
+                throw new IllegalStateException("Activation storage " + legacyJsonFile + " did not survive the migration to " + file
+                        + " unchanged");
+            }
+            Files.move(legacyJsonFile, legacyJsonFile.resolveSibling(legacyJsonFile.getFileName() + ".migrated"),
+                    StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Migrated activation storage {} ({} bytes, loaded in {} us) to {} ({} bytes, loaded in {} us)",
+                    legacyJsonFile, jsonSize, TimeUnit.NANOSECONDS.toMicros(jsonNanos),
+                    file, content.length, TimeUnit.NANOSECONDS.toMicros(binaryNanos));
+            return migrated;
+        } catch (final IOException exception) {
+            throw new UncheckedIOException("Failed to migrate activation storage " + legacyJsonFile, exception);
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException exception) {
+            logger.debug("Failed to delete {}", path, exception);
+        }
+    }
+
+    static byte[] encode(final PersistentData data) {
+        final byte[] body = BinaryTreeCodec.encode(objectMapper.valueToTree(data));
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + body.length + CHECKSUM_LENGTH);
+        buffer.put(MAGIC).put(VERSION).put(body);
+        final CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        return buffer.array();
+    }
+
+    private PersistentData decode(final byte[] content) {
+        if (content.length < HEADER_LENGTH + CHECKSUM_LENGTH
+                || content[0] != MAGIC[0] || content[1] != MAGIC[1] || content[2] != MAGIC[2] || content[3] != MAGIC[3]) {
+            throw new IllegalStateException("File " + file + " is not a binary activation storage");
+        }
+        if (content[MAGIC.length] != VERSION) {
+            throw new IllegalStateException("Unsupported binary activation storage version " + content[MAGIC.length] + " in " + file);
+        }
+        final int checksumOffset = content.length - CHECKSUM_LENGTH;
+        final CRC32C checksum = new CRC32C();
+        checksum.update(content, 0, checksumOffset);
+        if ((int) checksum.getValue() != ByteBuffer.wrap(content, checksumOffset, CHECKSUM_LENGTH).getInt()) {
+            throw new IllegalStateException("Checksum mismatch in binary activation storage " + file);
+        }
+
+        try {
+            final JsonNode tree = BinaryTreeCodec.decode(ByteBuffer.wrap(content, HEADER_LENGTH, checksumOffset - HEADER_LENGTH).slice());
+            return objectMapper.treeToValue(tree, PersistentData.class);
+        } catch (final IOException exception) {
+            throw new IllegalStateException("Corrupt binary activation storage " + file, exception);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a JSON tree: one tag byte per value, variable length integers, and object keys
+ * written once per document and referenced by index afterwards.
+ */
+final class BinaryTreeCodec {
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte ARRAY = 6;
+    private static final byte OBJECT = 7;
+    private static final byte BIG_INTEGER = 8;
+    private static final byte DECIMAL = 9;
+    private static final byte BINARY = 10;
+
+    private BinaryTreeCodec() {
+    }
+
+    static byte[] encode(final JsonNode node) {
+        final Encoder encoder = new Encoder();
+        encoder.write(node);
+        return encoder.output.toByteArray();
+    }
+
+    static JsonNode decode(final ByteBuffer buffer) throws IOException {
+        return new Decoder(buffer).read();
+    }
+
+    private static final class Encoder {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream(512);
+        private final Map<String, Integer> keys = new HashMap<>();
+
+        private void write(final JsonNode node) {
+            switch (node.getNodeType()) {
+                case NULL:
+                case MISSING:
+                    output.write(NULL);
+                    break;
+                case BOOLEAN:
+                    output.write(node.booleanValue() ? TRUE : FALSE);
+                    break;
+                case NUMBER:
+                    writeNumber(node);
+                    break;
+                case STRING:
+                    output.write(STRING);
+                    writeString(node.textValue());
+                    break;
+                case BINARY:
+                    output.write(BINARY);
+                    writeBytes(((BinaryNode) node).binaryValue());
+                    break;
+                case ARRAY:
+                    output.write(ARRAY);
+                    writeVarint(node.size());
+                    for (final JsonNode element : node) {
+                        write(element);
+                    }
+                    break;
+                case OBJECT:
+                    output.write(OBJECT);
+                    writeVarint(node.size());
+                    final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                    while (fields.hasNext()) {
+                        final Map.Entry<String, JsonNode> field = fields.next();
+                        writeKey(field.getKey());
+                        write(field.getValue());
+                    }
+                    break;
+                default:
+                    // POJO nodes only appear in trees built by hand
+                    output.write(STRING);
+                    writeString(node.asText());
+            }
+        }
+
+        private void writeNumber(final JsonNode node) {
+            if (node.isIntegralNumber() && node.canConvertToLong()) {
+                output.write(INTEGER);
+                final long value = node.longValue();
+                writeVarint((value << 1) ^ (value >> 63));
+            } else if (node.isIntegralNumber()) {
+                output.write(BIG_INTEGER);
+                writeString(node.bigIntegerValue().toString());
+            } else if (node.isBigDecimal()) {
+                output.write(DECIMAL);
+                writeString(node.decimalValue().toString());
+            } else {
+                output.write(DOUBLE);
+                final long bits = Double.doubleToRawLongBits(node.doubleValue());
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    output.write((int) (bits >>> shift));
+                }
+            }
+        }
+
+        private void writeKey(final String key) {
+            final Integer index = keys.get(key);
+            if (index != null) {
+                writeVarint(index + 1L);
+                return;
+            }
+            keys.put(key, keys.size());
+            writeVarint(0);
+            writeString(key);
+        }
+
+        private void writeString(final String value) {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void writeBytes(final byte[] bytes) {
+            writeVarint(bytes.length);
+            output.write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarint(final long value) {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                output.write((int) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+            output.write((int) remaining);
+        }
+    }
+
+    private static final class Decoder {
+        private final ByteBuffer buffer;
+        private final List<String> keys = new ArrayList<>();
+        private final JsonNodeFactory factory = JsonNodeFactory.instance;
+
+        private Decoder(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private JsonNode read() throws IOException {
+            final byte tag = readByte();
+            switch (tag) {
+                case NULL:
+                    return factory.nullNode();
+                case FALSE:
+                    return factory.booleanNode(false);
+                case TRUE:
+                    return factory.booleanNode(true);
+                case INTEGER:
+                    final long zigzag = readVarint();
+                    final long value = (zigzag >>> 1) ^ -(zigzag & 1);
+                    return value == (int) value ? factory.numberNode((int) value) : factory.numberNode(value);
+                case DOUBLE:
+                    require(Long.BYTES);
+                    return factory.numberNode(Double.longBitsToDouble(buffer.getLong()));
+                case STRING:
+                    return factory.textNode(readString());
+                case BIG_INTEGER:
+                    return factory.numberNode(new BigInteger(readString()));
+                case DECIMAL:
+                    return factory.numberNode(new BigDecimal(readString()));
+                case BINARY:
+                    return factory.binaryNode(readBytes());
+                case ARRAY:
+                    final int length = readLength();
+                    final ArrayNode array = factory.arrayNode(length);
+                    for (int i = 0; i < length; i++) {
+                        array.add(read());
+                    }
+                    return array;
+                case OBJECT:
+                    final int size = readLength();
+                    final ObjectNode object = factory.objectNode();
+                    for (int i = 0; i < size; i++) {
+                        final String key = readKey();
+                        object.set(key, read());
+                    }
+                    return object;
+                default:
+                    throw new IOException("Unknown value tag " + tag + " at offset " + (buffer.position() - 1));
+            }
+        }
+
+        private String readKey() throws IOException {
+            final long reference = readVarint();
+            if (reference == 0) {
+                final String key = readString();
+                keys.add(key);
+                return key;
+            }
+            if (reference > keys.size()) {
+                throw new IOException("Invalid key reference " + reference + " at offset " + buffer.position());
+            }
+            return keys.get((int) reference - 1);
+        }
+
+        private String readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        private byte[] readBytes() throws IOException {
+            final int length = readLength();
+            require(length);
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        private int readLength() throws IOException {
+            final long length = readVarint();
+            if (length > buffer.remaining()) {
+                throw new IOException("Length " + length + " exceeds the remaining " + buffer.remaining() + " bytes");
+            }
+            return (int) length;
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                final byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable length integer at offset " + buffer.position());
+        }
+
+        private byte readByte() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        private void require(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                throw new IOException("Unexpected end of data at offset " + buffer.position());
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import com.nalpeiron.zentitle.sample.options.AppSettingsLoader;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.TerminalBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Non-interactive run of the startup path, used to record the class list of an AppCDS archive (see the
+ * {@code appcds} Maven profile). Loads the core library and opens the storage the configuration selects, the secure
+ * storage by default, so that the archive holds the classes of the real startup path, but under a throw-away name.
+ * Never contacts the licensing API.
+ */
+public class CdsTrainingRun {
+    private static final String SYSTEM_LOCK_NAME = "Global-Zentitle.Licensing.Client-CdsTraining";
+
+    public void run() throws Exception {
+        final ObjectMapper objectMapper = ObjectMapperFactory.create();
+        final AppSettings config = AppSettingsLoader.load(objectMapper);
+
+        try (final Terminal terminal = TerminalBuilder.builder()
+                .dumb(true)
+                .system(false)
+                .streams(InputStream.nullInputStream(), OutputStream.nullOutputStream())
+                .build()) {
+            terminal.flush();
+        }
+
+        LicensingRuntime.configureCoreLibrary(config);
+        final String baseName = "cds-training-" + UUID.randomUUID();
+        final IActivationStorage storage = LicenseStorage.open(config, baseName);
+        try {
+            try (final LicensingRuntime runtime = new LicensingRuntime(config, config.getLicensing(), storage,
+                    () -> "cds-training", SYSTEM_LOCK_NAME, SharedRuntimeResources.none())) {
+                runtime.initialize();
+                final ActivationState state = runtime.getActivation().executeWithLock(a -> {
+                    return a.getState();
+                });
+                objectMapper.writeValueAsString(state);
+            }
+        } finally {
+            storage.clear();
+            deleteFiles(Paths.get(storage.getStorageId()).getParent(), baseName);
+        }
+    }
+
+    /**
+     * Deletes the files the storage created next to its own, e.g. the JSON copy of the binary storage.
+     */
+    private static void deleteFiles(final Path directory, final String baseName) throws IOException {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        try (final Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().startsWith(baseName)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Storage decorator that skips reloading (re-parsing, or decrypting through JNI) the persisted activation when
+ * the underlying file did not change since the last load or save.
+ * A change is detected from the file attributes alone, modification time, size and file key, so that a cache hit
+ * costs one attribute read and no content read; the file key catches a file atomically replaced by another one of
+ * the same size within the modification time granularity of the file system.
+ * <p>
+ * Loads return the cached instance, loaded and saved data must not be changed by callers. The version of the file
+ * right after a save is recorded as written by this process, a write by another process within that window is not
+ * reported as an external change.
+ */
+public class ChangeDetectingActivationStorage implements IActivationStorage {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeDetectingActivationStorage.class);
+
+    private final IActivationStorage delegate;
+    private final Path file;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private FileVersion cachedVersion = null;
+    private PersistentData cachedData = null;
+    private FileVersion knownVersion = null;
+    private Runnable externalChangeListener = null;
+
+    public ChangeDetectingActivationStorage(final IActivationStorage delegate, final Path file) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate must not be null");
+        this.file = Objects.requireNonNull(file, "File must not be null");
+    }
+
+    /**
+     * Wraps the storage when its storage ID is an absolute file path, otherwise returns the storage unchanged.
+     */
+    public static IActivationStorage wrap(final IActivationStorage storage) {
+        final Path file;
+        try {
+            file = Paths.get(storage.getStorageId());
+        } catch (final RuntimeException exception) {
+            logger.info("Storage ID '{}' is not a file path, change detection disabled", storage.getStorageId());
+            return storage;
+        }
+        if (!file.isAbsolute()) {
+            logger.info("Storage ID '{}' is not an absolute file path, change detection disabled", storage.getStorageId());
+            return storage;
+        }
+        return new ChangeDetectingActivationStorage(storage, file);
+    }
+
+    @Override
+    public PersistentData load() {
+        final FileVersion before = FileVersion.of(file);
+        final PersistentData cached;
+        synchronized (this) {
+            cached = before.equals(cachedVersion) ? cachedData : null;
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        detectExternalChange(before);
+        final PersistentData data = delegate.load();
+        final FileVersion after = FileVersion.of(file);
+        synchronized (this) {
+            knownVersion = after;
+            // the file changed while it was being loaded, the loaded data cannot be matched to a version
+            if (before.equals(after)) {
+                cachedVersion = after;
+                cachedData = data;
+            } else {
+                invalidate();
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public void save(final PersistentData data) {
+        synchronized (this) {
+            delegate.save(data);
+            final FileVersion saved = FileVersion.of(file);
+            cachedVersion = saved;
+            cachedData = data;
+            knownVersion = saved;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (this) {
+            delegate.clear();
+            invalidate();
+            knownVersion = FileVersion.of(file);
+        }
+    }
+
+    @Override
+    public String getStorageId() {
+        return delegate.getStorageId();
+    }
+
+    /**
+     * Registers a callback run when the file turns out to have been changed by another process since this process
+     * last loaded or saved it, detected on load or by {@link #checkForExternalChange()}.
+     */
+    public synchronized void setExternalChangeListener(final Runnable listener) {
+        externalChangeListener = listener;
+    }
+
+    /**
+     * Checks the file for a change by another process without loading it.
+     */
+    public void checkForExternalChange() {
+        detectExternalChange(FileVersion.of(file));
+    }
+
+    public IActivationStorage getDelegate() {
+        return delegate;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void detectExternalChange(final FileVersion current) {
+        final Runnable listener;
+        synchronized (this) {
+            if (knownVersion == null || current.equals(knownVersion)) {
+                return;
+            }
+            // report every external version once, whether it is seen by a check or by the next load
+            knownVersion = current;
+            listener = externalChangeListener;
+        }
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private void invalidate() {
+        cachedVersion = null;
+        cachedData = null;
+    }
+
+    private static final class FileVersion {
+        private static final FileVersion MISSING = new FileVersion(-1, -1, null);
+
+        private final long modifiedNanos;
+        private final long size;
+        private final Object fileKey;
+
+        private FileVersion(final long modifiedNanos, final long size, final Object fileKey) {
+            this.modifiedNanos = modifiedNanos;
+            this.size = size;
+            this.fileKey = fileKey;
+        }
+
+        static FileVersion of(final Path file) {
+            try {
+                final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileVersion(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size(), attributes.fileKey());
+            } catch (final NoSuchFileException exception) {
+                return MISSING;
+            } catch (final IOException exception) {
+                throw new UncheckedIOException("Failed to read attributes of activation storage file " + file, exception);
+            }
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof FileVersion)) {
+                return false;
+            }
+            final FileVersion that = (FileVersion) other;
+            return modifiedNanos == that.modifiedNanos && size == that.size && Objects.equals(fileKey, that.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modifiedNanos, size, fileKey);
+        }
+    }
+}
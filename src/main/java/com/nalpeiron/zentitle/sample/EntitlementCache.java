@@ -0,0 +1,194 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.persistence.models.ActivationEntitlementData;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the entitlement of the activation, which is otherwise fetched from the licensing API on every request.
+ * <p>
+ * A cached copy younger than the TTL is returned as is. An older copy is still returned immediately while it is
+ * within the stale-while-revalidate window, and a single background fetch replaces it. Past that window, or
+ * after {@link #invalidate()} (state transitions, lease refreshes), the caller waits for a fresh fetch.
+ */
+public class EntitlementCache implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EntitlementCache.class);
+
+    private final ISharedActivation activation;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration staleWhileRevalidate;
+    private final Clock clock;
+    private final Executor refresher;
+    private final boolean ownsRefresher;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile Entry entry = null;
+    private volatile boolean closed = false;
+    private long generation = 0;
+
+    public EntitlementCache(final ISharedActivation activation, final AppSettings.EntitlementCache settings) {
+        this(activation, settings, Clock.systemUTC());
+    }
+
+    public EntitlementCache(final ISharedActivation activation, final AppSettings.EntitlementCache settings, final Clock clock) {
+        this(activation, settings, Executors.newSingleThreadExecutor(new NamedThreadFactory("entitlement-refresh")), true, clock);
+    }
+
+    /**
+     * @param refresher executor for the background refreshes, not shut down when the cache is closed
+     */
+    public EntitlementCache(final ISharedActivation activation, final AppSettings.EntitlementCache settings, final Executor refresher) {
+        this(activation, settings, refresher, false, Clock.systemUTC());
+    }
+
+    private EntitlementCache(final ISharedActivation activation, final AppSettings.EntitlementCache settings,
+                             final Executor refresher, final boolean ownsRefresher, final Clock clock) {
+        this.activation = Objects.requireNonNull(activation, "Activation must not be null");
+        this.enabled = settings.isEnabled();
+        this.ttl = Duration.ofSeconds(Math.max(0, settings.getTtlSeconds()));
+        this.staleWhileRevalidate = Duration.ofSeconds(Math.max(0, settings.getStaleWhileRevalidateSeconds()));
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        this.refresher = Objects.requireNonNull(refresher, "Refresher must not be null");
+        this.ownsRefresher = ownsRefresher;
+    }
+
+    /**
+     * Returns the entitlement, fetching it under the activation lock when there is no usable cached copy.
+     */
+    public ActivationEntitlementData get() {
+        final ActivationEntitlementData cached = lookup();
+        if (cached != null) {
+            return cached;
+        }
+        return activation.executeWithLock(a -> {
+            return fetch(a);
+        });
+    }
+
+    /**
+     * Same as {@link #get()}, for callers already holding the activation lock.
+     */
+    public ActivationEntitlementData get(final IActivation lockedActivation) {
+        final ActivationEntitlementData cached = lookup();
+        return cached != null ? cached : fetch(lockedActivation);
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        entry = null;
+    }
+
+    public void onStateTransition(final ActivationState oldState, final IActivation updatedActivation) {
+        invalidate();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (ownsRefresher) {
+            ((ExecutorService) refresher).shutdownNow();
+        }
+    }
+
+    private ActivationEntitlementData lookup() {
+        final Entry current = entry;
+        if (!enabled || current == null) {
+            return null;
+        }
+        final Duration age = Duration.between(current.fetchedAt, clock.instant());
+        if (age.compareTo(ttl) < 0) {
+            hits.increment();
+            return current.data;
+        }
+        if (age.compareTo(ttl.plus(staleWhileRevalidate)) < 0) {
+            staleHits.increment();
+            revalidateInBackground();
+            return current.data;
+        }
+        return null;
+    }
+
+    private ActivationEntitlementData fetch(final IActivation lockedActivation) {
+        misses.increment();
+        final long fetchGeneration = currentGeneration();
+        final ActivationEntitlementData data = lockedActivation.getActivationEntitlement();
+        store(data, fetchGeneration);
+        return data;
+    }
+
+    private void revalidateInBackground() {
+        if (closed || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    final long fetchGeneration = currentGeneration();
+                    final ActivationEntitlementData data = activation.executeWithLock(a -> {
+                        return a.getActivationEntitlement();
+                    });
+                    store(data, fetchGeneration);
+                } catch (final RuntimeException exception) {
+                    // the stale copy stays in use until it falls out of the window
+                    logger.warn("Background refresh of the activation entitlement failed", exception);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (final RuntimeException exception) {
+            refreshing.set(false);
+            throw exception;
+        }
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private synchronized void store(final ActivationEntitlementData data, final long fetchGeneration) {
+        // an invalidation during the fetch means the fetched data may predate the change
+        if (enabled && fetchGeneration == generation) {
+            entry = new Entry(data, clock.instant());
+        }
+    }
+
+    private static final class Entry {
+        private final ActivationEntitlementData data;
+        private final Instant fetchedAt;
+
+        private Entry(final ActivationEntitlementData data, final Instant fetchedAt) {
+            this.data = data;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
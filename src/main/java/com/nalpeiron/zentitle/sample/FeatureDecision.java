@@ -0,0 +1,87 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
+
+public final class FeatureDecision {
+    private final String key;
+    private final boolean allowed;
+    private final FeatureType type;
+    private final Long active;
+    private final Long available;
+    private final Long total;
+
+    private FeatureDecision(final String key, final boolean allowed, final FeatureType type,
+                            final Long active, final Long available, final Long total) {
+        this.key = key;
+        this.allowed = allowed;
+        this.type = type;
+        this.active = active;
+        this.available = available;
+        this.total = total;
+    }
+
+    public static FeatureDecision create(final String key, final boolean allowed, final FeatureType type,
+                                         final Long active, final Long available, final Long total) {
+        return new FeatureDecision(key, allowed, type, active, available, total);
+    }
+
+    static FeatureDecision denied(final String key) {
+        return new FeatureDecision(key, false, null, null, null, null);
+    }
+
+    static FeatureDecision of(final IActivationFeature feature, final boolean allowed) {
+        return new FeatureDecision(
+                feature.getKey(),
+                allowed,
+                feature.getType(),
+                feature.getActive() == null ? null : feature.getActive().longValue(),
+                feature.getAvailable() == null ? null : feature.getAvailable().longValue(),
+                feature.getTotal() == null ? null : feature.getTotal().longValue());
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    public FeatureType getType() {
+        return type;
+    }
+
+    /**
+     * @return number of checked out units, {@code null} when the feature does not track usage
+     */
+    public Long getActive() {
+        return active;
+    }
+
+    /**
+     * @return number of units that can still be checked out, {@code null} when unlimited
+     */
+    public Long getAvailable() {
+        return available;
+    }
+
+    /**
+     * @return total number of units, {@code null} when unlimited
+     */
+    public Long getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "FeatureDecision{" +
+                "key='" + key + '\'' +
+                ", allowed=" + allowed +
+                ", type=" + type +
+                ", active=" + active +
+                ", available=" + available +
+                ", total=" + total +
+                '}';
+    }
+}
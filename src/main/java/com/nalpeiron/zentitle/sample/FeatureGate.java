@@ -0,0 +1,119 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers feature entitlement checks from a key-indexed snapshot of the activation features.
+ * Reads do not take the activation lock; the snapshot is rebuilt under the lock only after it has been
+ * invalidated by a state transition or when the activation lease expires.
+ */
+public class FeatureGate {
+    private final ISharedActivation activation;
+    private final Clock clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile Snapshot snapshot = null;
+    private long generation = 0;
+
+    public FeatureGate(final ISharedActivation activation) {
+        this(activation, Clock.systemUTC());
+    }
+
+    public FeatureGate(final ISharedActivation activation, final Clock clock) {
+        this.activation = Objects.requireNonNull(activation, "Activation must not be null");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+    }
+
+    public FeatureDecision check(final String featureKey) {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired(OffsetDateTime.now(clock))) {
+            hits.increment();
+        } else {
+            misses.increment();
+            current = reload();
+        }
+        return current.decide(featureKey);
+    }
+
+    public boolean isAllowed(final String featureKey) {
+        return check(featureKey).isAllowed();
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+
+    public void onStateTransition(final ActivationState oldState, final IActivation updatedActivation) {
+        invalidate();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private Snapshot reload() {
+        final long expectedGeneration;
+        synchronized (this) {
+            expectedGeneration = generation;
+        }
+        final Snapshot loaded = activation.executeWithLock(a -> {
+            return Snapshot.capture(a);
+        });
+        synchronized (this) {
+            // a transition that happened while we were loading makes the loaded snapshot unreliable
+            if (generation == expectedGeneration) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private static final class Snapshot {
+        private final ActivationState state;
+        private final OffsetDateTime leaseExpiry;
+        private final Map<String, FeatureDecision> features;
+
+        private Snapshot(final ActivationState state, final OffsetDateTime leaseExpiry, final Map<String, FeatureDecision> features) {
+            this.state = state;
+            this.leaseExpiry = leaseExpiry;
+            this.features = features;
+        }
+
+        static Snapshot capture(final IActivation activation) {
+            final ActivationState state = activation.getState();
+            final boolean active = state == ActivationState.ACTIVE;
+            final Map<String, FeatureDecision> features = new HashMap<>();
+            for (final IActivationFeature feature : activation.getInfo().getFeatures()) {
+                features.put(feature.getKey(), FeatureDecision.of(feature, active));
+            }
+            return new Snapshot(state, activation.getInfo().getLeaseExpiry(), Collections.unmodifiableMap(features));
+        }
+
+        boolean isExpired(final OffsetDateTime now) {
+            // non-active snapshots stay valid until the next state transition
+            return state == ActivationState.ACTIVE && leaseExpiry != null && !now.isBefore(leaseExpiry);
+        }
+
+        FeatureDecision decide(final String featureKey) {
+            final FeatureDecision decision = features.get(featureKey);
+            return decision == null ? FeatureDecision.denied(featureKey) : decision;
+        }
+    }
+}
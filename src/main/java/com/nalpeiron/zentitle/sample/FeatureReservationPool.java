@@ -0,0 +1,262 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
+import com.nalpeiron.zentitle.sample.events.ActivationEvent;
+import com.nalpeiron.zentitle.sample.events.ActivationEventPublisher;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out single units of an element-pool feature from a local reservation, so that frequent short checkouts do
+ * not each need a licensing API round trip.
+ * <p>
+ * Units are checked out from the server in chunks of {@code ChunkSize}, never more than the feature has available,
+ * and handed out from a lock-free local counter. Released units go back to the local counter. Units that stay
+ * unused for {@code IdleReturnSeconds}, and all unused units on close, are returned to the server.
+ */
+public class FeatureReservationPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureReservationPool.class);
+
+    private final ISharedActivation activation;
+    private final String featureKey;
+    private final int chunkSize;
+    private final long idleReturnNanos;
+    private final ActivationEventPublisher events;
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ScheduledFuture<?> idleCheck;
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private final AtomicLong localUnits = new AtomicLong();
+    private final AtomicLong unitsInUse = new AtomicLong();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder serverCheckouts = new LongAdder();
+    private final LongAdder serverReturns = new LongAdder();
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile boolean closed = false;
+
+    /**
+     * @param events publisher of the server checkouts and returns, {@code null} to not publish them
+     */
+    public FeatureReservationPool(final ISharedActivation activation, final String featureKey,
+                                  final AppSettings.FeatureReservation settings, final ActivationEventPublisher events) {
+        this(activation, featureKey, settings, Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("feature-reservation")), true, events);
+    }
+
+    /**
+     * @param executor executor running the idle return, not shut down when the pool is closed
+     */
+    public FeatureReservationPool(final ISharedActivation activation, final String featureKey,
+                                  final AppSettings.FeatureReservation settings, final ScheduledExecutorService executor,
+                                  final ActivationEventPublisher events) {
+        this(activation, featureKey, settings, executor, false, events);
+    }
+
+    private FeatureReservationPool(final ISharedActivation activation, final String featureKey,
+                                   final AppSettings.FeatureReservation settings, final ScheduledExecutorService executor,
+                                   final boolean ownsExecutor, final ActivationEventPublisher events) {
+        this.activation = Objects.requireNonNull(activation, "Activation must not be null");
+        this.featureKey = Validate.notBlank(featureKey, "Feature key must not be blank");
+        Validate.isTrue(settings.getChunkSize() > 0, "ChunkSize must be positive");
+        Validate.isTrue(settings.getIdleReturnSeconds() > 0, "IdleReturnSeconds must be positive");
+        this.chunkSize = settings.getChunkSize();
+        this.idleReturnNanos = TimeUnit.SECONDS.toNanos(settings.getIdleReturnSeconds());
+        this.events = events;
+        this.executor = Objects.requireNonNull(executor, "Executor must not be null");
+        this.ownsExecutor = ownsExecutor;
+        final long checkIntervalMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleReturnNanos) / 2);
+        idleCheck = executor.scheduleWithFixedDelay(this::returnIfIdle, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes one unit, checking out a new chunk from the server when the local reservation is empty.
+     *
+     * @return {@code false} when the feature has no units available
+     */
+    public boolean tryAcquire() {
+        Validate.validState(!closed, "Reservation pool of feature '%s' is closed", featureKey);
+        lastActivityNanos = System.nanoTime();
+        while (!takeLocalUnit()) {
+            if (!refill()) {
+                return false;
+            }
+        }
+        unitsInUse.incrementAndGet();
+        acquisitions.increment();
+        return true;
+    }
+
+    /**
+     * Gives back a unit taken by {@link #tryAcquire()} to the local reservation.
+     */
+    public void release() {
+        Validate.validState(unitsInUse.getAndUpdate(inUse -> inUse > 0 ? inUse - 1 : inUse) > 0,
+                "No unit of feature '%s' is in use", featureKey);
+        lastActivityNanos = System.nanoTime();
+        localUnits.incrementAndGet();
+        if (closed) {
+            // nothing hands the unit out again, return it right away
+            refillLock.lock();
+            try {
+                returnUnits(localUnits.getAndSet(0));
+            } finally {
+                refillLock.unlock();
+            }
+        }
+    }
+
+    public String getFeatureKey() {
+        return featureKey;
+    }
+
+    /**
+     * @return units checked out from the server and not handed out
+     */
+    public long getLocalUnits() {
+        return localUnits.get();
+    }
+
+    public long getUnitsInUse() {
+        return unitsInUse.get();
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getServerCheckouts() {
+        return serverCheckouts.sum();
+    }
+
+    public long getServerReturns() {
+        return serverReturns.sum();
+    }
+
+    /**
+     * Returns the unused units to the server. Units still in use stay checked out.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        idleCheck.cancel(false);
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+        refillLock.lock();
+        try {
+            returnUnits(localUnits.getAndSet(0));
+        } catch (final RuntimeException exception) {
+            logger.warn("Failed to return {} unused units of feature '{}'", localUnits.get(), featureKey, exception);
+        } finally {
+            refillLock.unlock();
+        }
+        if (unitsInUse.get() > 0) {
+            logger.warn("{} units of feature '{}' are still in use and stay checked out", unitsInUse.get(), featureKey);
+        }
+    }
+
+    private boolean takeLocalUnit() {
+        long available;
+        do {
+            available = localUnits.get();
+            if (available == 0) {
+                return false;
+            }
+        } while (!localUnits.compareAndSet(available, available - 1));
+        return true;
+    }
+
+    private boolean refill() {
+        refillLock.lock();
+        try {
+            // another thread may have refilled the reservation while this one was waiting
+            if (localUnits.get() > 0) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            final long checkedOut = activation.executeWithLock(a -> {
+                final IActivationFeature feature = findFeature(a);
+                final long amount = feature.getAvailable() == null ? chunkSize : Math.min(chunkSize, feature.getAvailable());
+                if (amount <= 0) {
+                    return 0L;
+                }
+                a.checkoutFeature(feature, amount);
+                return amount;
+            });
+            if (checkedOut == 0) {
+                return false;
+            }
+            serverCheckouts.increment();
+            localUnits.addAndGet(checkedOut);
+            if (events != null) {
+                events.publish(ActivationEvent.featureCheckedOut(featureKey, checkedOut));
+            }
+            return true;
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private void returnIfIdle() {
+        if (System.nanoTime() - lastActivityNanos < idleReturnNanos || localUnits.get() == 0) {
+            return;
+        }
+        refillLock.lock();
+        try {
+            returnUnits(localUnits.getAndSet(0));
+        } catch (final RuntimeException exception) {
+            logger.warn("Failed to return idle units of feature '{}'", featureKey, exception);
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private void returnUnits(final long units) {
+        if (units == 0) {
+            return;
+        }
+        final long returned;
+        try {
+            returned = activation.executeWithLock(a -> {
+                final IActivationFeature feature = findFeature(a);
+                // the activation may have lost units in the meantime, e.g. by a state pull
+                final long amount = feature.getActive() == null ? units : Math.min(units, feature.getActive());
+                if (amount > 0) {
+                    a.returnFeature(feature, amount);
+                }
+                return amount;
+            });
+        } catch (final RuntimeException exception) {
+            localUnits.addAndGet(units);
+            throw exception;
+        }
+        serverReturns.increment();
+        if (events != null && returned > 0) {
+            events.publish(ActivationEvent.featureReturned(featureKey, returned));
+        }
+    }
+
+    private IActivationFeature findFeature(final IActivation lockedActivation) {
+        final IActivationFeature feature = lockedActivation.getFeatures().tryGet(featureKey)
+                .orElseThrow(() -> new IllegalStateException("Feature with key '" + featureKey + "' not found"));
+        if (feature.getType() != FeatureType.ELEMENT_POOL) {
+            throw new IllegalStateException("Feature '" + featureKey + "' is not an element-pool feature");
+        }
+        return feature;
+    }
+}
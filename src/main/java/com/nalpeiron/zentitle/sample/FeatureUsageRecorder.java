@@ -0,0 +1,283 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import com.nalpeiron.zentitle.sample.options.OverflowPolicy;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking recorder for bool feature usage. Callers only increment per-feature counters, a background
+ * flusher periodically drains them and reports the coalesced usage to the licensing API.
+ * <p>
+ * The licensing API takes one usage per call, so a flush makes at most {@code MaxCallsPerLock} calls per
+ * activation lock acquisition and releases the lock between such chunks, letting other actions run during a
+ * long flush.
+ * <p>
+ * Usage that fails to report is retried by later flushes, features whose calls failed before are reported after
+ * the others, and the usage of a feature whose calls failed {@code MaxSendAttempts} times in a row is dropped, so
+ * that a feature the API keeps rejecting neither blocks the others nor stays pending forever.
+ */
+public class FeatureUsageRecorder implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureUsageRecorder.class);
+
+    private final ISharedActivation activation;
+    private final AppSettings.UsageTracking settings;
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final LongAdder recordedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder flushedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final Object flushLock = new Object();
+    // consecutive failed usage calls per feature, guarded by the flush lock
+    private final Map<String, Integer> sendFailures = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final boolean ownsFlusher;
+    private final ScheduledFuture<?> scheduledFlush;
+    private volatile boolean closed = false;
+
+    public FeatureUsageRecorder(final ISharedActivation activation, final AppSettings.UsageTracking settings) {
+        this(activation, settings, Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("usage-flusher")), true);
+    }
+
+    /**
+     * @param flusher executor running the periodic flushes, not shut down when the recorder is closed
+     */
+    public FeatureUsageRecorder(final ISharedActivation activation, final AppSettings.UsageTracking settings,
+                                final ScheduledExecutorService flusher) {
+        this(activation, settings, flusher, false);
+    }
+
+    private FeatureUsageRecorder(final ISharedActivation activation, final AppSettings.UsageTracking settings,
+                                 final ScheduledExecutorService flusher, final boolean ownsFlusher) {
+        this.activation = Objects.requireNonNull(activation, "Activation must not be null");
+        this.settings = Objects.requireNonNull(settings, "Settings must not be null");
+        Validate.isTrue(settings.getMaxPendingEvents() > 0, "MaxPendingEvents must be positive");
+        Validate.isTrue(settings.getFlushIntervalMillis() > 0, "FlushIntervalMillis must be positive");
+        Validate.isTrue(settings.getMaxCallsPerLock() > 0, "MaxCallsPerLock must be positive");
+        Validate.isTrue(settings.getMaxSendAttempts() > 0, "MaxSendAttempts must be positive");
+
+        this.flusher = Objects.requireNonNull(flusher, "Flusher must not be null");
+        this.ownsFlusher = ownsFlusher;
+        scheduledFlush = flusher.scheduleWithFixedDelay(this::flushQuietly,
+                settings.getFlushIntervalMillis(), settings.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a single usage of the feature with the given key. Must not be called with the activation lock held,
+     * a full recorder may flush in the calling thread, use {@link #offer(String)} there.
+     *
+     * @return {@code false} when the usage was dropped because the recorder is full or closed
+     */
+    public boolean record(final String featureKey) {
+        return record(featureKey, settings.getOverflowPolicy());
+    }
+
+    /**
+     * Records a single usage like {@link #record(String)}, but drops it instead of flushing when the recorder is
+     * full, for callers that already hold the activation lock.
+     *
+     * @return {@code false} when the usage was dropped because the recorder is full or closed
+     */
+    public boolean offer(final String featureKey) {
+        return record(featureKey, OverflowPolicy.DROP);
+    }
+
+    private boolean record(final String featureKey, final OverflowPolicy overflowPolicy) {
+        Validate.notBlank(featureKey, "Feature key must not be blank");
+        if (closed) {
+            droppedEvents.increment();
+            return false;
+        }
+
+        if (pendingEvents.incrementAndGet() > settings.getMaxPendingEvents()) {
+            pendingEvents.decrementAndGet();
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                droppedEvents.increment();
+                return false;
+            }
+            // one chunk, not the whole buffer, so that the delay of the recording thread stays bounded
+            try {
+                synchronized (flushLock) {
+                    send(drain(settings.getMaxCallsPerLock()));
+                }
+            } catch (final RuntimeException exception) {
+                // already logged, the usage stays pending for the next flush
+            }
+            pendingEvents.incrementAndGet();
+        }
+
+        pending.computeIfAbsent(featureKey, key -> new LongAdder()).increment();
+        recordedEvents.increment();
+        return true;
+    }
+
+    /**
+     * Reports all pending usage to the licensing API, blocking until done.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            send(drain(Long.MAX_VALUE));
+        }
+    }
+
+    public long getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    public long getRecordedEvents() {
+        return recordedEvents.sum();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    public long getFlushedEvents() {
+        return flushedEvents.sum();
+    }
+
+    public long getFailedEvents() {
+        return failedEvents.sum();
+    }
+
+    /**
+     * Stops the background flusher and reports the remaining usage. Must be called before the activation is closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduledFlush.cancel(false);
+        if (ownsFlusher) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(settings.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // a flush already running on a shared flusher is serialized with this one by the flush lock
+        flushQuietly();
+        if (pendingEvents.get() > 0) {
+            logger.warn("{} feature usage events could not be reported before closing", pendingEvents.get());
+        }
+    }
+
+    /**
+     * Takes at most the given number of pending events out of the counters.
+     */
+    private Map<String, Long> drain(final long maxEvents) {
+        final Map<String, Long> batch = new HashMap<>();
+        long remaining = maxEvents;
+        for (final Map.Entry<String, LongAdder> entry : pending.entrySet()) {
+            if (remaining == 0) {
+                break;
+            }
+            final long count = entry.getValue().sumThenReset();
+            if (count <= 0) {
+                continue;
+            }
+            final long taken = Math.min(count, remaining);
+            if (taken < count) {
+                entry.getValue().add(count - taken);
+            }
+            batch.put(entry.getKey(), taken);
+            pendingEvents.addAndGet(-taken);
+            remaining -= taken;
+        }
+        return batch;
+    }
+
+    private void send(final Map<String, Long> batch) {
+        // features that failed before go last, so that one the API keeps rejecting does not hold back the others
+        final Map<String, Long> unsent = new LinkedHashMap<>();
+        batch.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> sendFailures.getOrDefault(entry.getKey(), 0)))
+                .forEach(entry -> unsent.put(entry.getKey(), entry.getValue()));
+        try {
+            while (!unsent.isEmpty()) {
+                // the lock is released between chunks, so a large batch does not starve interactive actions
+                activation.executeWithLock(a -> {
+                    sendChunk(a, unsent);
+                });
+            }
+        } catch (final RuntimeException exception) {
+            logger.warn("Failed to report feature usage, {} events will be retried", unsent.values().stream().mapToLong(Long::longValue).sum(), exception);
+            requeue(unsent);
+            throw exception;
+        }
+    }
+
+    private void sendChunk(final IActivation lockedActivation, final Map<String, Long> unsent) {
+        int calls = 0;
+        final Iterator<Map.Entry<String, Long>> entries = unsent.entrySet().iterator();
+        while (entries.hasNext() && calls < settings.getMaxCallsPerLock()) {
+            final Map.Entry<String, Long> entry = entries.next();
+            final Optional<IActivationFeature> feature = lockedActivation.getFeatures().tryGet(entry.getKey());
+            if (feature.isEmpty()) {
+                logger.warn("Dropping {} usage events of unknown feature '{}'", entry.getValue(), entry.getKey());
+                droppedEvents.add(entry.getValue());
+                entries.remove();
+                continue;
+            }
+            while (entry.getValue() > 0 && calls < settings.getMaxCallsPerLock()) {
+                try {
+                    lockedActivation.trackFeatureUsage(feature.get());
+                } catch (final RuntimeException exception) {
+                    sendFailures.merge(entry.getKey(), 1, Integer::sum);
+                    throw exception;
+                }
+                sendFailures.remove(entry.getKey());
+                calls++;
+                flushedEvents.increment();
+                entry.setValue(entry.getValue() - 1);
+            }
+            if (entry.getValue() == 0) {
+                entries.remove();
+            }
+        }
+    }
+
+    private void requeue(final Map<String, Long> unsent) {
+        for (final Map.Entry<String, Long> entry : unsent.entrySet()) {
+            final int failures = sendFailures.getOrDefault(entry.getKey(), 0);
+            if (failures >= settings.getMaxSendAttempts()) {
+                logger.warn("Dropping {} usage events of feature '{}' after {} failed attempts to report them",
+                        entry.getValue(), entry.getKey(), failures);
+                sendFailures.remove(entry.getKey());
+                droppedEvents.add(entry.getValue());
+                continue;
+            }
+            failedEvents.add(entry.getValue());
+            pending.computeIfAbsent(entry.getKey(), key -> new LongAdder()).add(entry.getValue());
+            pendingEvents.addAndGet(entry.getValue());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (final RuntimeException exception) {
+            // already logged, the usage stays pending for the next flush
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Persists the device fingerprint next to the activation storage, so that it is only computed (through JNI)
+ * when the hardware changed or the cached value expired.
+ * <p>
+ * The hardware signature only uses identifiers of the machine itself (OS, architecture, machine ID and the DMI
+ * product UUID and board serial where readable). CPU count and memory are left out on purpose, they change with
+ * container limits and VM resizes without the machine changing, as are host names and MAC addresses. Where none of
+ * the identifiers is readable, e.g. on Windows, only the TTL expires the cached fingerprint.
+ * <p>
+ * The cache file is only readable and writable by its owner on file systems supporting POSIX permissions.
+ */
+public class FingerprintCache {
+    private static final Logger logger = LoggerFactory.getLogger(FingerprintCache.class);
+    private static final String FILE_NAME = "device-fingerprint.json";
+    private static final List<Path> MACHINE_ID_FILES = Arrays.asList(
+            Paths.get("/etc/machine-id"),
+            Paths.get("/var/lib/dbus/machine-id"));
+    private static final List<Path> DMI_ID_FILES = Arrays.asList(
+            Paths.get("/sys/class/dmi/id/product_uuid"),
+            Paths.get("/sys/class/dmi/id/board_serial"));
+
+    private final boolean enabled;
+    private final Path file;
+    private final Duration ttl;
+    private final ObjectMapper objectMapper;
+    private boolean regenerateOnNextGet;
+    private CachedFingerprint cached;
+
+    /**
+     * @param enabled         whether fingerprints are cached at all, when not every lookup calls the generator
+     * @param ttl             how long a cached fingerprint is trusted, zero or negative to never expire it
+     * @param forceRegenerate whether the first lookup should ignore the cached value
+     */
+    public FingerprintCache(final boolean enabled, final Path file, final Duration ttl, final boolean forceRegenerate,
+                            final ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.file = file;
+        this.ttl = ttl;
+        this.regenerateOnNextGet = forceRegenerate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Creates a cache stored in the directory of the activation storage, or in the user home when the storage
+     * ID is not a file path.
+     */
+    public static FingerprintCache create(final AppSettings.Fingerprint settings, final IActivationStorage storage,
+                                          final ObjectMapper objectMapper) {
+        Path directory;
+        try {
+            final Path storagePath = Paths.get(storage.getStorageId());
+            directory = storagePath.isAbsolute() ? storagePath.getParent() : null;
+        } catch (final RuntimeException exception) {
+            directory = null;
+        }
+        if (directory == null) {
+            directory = Paths.get(System.getProperty("user.home"));
+        }
+        return new FingerprintCache(settings.isCacheEnabled(), directory.resolve(FILE_NAME), Duration.ofHours(settings.getTtlHours()),
+                settings.isForceRegenerate(), objectMapper);
+    }
+
+    /**
+     * @param generator computes the fingerprint when there is no valid cached value
+     */
+    public synchronized String get(final Supplier<String> generator) {
+        if (!enabled) {
+            return generator.get();
+        }
+        final String signature = hardwareSignature();
+        if (regenerateOnNextGet) {
+            regenerateOnNextGet = false;
+            return regenerate(generator, signature);
+        }
+
+        if (cached == null) {
+            cached = read();
+        }
+        if (cached != null && isValid(cached, signature)) {
+            return cached.getFingerprint();
+        }
+        return regenerate(generator, signature);
+    }
+
+    /**
+     * Makes the next {@link #get(Supplier)} compute the fingerprint again.
+     */
+    public synchronized void invalidate() {
+        regenerateOnNextGet = true;
+        cached = null;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private boolean isValid(final CachedFingerprint candidate, final String signature) {
+        if (!signature.equals(candidate.getHardwareSignature())) {
+            logger.info("Hardware signature changed, regenerating device fingerprint");
+            return false;
+        }
+        if (!ttl.isZero() && !ttl.isNegative() && candidate.getCreatedAt().plus(ttl).isBefore(OffsetDateTime.now())) {
+            logger.info("Cached device fingerprint expired, regenerating");
+            return false;
+        }
+        return candidate.getFingerprint() != null && !candidate.getFingerprint().isEmpty();
+    }
+
+    private String regenerate(final Supplier<String> generator, final String signature) {
+        final String fingerprint = generator.get();
+        cached = new CachedFingerprint(fingerprint, signature, OffsetDateTime.now());
+        write(cached);
+        return fingerprint;
+    }
+
+    private CachedFingerprint read() {
+        try {
+            final CachedFingerprint value = objectMapper.readValue(file.toFile(), CachedFingerprint.class);
+            return value.getCreatedAt() != null ? value : null;
+        } catch (final NoSuchFileException exception) {
+            return null;
+        } catch (final IOException exception) {
+            if (Files.exists(file)) {
+                logger.warn("Ignoring unreadable device fingerprint cache {}", file, exception);
+            }
+            return null;
+        }
+    }
+
+    private void write(final CachedFingerprint value) {
+        Path temporaryFile = null;
+        try {
+            final Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            // created with the owner-only permissions, so that the fingerprint is never readable by others
+            temporaryFile = directory.getFileSystem().supportedFileAttributeViews().contains("posix")
+                    ? Files.createTempFile(directory, FILE_NAME, ".tmp", PosixFilePermissions.asFileAttribute(
+                            EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)))
+                    : Files.createTempFile(directory, FILE_NAME, ".tmp");
+            objectMapper.writeValue(temporaryFile.toFile(), value);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temporaryFile = null;
+        } catch (final IOException exception) {
+            // the fingerprint is still valid, it will just be computed again next time
+            logger.warn("Failed to write device fingerprint cache {}", file, exception);
+        } finally {
+            if (temporaryFile != null) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                } catch (final IOException exception) {
+                    logger.debug("Failed to delete {}", temporaryFile, exception);
+                }
+            }
+        }
+    }
+
+    static String hardwareSignature() {
+        final StringBuilder builder = new StringBuilder()
+                .append(System.getProperty("os.name")).append('|')
+                .append(System.getProperty("os.arch")).append('|');
+        for (final Path machineIdFile : MACHINE_ID_FILES) {
+            final String machineId = readId(machineIdFile);
+            if (machineId != null) {
+                builder.append(machineId);
+                break;
+            }
+        }
+        for (final Path dmiIdFile : DMI_ID_FILES) {
+            builder.append('|');
+            final String dmiId = readId(dmiIdFile);
+            if (dmiId != null) {
+                builder.append(dmiId);
+            }
+        }
+
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    /**
+     * @return the identifier in the file, {@code null} when it is not readable on this platform or by this user
+     */
+    private static String readId(final Path idFile) {
+        try {
+            final String id = new String(Files.readAllBytes(idFile), StandardCharsets.UTF_8).trim();
+            return id.isEmpty() ? null : id;
+        } catch (final IOException | SecurityException exception) {
+            return null;
+        }
+    }
+
+    public static class CachedFingerprint {
+        @JsonProperty("fingerprint")
+        private String fingerprint;
+
+        @JsonProperty("hardwareSignature")
+        private String hardwareSignature;
+
+        @JsonProperty("createdAt")
+        private OffsetDateTime createdAt;
+
+        public CachedFingerprint() {
+        }
+
+        public CachedFingerprint(final String fingerprint, final String hardwareSignature, final OffsetDateTime createdAt) {
+            this.fingerprint = fingerprint;
+            this.hardwareSignature = hardwareSignature;
+            this.createdAt = createdAt;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getHardwareSignature() {
+            return hardwareSignature;
+        }
+
+        public OffsetDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.sample.events.ActivationEvent;
+import com.nalpeiron.zentitle.sample.events.ActivationEventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@link ActivationEvent.Type#LEASE_EXPIRED} when the lease expiry of an active activation passes, also
+ * while nothing uses the activation, instead of only when the next call under the activation lock notices it.
+ * <p>
+ * One task is planned at the lease expiry, it is planned again on every renewal and state change and cancelled
+ * when the activation is no longer active. When it runs, the lease expiry is read again under the activation lock,
+ * so that a renewal by another process plans a new task instead of publishing the event.
+ */
+public class LeaseExpiryTimer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LeaseExpiryTimer.class);
+
+    private final ISharedActivation activation;
+    private final ActivationEventPublisher events;
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Clock clock;
+
+    private ScheduledFuture<?> scheduledExpiry = null;
+    private OffsetDateTime armedLeaseExpiry = null;
+    private OffsetDateTime publishedLeaseExpiry = null;
+    private boolean closed = false;
+
+    public LeaseExpiryTimer(final ISharedActivation activation, final ActivationEventPublisher events) {
+        this(activation, events, Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("lease-expiry")), true);
+    }
+
+    public LeaseExpiryTimer(final ISharedActivation activation, final ActivationEventPublisher events,
+                            final ScheduledExecutorService executor) {
+        this(activation, events, executor, false);
+    }
+
+    private LeaseExpiryTimer(final ISharedActivation activation, final ActivationEventPublisher events,
+                             final ScheduledExecutorService executor, final boolean ownsExecutor) {
+        this.activation = Objects.requireNonNull(activation, "Activation must not be null");
+        this.events = Objects.requireNonNull(events, "Events must not be null");
+        this.executor = Objects.requireNonNull(executor, "Executor must not be null");
+        this.ownsExecutor = ownsExecutor;
+        this.clock = Clock.systemUTC();
+    }
+
+    /**
+     * Plans the task for the current lease expiry and from then on follows the renewals and state changes
+     * published by the events.
+     */
+    public void start() {
+        events.consume(this::onEvent);
+        arm(activation.executeWithLock(a -> {
+            return a.getState() == ActivationState.ACTIVE ? a.getInfo().getLeaseExpiry() : null;
+        }));
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            disarm();
+        }
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void onEvent(final ActivationEvent event) {
+        if (event.getType() == ActivationEvent.Type.LEASE_RENEWED) {
+            arm(event.getLeaseExpiry());
+        } else if (event.getType() == ActivationEvent.Type.STATE_CHANGED) {
+            arm(event.getNewState() == ActivationState.ACTIVE ? event.getLeaseExpiry() : null);
+            // noticed under the activation lock before the task ran
+            if (event.getNewState() == ActivationState.LEASE_EXPIRED && event.getLeaseExpiry() != null) {
+                publishExpired(event.getLeaseExpiry());
+            }
+        }
+    }
+
+    /**
+     * @param leaseExpiry expiry to publish the event at, {@code null} to plan nothing
+     */
+    private synchronized void arm(final OffsetDateTime leaseExpiry) {
+        if (closed || Objects.equals(leaseExpiry, armedLeaseExpiry)) {
+            return;
+        }
+        disarm();
+        if (leaseExpiry == null) {
+            return;
+        }
+        final long delayMillis = Math.max(0, Duration.between(clock.instant(), leaseExpiry.toInstant()).toMillis());
+        armedLeaseExpiry = leaseExpiry;
+        scheduledExpiry = executor.schedule(() -> expire(leaseExpiry), delayMillis, TimeUnit.MILLISECONDS);
+        logger.debug("Lease expiry notification planned at {}", leaseExpiry);
+    }
+
+    private void disarm() {
+        if (scheduledExpiry != null) {
+            scheduledExpiry.cancel(false);
+            scheduledExpiry = null;
+        }
+        armedLeaseExpiry = null;
+    }
+
+    private void expire(final OffsetDateTime leaseExpiry) {
+        final OffsetDateTime currentLeaseExpiry;
+        try {
+            currentLeaseExpiry = activation.executeWithLock(a -> {
+                return a.getState() == ActivationState.ACTIVE || a.getState() == ActivationState.LEASE_EXPIRED
+                        ? a.getInfo().getLeaseExpiry()
+                        : null;
+            });
+        } catch (final RuntimeException exception) {
+            logger.warn("Failed to read the activation lease expiry", exception);
+            return;
+        }
+        synchronized (this) {
+            // planned again in the meantime, the task of the new expiry publishes the event
+            if (closed || !leaseExpiry.equals(armedLeaseExpiry)) {
+                return;
+            }
+            scheduledExpiry = null;
+            armedLeaseExpiry = null;
+            if (currentLeaseExpiry == null) {
+                return;
+            }
+            if (currentLeaseExpiry.toInstant().isAfter(clock.instant())) {
+                // renewed by another process, which published no event in this one
+                arm(currentLeaseExpiry);
+                return;
+            }
+            publishExpired(currentLeaseExpiry);
+        }
+    }
+
+    /**
+     * Publishes the event once per lease expiry, whether the task or a state change noticed it first.
+     */
+    private synchronized void publishExpired(final OffsetDateTime leaseExpiry) {
+        if (closed || leaseExpiry.equals(publishedLeaseExpiry)) {
+            return;
+        }
+        publishedLeaseExpiry = leaseExpiry;
+        events.publish(ActivationEvent.leaseExpired(leaseExpiry));
+    }
+}
@@ -0,0 +1,239 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.api.model.ActivationMode;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Renews the lease of an online activation in the background, before it expires.
+ * The renewal is planned at a configurable fraction of the remaining lease period with random jitter,
+ * so that many nodes sharing a lease period do not refresh at the same moment. Failed renewals are
+ * retried with exponential backoff, unless the lease was renewed by another process in the meantime.
+ */
+public class LeaseRefreshScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LeaseRefreshScheduler.class);
+
+    private enum Outcome {
+        RENEWED, NOT_NEEDED, FAILED
+    }
+
+    private final ISharedActivation activation;
+    private final AppSettings.LeaseRefresh settings;
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Clock clock;
+    private final List<Consumer<OffsetDateTime>> renewalListeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledFuture<?> scheduledRefresh = null;
+    private volatile Instant nextRefreshAt = null;
+    private volatile OffsetDateTime renewedLeaseExpiry = null;
+    private volatile OffsetDateTime failedLeaseExpiry = null;
+    private volatile Duration lastRenewalLatency = null;
+    private volatile int consecutiveFailures = 0;
+    private volatile long renewalCount = 0;
+    private volatile boolean closed = false;
+
+    public LeaseRefreshScheduler(final ISharedActivation activation, final AppSettings.LeaseRefresh settings) {
+        this(activation, settings, Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("lease-refresh")), true, Clock.systemUTC());
+    }
+
+    public LeaseRefreshScheduler(final ISharedActivation activation, final AppSettings.LeaseRefresh settings, final ScheduledExecutorService executor) {
+        this(activation, settings, executor, false, Clock.systemUTC());
+    }
+
+    private LeaseRefreshScheduler(final ISharedActivation activation, final AppSettings.LeaseRefresh settings,
+                                  final ScheduledExecutorService executor, final boolean ownsExecutor, final Clock clock) {
+        this.activation = Objects.requireNonNull(activation, "Activation must not be null");
+        this.settings = Objects.requireNonNull(settings, "Settings must not be null");
+        this.executor = Objects.requireNonNull(executor, "Executor must not be null");
+        this.ownsExecutor = ownsExecutor;
+        this.clock = clock;
+    }
+
+    public void start() {
+        reschedule();
+    }
+
+    public void onStateTransition(final ActivationState oldState, final IActivation updatedActivation) {
+        if (!closed) {
+            executor.execute(this::reschedule);
+        }
+    }
+
+    /**
+     * Registers a callback run on the scheduler thread after every successful renewal, with the new lease expiry.
+     */
+    public LeaseRefreshScheduler addRenewalListener(final Consumer<OffsetDateTime> listener) {
+        renewalListeners.add(Objects.requireNonNull(listener, "Listener must not be null"));
+        return this;
+    }
+
+    /**
+     * @return time of the next planned renewal (or renewal check), {@code null} when nothing is planned
+     */
+    public Instant getNextRefreshAt() {
+        return nextRefreshAt;
+    }
+
+    /**
+     * @return duration of the last renewal attempt, {@code null} before the first attempt
+     */
+    public Duration getLastRenewalLatency() {
+        return lastRenewalLatency;
+    }
+
+    /**
+     * @return lease expiry after the last successful renewal, {@code null} before the first one
+     */
+    public OffsetDateTime getRenewedLeaseExpiry() {
+        return renewedLeaseExpiry;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getRenewalCount() {
+        return renewalCount;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (scheduledRefresh != null) {
+                scheduledRefresh.cancel(false);
+                scheduledRefresh = null;
+            }
+            nextRefreshAt = null;
+        }
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void reschedule() {
+        try {
+            schedule(computeRefreshDelay(), this::refresh);
+        } catch (final RuntimeException exception) {
+            logger.warn("Failed to plan the activation lease refresh", exception);
+            schedule(Duration.ofSeconds(settings.getIdleCheckSeconds()), this::reschedule);
+        }
+    }
+
+    private Duration computeRefreshDelay() {
+        final OffsetDateTime leaseExpiry = activation.executeWithLock(a -> {
+            return isRefreshable(a) ? a.getInfo().getLeaseExpiry() : null;
+        });
+        if (leaseExpiry == null) {
+            return null;
+        }
+
+        final Duration remaining = Duration.between(clock.instant(), leaseExpiry.toInstant());
+        if (remaining.isNegative() || remaining.isZero()) {
+            return Duration.ZERO;
+        }
+
+        final long baseMillis = (long) (remaining.toMillis() * settings.getRenewAtFraction());
+        final long jitterRange = (long) (baseMillis * settings.getJitterFraction());
+        final long jitterMillis = jitterRange > 0 ? ThreadLocalRandom.current().nextLong(-jitterRange, jitterRange + 1) : 0;
+        final long minDelayMillis = Math.min(TimeUnit.SECONDS.toMillis(settings.getMinDelaySeconds()), remaining.toMillis());
+        return Duration.ofMillis(Math.max(minDelayMillis, baseMillis + jitterMillis));
+    }
+
+    private void refresh() {
+        final long start = System.nanoTime();
+        final OffsetDateTime[] attemptedLeaseExpiry = {null};
+        Outcome outcome;
+        try {
+            outcome = activation.executeWithLock(a -> {
+                if (!isRefreshable(a)) {
+                    return Outcome.NOT_NEEDED;
+                }
+                final OffsetDateTime leaseExpiry = a.getInfo().getLeaseExpiry();
+                // another process renewed the lease since the failed attempt, plan against the new expiry instead
+                if (failedLeaseExpiry != null && leaseExpiry != null && leaseExpiry.isAfter(failedLeaseExpiry)) {
+                    return Outcome.NOT_NEEDED;
+                }
+                attemptedLeaseExpiry[0] = leaseExpiry;
+                if (!a.refreshLease().isSuccess()) {
+                    return Outcome.FAILED;
+                }
+                renewedLeaseExpiry = a.getInfo().getLeaseExpiry();
+                return Outcome.RENEWED;
+            });
+        } catch (final RuntimeException exception) {
+            logger.warn("Activation lease refresh failed", exception);
+            outcome = Outcome.FAILED;
+        }
+        lastRenewalLatency = Duration.ofNanos(System.nanoTime() - start);
+
+        if (outcome == Outcome.FAILED) {
+            consecutiveFailures++;
+            if (attemptedLeaseExpiry[0] != null) {
+                failedLeaseExpiry = attemptedLeaseExpiry[0];
+            }
+            final Duration retryDelay = computeRetryDelay(consecutiveFailures);
+            logger.warn("Activation lease could not be refreshed (attempt {}), retrying in {} ms", consecutiveFailures, retryDelay.toMillis());
+            schedule(retryDelay, this::refresh);
+            return;
+        }
+        if (outcome == Outcome.RENEWED) {
+            renewalCount++;
+            logger.info("Activation lease refreshed in {} ms", lastRenewalLatency.toMillis());
+            for (final Consumer<OffsetDateTime> listener : renewalListeners) {
+                listener.accept(renewedLeaseExpiry);
+            }
+        } else if (consecutiveFailures > 0) {
+            logger.info("Activation lease no longer needs the retried refresh, planning against the current lease");
+        }
+        consecutiveFailures = 0;
+        failedLeaseExpiry = null;
+        reschedule();
+    }
+
+    private Duration computeRetryDelay(final int failures) {
+        final long initialMillis = TimeUnit.SECONDS.toMillis(settings.getRetryInitialDelaySeconds());
+        final long maxMillis = TimeUnit.SECONDS.toMillis(settings.getRetryMaxDelaySeconds());
+        // equal jitter keeps at least half of the backoff while still spreading retries
+        return Duration.ofMillis(Backoff.equalJitter(Backoff.exponentialMillis(initialMillis, maxMillis, failures)));
+    }
+
+    private static boolean isRefreshable(final IActivation lockedActivation) {
+        final ActivationState state = lockedActivation.getState();
+        return (state == ActivationState.ACTIVE || state == ActivationState.LEASE_EXPIRED)
+                && lockedActivation.getInfo().getMode() == ActivationMode.ONLINE;
+    }
+
+    private synchronized void schedule(final Duration delay, final Runnable task) {
+        if (closed) {
+            return;
+        }
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        // nothing to refresh right now, check again later in case the activation gets activated online
+        final Duration effectiveDelay = delay == null ? Duration.ofSeconds(settings.getIdleCheckSeconds()) : delay;
+        final Runnable effectiveTask = delay == null ? this::reschedule : task;
+        nextRefreshAt = clock.instant().plus(effectiveDelay);
+        scheduledRefresh = executor.schedule(effectiveTask, effectiveDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
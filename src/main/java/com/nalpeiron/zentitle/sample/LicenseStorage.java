@@ -6,6 +6,8 @@ import com.nalpeiron.zentitle.licensingclient.persistence.storage.PlainTextFileA
 import com.nalpeiron.zentitle.licensingclient.zentitle2core.PredefinedSystemFolder;
 import com.nalpeiron.zentitle.licensingclient.zentitle2core.SecureActivationStorage;
 import com.nalpeiron.zentitle.sample.gui.Prompt;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import com.nalpeiron.zentitle.sample.options.StorageType;
 import org.jline.terminal.Terminal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,19 +27,71 @@ public class LicenseStorage {
         this.terminal = terminal;
     }
 
-    public IActivationStorage initialize(final boolean useCoreLibrary) {
+    public static IActivationStorage open(final AppSettings config) {
+        return open(config, "license");
+    }
+
+    /**
+     * Opens the storage of the configured type, with files named after the given base name in the application directory.
+     */
+    public static IActivationStorage open(final AppSettings config, final String baseName) {
+        final boolean changeDetection = config.getStorage().isChangeDetection();
+        final Path directory = appDirectory();
         final IActivationStorage storage;
-        if (useCoreLibrary) {
-            storage = SecureActivationStorage.withAppDirectory(PredefinedSystemFolder.USER_DATA, APP_DIRECTORY.toString(), "license.encrypted");
-        } else {
-            final String localAppData = System.getProperty("user.home");
-            final Path path = Paths.get(localAppData).resolve(APP_DIRECTORY).resolve("license.json");
-            storage = new PlainTextFileActivationStorage(path);
+        switch (resolveType(config)) {
+            case SECURE:
+                final IActivationStorage secureStorage = SecureActivationStorage.withAppDirectory(PredefinedSystemFolder.USER_DATA, APP_DIRECTORY.toString(), baseName + ".encrypted");
+                storage = changeDetection ? ChangeDetectingActivationStorage.wrap(secureStorage) : secureStorage;
+                break;
+            case BINARY:
+                final Path binaryPath = directory.resolve(baseName + ".bin");
+                final IActivationStorage binaryStorage = new BinaryActivationStorage(binaryPath, directory.resolve(baseName + ".json"));
+                storage = changeDetection ? new ChangeDetectingActivationStorage(binaryStorage, binaryPath) : binaryStorage;
+                break;
+            default:
+                final Path path = directory.resolve(baseName + ".json");
+                final IActivationStorage plainTextStorage = new PlainTextFileActivationStorage(path);
+                storage = changeDetection ? new ChangeDetectingActivationStorage(plainTextStorage, path) : plainTextStorage;
+        }
+
+        logger.warn("- Using {} storage with file: {}", describe(storage), storage.getStorageId());
+        return storage;
+    }
+
+    /**
+     * Directory in the user home holding the activation files of the sample.
+     */
+    public static Path appDirectory() {
+        return Paths.get(System.getProperty("user.home")).resolve(APP_DIRECTORY);
+    }
+
+    /**
+     * Escapes the value into a file name that is distinct from the one of any other value, also on case-insensitive
+     * file systems: lower case letters, digits and '-' are kept, any other character becomes '_' followed by its four
+     * hexadecimal digits.
+     */
+    public static String toFileName(final String value) {
+        final StringBuilder name = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-') {
+                name.append(c);
+            } else {
+                name.append(String.format("_%04x", (int) c));
+            }
         }
+        return name.toString();
+    }
 
-        logger.warn("- Using {} storage with file: {}", storage.getClass().getName(), storage.getStorageId());
+    public IActivationStorage initialize(final AppSettings config) {
+        final IActivationStorage storage = open(config);
+        return initialize(storage, storage.load());
+    }
 
-        final PersistentData data = storage.load();
+    /**
+     * Offers to clean up the already opened storage, given the data loaded from it (e.g. in the background).
+     */
+    public IActivationStorage initialize(final IActivationStorage storage, final PersistentData data) {
         if (data.isEmpty()) {
             return storage;
         }
@@ -51,4 +105,22 @@ public class LicenseStorage {
 
         return storage;
     }
-}
\ No newline at end of file
+
+    private static StorageType resolveType(final AppSettings config) {
+        final StorageType type = config.getStorage().getType();
+        if (type == StorageType.AUTO) {
+            return config.isUseCoreLibrary() ? StorageType.SECURE : StorageType.PLAIN_TEXT;
+        }
+        if (type == StorageType.SECURE && !config.isUseCoreLibrary()) {
+            throw new IllegalStateException("Secure storage requires the core library, enable 'UseCoreLibrary' in 'appsettings.json'");
+        }
+        return type;
+    }
+
+    private static String describe(final IActivationStorage storage) {
+        if (storage instanceof ChangeDetectingActivationStorage) {
+            return ((ChangeDetectingActivationStorage) storage).getDelegate().getClass().getName() + " (change detecting)";
+        }
+        return storage.getClass().getName();
+    }
+}
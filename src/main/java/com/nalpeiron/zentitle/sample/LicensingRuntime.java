@@ -0,0 +1,374 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.corelib.jni.ZentitleJniLazyLoading;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.SharedActivation;
+import com.nalpeiron.zentitle.licensingclient.SharedActivationExtensions;
+import com.nalpeiron.zentitle.licensingclient.licensingapi.HttpClientFactory;
+import com.nalpeiron.zentitle.licensingclient.licensingapi.LicensingApiOptions;
+import com.nalpeiron.zentitle.licensingclient.options.*;
+import com.nalpeiron.zentitle.licensingclient.persistence.IPersistence;
+import com.nalpeiron.zentitle.licensingclient.persistence.Persistence;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.services.DateTimeProvider;
+import com.nalpeiron.zentitle.licensingclient.zentitle2core.Zentitle2CoreFactory;
+import com.nalpeiron.zentitle.sample.events.ActivationEvent;
+import com.nalpeiron.zentitle.sample.events.ActivationEventPublisher;
+import com.nalpeiron.zentitle.sample.http.CircuitBreaker;
+import com.nalpeiron.zentitle.sample.http.CircuitBreakerMXBean;
+import com.nalpeiron.zentitle.sample.metrics.ActivationMetrics;
+import com.nalpeiron.zentitle.sample.metrics.MetricsRegistry;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import com.nalpeiron.zentitle.sample.snapshot.ActivationSnapshotWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Wires a {@link SharedActivation} together with the components built around it, shared by the interactive
+ * program and the headless run modes.
+ */
+public class LicensingRuntime implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LicensingRuntime.class);
+
+    public static final String DEFAULT_SYSTEM_LOCK_NAME = "Global-Zentitle.Licensing.Client-SampleApplication";
+
+    private final AppSettings config;
+    private final ActivationMetrics metrics;
+    private final CircuitBreaker circuitBreaker;
+    private final ObjectName circuitBreakerObjectName;
+    private final CloseableHttpClient httpClient;
+    private final ISharedActivation activation;
+    private final StateTransitionListeners transitionListeners;
+    private final FeatureGate featureGate;
+    private final ScheduledExecutorService sharedBackgroundExecutor;
+    private final ExecutorService ownedEventExecutor;
+    private final ActivationEventPublisher events;
+    private final ChangeDetectingActivationStorage watchedStorage;
+    private final ScheduledExecutorService storageWatchExecutor;
+    private final ScheduledExecutorService ownedStorageWatchExecutor;
+    private ScheduledFuture<?> storageWatch = null;
+    private final EntitlementCache entitlementCache;
+    private final LeaseRefreshScheduler leaseRefreshScheduler;
+    private final LeaseExpiryTimer leaseExpiryTimer;
+    private final FeatureUsageRecorder usageRecorder;
+    private final LockingActivationActionHandler actionHandler;
+    private final ActivationSnapshotWriter snapshotWriter;
+    private final AsyncActivation asyncActivation;
+
+    public LicensingRuntime(final AppSettings config, final IActivationStorage licenseStorage, final Supplier<String> seatIdSupplier) {
+        this(config, config.getLicensing(), licenseStorage, seatIdSupplier, DEFAULT_SYSTEM_LOCK_NAME, SharedRuntimeResources.none());
+    }
+
+    /**
+     * @param shared resources shared with other runtimes, see {@link SharedRuntimeResources}
+     */
+    public LicensingRuntime(final AppSettings config, final AppSettings.Licensing licensingOptionsConfig,
+                            final IActivationStorage licenseStorage, final Supplier<String> seatIdSupplier,
+                            final String systemLockName, final SharedRuntimeResources shared) {
+        this.config = config;
+        metrics = config.getMetrics().isEnabled()
+                ? new ActivationMetrics(MetricsRegistry.getDefault())
+                : ActivationMetrics.disabled();
+        final IActivationStorage storage = metrics.instrument(licenseStorage);
+
+        final String licensingUrl = licensingOptionsConfig.getApiUrl();
+        final URI licensingApiUrl = URI.create(licensingUrl);
+        final IPersistence persistence = new Persistence(storage, new DateTimeProvider());
+        final LicensingApiOptions licensingApiOptions = new LicensingApiOptions(
+                licensingApiUrl,
+                licensingOptionsConfig.getTenantId(),
+                persistence::getAccessToken,
+                persistence::getApiNonce,
+                persistence::setApiNonce);
+        circuitBreaker = new CircuitBreaker(StringUtils.defaultIfBlank(licensingOptionsConfig.getProductId(), "licensing-api"),
+                config.getCircuitBreaker(), metrics.isEnabled() ? MetricsRegistry.getDefault() : null);
+        final CloseableHttpClient transport = HttpClientFactory.createHttpClient(licensingApiOptions);
+        httpClient = metrics.instrument(config.getCircuitBreaker().isEnabled() ? circuitBreaker.protect(transport) : transport);
+        circuitBreakerObjectName = metrics.isEnabled() && config.getMetrics().isJmx()
+                ? registerCircuitBreaker(circuitBreaker, systemLockName)
+                : null;
+        final OnlineActivationOptions onlineActivationOptions = new OnlineActivationOptions(
+                licensingApiUrl,
+                () -> httpClient);
+        final OfflineActivationOptions offlineActivationOptions = shared.getOfflineActivationOptions() != null
+                ? shared.getOfflineActivationOptions()
+                : new OfflineActivationOptions(licensingOptionsConfig.getTenantRsaKeyModulus());
+        final ActivationOptions activationOptions = new ActivationOptions(
+                licensingOptionsConfig.getTenantId(),
+                licensingOptionsConfig.getProductId(),
+                seatIdSupplier,
+                storage,
+                onlineActivationOptions,
+                offlineActivationOptions);
+        transitionListeners = new StateTransitionListeners()
+                .add((oldState, updatedActivation) ->
+                        logger.info("Activation state changed from [{}] to [{}]", oldState, updatedActivation.getState()))
+                .add(metrics::onStateTransition);
+        activationOptions.setTransitionToNewStateCallback(transitionListeners::notifyTransition);
+
+        final ActivationLockingOptions activationLockingOptions = new ActivationLockingOptionsBuilder()
+                .useSystemLock(systemLockName)
+                .build();
+
+        activation = new SharedActivation(activationOptions, activationLockingOptions, persistence);
+        featureGate = new FeatureGate(activation);
+        transitionListeners.add(featureGate::onStateTransition);
+        final ScheduledExecutorService backgroundExecutor = shared.getBackgroundExecutor();
+        sharedBackgroundExecutor = backgroundExecutor;
+        final AppSettings.Events eventsConfig = config.getEvents();
+        ownedEventExecutor = backgroundExecutor == null
+                ? Executors.newCachedThreadPool(new NamedThreadFactory("activation-events"))
+                : null;
+        events = new ActivationEventPublisher(backgroundExecutor != null ? backgroundExecutor : ownedEventExecutor,
+                eventsConfig.getBufferCapacity());
+        transitionListeners.add(events::onStateTransition);
+        if (licenseStorage instanceof ChangeDetectingActivationStorage) {
+            watchedStorage = (ChangeDetectingActivationStorage) licenseStorage;
+            watchedStorage.setExternalChangeListener(() -> events.publish(ActivationEvent.storageChanged()));
+        } else {
+            watchedStorage = null;
+        }
+        ownedStorageWatchExecutor = watchedStorage != null && eventsConfig.getStorageWatchMillis() > 0 && backgroundExecutor == null
+                ? Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("storage-watch"))
+                : null;
+        storageWatchExecutor = backgroundExecutor != null ? backgroundExecutor : ownedStorageWatchExecutor;
+        entitlementCache = backgroundExecutor != null
+                ? new EntitlementCache(activation, config.getEntitlementCache(), backgroundExecutor)
+                : new EntitlementCache(activation, config.getEntitlementCache());
+        transitionListeners.add(entitlementCache::onStateTransition);
+        leaseRefreshScheduler = (backgroundExecutor != null
+                ? new LeaseRefreshScheduler(activation, config.getLeaseRefresh(), backgroundExecutor)
+                : new LeaseRefreshScheduler(activation, config.getLeaseRefresh()))
+                .addRenewalListener(leaseExpiry -> entitlementCache.invalidate())
+                .addRenewalListener(leaseExpiry -> events.publish(ActivationEvent.leaseRenewed(leaseExpiry)));
+        leaseExpiryTimer = backgroundExecutor != null
+                ? new LeaseExpiryTimer(activation, events, backgroundExecutor)
+                : new LeaseExpiryTimer(activation, events);
+        usageRecorder = backgroundExecutor != null
+                ? new FeatureUsageRecorder(activation, config.getUsageTracking(), backgroundExecutor)
+                : new FeatureUsageRecorder(activation, config.getUsageTracking());
+        actionHandler = new LockingActivationActionHandler(storage.getStorageId(), config.getLocking(), metrics);
+        asyncActivation = new AsyncActivation(activation, entitlementCache, circuitBreaker, events, config.getAsyncActivation());
+        // the snapshot mirrors the activation of the default system lock, other locks guard other activations
+        snapshotWriter = config.getSnapshot().isEnabled() && DEFAULT_SYSTEM_LOCK_NAME.equals(systemLockName)
+                ? openSnapshotWriter(config.getSnapshot())
+                : null;
+        if (snapshotWriter != null) {
+            // transition callbacks run under the activation lock, as the snapshot protocol requires
+            transitionListeners.add((oldState, updatedActivation) -> snapshotWriter.publish(updatedActivation));
+            events.consume(event -> {
+                if (event.getType() != ActivationEvent.Type.STATE_CHANGED && event.getType() != ActivationEvent.Type.STORAGE_CHANGED) {
+                    publishSnapshot();
+                }
+            });
+        }
+    }
+
+    public static void configureCoreLibrary(final AppSettings config) {
+        if (config.isUseCoreLibrary()) {
+            logger.warn("- Using Zentitle2Core C++ library for device fingerprint, secure license storage and offline activation operations");
+            final boolean isPrintLibraryLogs = config.isPrintLibraryLogs();
+            if (isPrintLibraryLogs) {
+                enableCoreLibraryLogging();
+            }
+        } else {
+            logger.warn("- Zentitle2Core C++ library usage is disabled in 'appsettings.json', the won't be loaded and offline activation won't work");
+        }
+    }
+
+    /**
+     * Loads the persisted activation state and starts the background components.
+     */
+    public void start() {
+        initialize();
+        if (config.getLeaseRefresh().isEnabled()) {
+            transitionListeners.add(leaseRefreshScheduler::onStateTransition);
+            leaseRefreshScheduler.start();
+        }
+        leaseExpiryTimer.start();
+        if (storageWatchExecutor != null) {
+            final long interval = config.getEvents().getStorageWatchMillis();
+            storageWatch = storageWatchExecutor.scheduleWithFixedDelay(this::checkStorage, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        if (snapshotWriter != null) {
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Loads the persisted activation state without starting any background component, for short-lived activations.
+     */
+    public void initialize() {
+        SharedActivationExtensions.initializeWithLock(activation);
+    }
+
+    public AppSettings getConfig() {
+        return config;
+    }
+
+    public ActivationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ISharedActivation getActivation() {
+        return activation;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public StateTransitionListeners getTransitionListeners() {
+        return transitionListeners;
+    }
+
+    public FeatureGate getFeatureGate() {
+        return featureGate;
+    }
+
+    public ActivationEventPublisher getEvents() {
+        return events;
+    }
+
+    /**
+     * Creates a local reservation of units of the element-pool feature, to be closed before the runtime.
+     */
+    public FeatureReservationPool createReservationPool(final String featureKey) {
+        return sharedBackgroundExecutor != null
+                ? new FeatureReservationPool(activation, featureKey, config.getFeatureReservation(), sharedBackgroundExecutor, events)
+                : new FeatureReservationPool(activation, featureKey, config.getFeatureReservation(), events);
+    }
+
+    public EntitlementCache getEntitlementCache() {
+        return entitlementCache;
+    }
+
+    public LeaseRefreshScheduler getLeaseRefreshScheduler() {
+        return leaseRefreshScheduler;
+    }
+
+    public FeatureUsageRecorder getUsageRecorder() {
+        return usageRecorder;
+    }
+
+    public LockingActivationActionHandler getActionHandler() {
+        return actionHandler;
+    }
+
+    public AsyncActivation getAsyncActivation() {
+        return asyncActivation;
+    }
+
+    /**
+     * @return writer of the memory-mapped activation snapshot, {@code null} when the snapshot is disabled
+     */
+    public ActivationSnapshotWriter getSnapshotWriter() {
+        return snapshotWriter;
+    }
+
+    @Override
+    public void close() throws Exception {
+        asyncActivation.close();
+        leaseRefreshScheduler.close();
+        leaseExpiryTimer.close();
+        if (storageWatch != null) {
+            storageWatch.cancel(false);
+        }
+        if (ownedStorageWatchExecutor != null) {
+            ownedStorageWatchExecutor.shutdownNow();
+        }
+        usageRecorder.close();
+        entitlementCache.close();
+        events.close();
+        if (ownedEventExecutor != null) {
+            ownedEventExecutor.shutdown();
+        }
+        if (snapshotWriter != null) {
+            activation.executeWithLock(a -> {
+                closeSnapshotWriter();
+            });
+        }
+        activation.close();
+        httpClient.close();
+        if (circuitBreakerObjectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(circuitBreakerObjectName);
+            } catch (final JMException exception) {
+                logger.warn("Failed to unregister {}", circuitBreakerObjectName, exception);
+            }
+        }
+    }
+
+    private void publishSnapshot() {
+        try {
+            activation.executeWithLock(a -> {
+                snapshotWriter.publish(a);
+            });
+        } catch (final RuntimeException exception) {
+            logger.warn("Failed to publish the activation snapshot", exception);
+        }
+    }
+
+    private void closeSnapshotWriter() {
+        try {
+            snapshotWriter.close();
+        } catch (final IOException exception) {
+            logger.warn("Failed to close the activation snapshot {}", snapshotWriter.getFile(), exception);
+        }
+    }
+
+    private static ActivationSnapshotWriter openSnapshotWriter(final AppSettings.Snapshot snapshotConfig) {
+        try {
+            return new ActivationSnapshotWriter(snapshotConfig);
+        } catch (final IOException exception) {
+            logger.warn("Failed to open the activation snapshot, readers will use the activation", exception);
+            return null;
+        }
+    }
+
+    private void checkStorage() {
+        try {
+            watchedStorage.checkForExternalChange();
+        } catch (final RuntimeException exception) {
+            logger.warn("Failed to check the activation storage for changes", exception);
+        }
+    }
+
+    private static ObjectName registerCircuitBreaker(final CircuitBreaker circuitBreaker, final String systemLockName) {
+        try {
+            final ObjectName objectName = new ObjectName(CircuitBreakerMXBean.OBJECT_NAME_PREFIX + ObjectName.quote(systemLockName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(circuitBreaker, objectName);
+            return objectName;
+        } catch (final JMException exception) {
+            logger.warn("Failed to register the circuit breaker MXBean", exception);
+            return null;
+        }
+    }
+
+    private static void enableCoreLibraryLogging() {
+        final ZentitleJniLazyLoading zentitleJniLazyLoading = Zentitle2CoreFactory.getZentitleJNI();
+        final String pathToCoreLibLogFile = Paths.get("core-lib-test.log").toString();
+        logger.info("Enabling core library logging to file: {}", pathToCoreLibLogFile);
+        final boolean enabled = zentitleJniLazyLoading.enableLogging(pathToCoreLibLogFile);
+        if (enabled) {
+            logger.info("Core library logging enabled");
+        } else {
+            logger.warn("Failed to enable core library logging");
+        }
+    }
+}
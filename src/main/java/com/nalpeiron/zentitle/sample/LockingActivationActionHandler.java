@@ -2,34 +2,139 @@ package com.nalpeiron.zentitle.sample;
 
 import com.nalpeiron.zentitle.licensingclient.ActivationState;
 import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.sample.metrics.ActivationMetrics;
+import com.nalpeiron.zentitle.sample.metrics.LatencyHistogram;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.Validate;
 
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
+/**
+ * Serializes the actions of all activations sharing a storage in this process, and not those of unrelated ones.
+ * The action lock of the storage is taken first, with the configured timeout, and the shared activation lock
+ * after it. The shared activation lock cannot be waited for with a timeout, an action whose deadline passed while
+ * waiting for it fails instead of running late.
+ */
 public class LockingActivationActionHandler {
-    private static final ReentrantLock lock = new ReentrantLock();
+    // one lock per storage for every handler of the process, so that runtimes sharing a storage are serialized
+    private static final ConcurrentHashMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
 
-    public static boolean lockPullStateAndExecute(Callback callback, IActivation activation) {
-        final ActivationState oldState = activation.getState();
-        boolean result = true;
+    private final String storageId;
+    private final Duration lockTimeout;
+    private final boolean fair;
+    private final ActivationMetrics metrics;
+    private final LatencyHistogram waitTime;
+    private final LatencyHistogram holdTime;
 
-        lock.lock();
-        try {
-            activation.pullPersistedState();
-            if (oldState != activation.getState()) {
-                result = false;
-                return result;
-            }
+    public LockingActivationActionHandler(final String storageId, final AppSettings.Locking settings) {
+        this(storageId, settings, ActivationMetrics.disabled());
+    }
+
+    /**
+     * @param metrics metrics receiving the time spent waiting for the locks and the time they were held
+     */
+    public LockingActivationActionHandler(final String storageId, final AppSettings.Locking settings, final ActivationMetrics metrics) {
+        this(storageId, Duration.ofMillis(settings.getTimeoutMillis()), settings.isFair(), metrics);
+    }
+
+    public LockingActivationActionHandler(final String storageId, final Duration lockTimeout, final boolean fair) {
+        this(storageId, lockTimeout, fair, ActivationMetrics.disabled());
+    }
+
+    private LockingActivationActionHandler(final String storageId, final Duration lockTimeout, final boolean fair,
+                                           final ActivationMetrics metrics) {
+        if (lockTimeout.isNegative()) {
+            throw new IllegalArgumentException("Lock timeout must not be negative");
+        }
+        this.storageId = Validate.notBlank(storageId, "Storage ID must not be blank");
+        this.lockTimeout = lockTimeout;
+        this.fair = fair;
+        this.metrics = Objects.requireNonNull(metrics, "Metrics must not be null");
+        this.waitTime = metrics.lockWaitTime("action");
+        this.holdTime = metrics.lockHoldTime("action");
+    }
 
-            callback.execute(activation);
+    /**
+     * Pulls the persisted state under the locks and executes the callback unless the state changed.
+     *
+     * @return {@code false} when the persisted state differed and the callback was not executed
+     * @throws ActivationLockTimeoutException when the locks were not acquired within the timeout
+     */
+    public boolean lockPullStateAndExecute(final Callback callback, final ISharedActivation activation) {
+        return executeWithLock(activation, a -> {
+            return pullStateAndExecute(callback, a);
+        });
+    }
+
+    /**
+     * Applies the function under the action lock of the storage and the shared activation lock.
+     *
+     * @throws ActivationLockTimeoutException when the locks were not acquired within the timeout
+     */
+    public <T> T executeWithLock(final ISharedActivation activation, final Function<IActivation, T> function) {
+        final long waitStart = System.nanoTime();
+        final long deadline = waitStart + lockTimeout.toNanos();
+        final ReentrantLock lock = locks.computeIfAbsent(storageId, key -> new ReentrantLock(fair));
+        acquire(lock);
+        try {
+            return metrics.executeWithLock(activation, a -> {
+                final long holdStart = System.nanoTime();
+                waitTime.record(holdStart - waitStart);
+                if (holdStart - deadline > 0) {
+                    throw new ActivationLockTimeoutException(storageId, lockTimeout);
+                }
+                try {
+                    return function.apply(a);
+                } finally {
+                    holdTime.recordSince(holdStart);
+                }
+            });
         } finally {
             lock.unlock();
         }
+    }
+
+    /**
+     * Second half of {@link #lockPullStateAndExecute}, for callers already inside {@link #executeWithLock}.
+     */
+    boolean pullStateAndExecute(final Callback callback, final IActivation activation) {
+        final ActivationState oldState = activation.getState();
+        activation.pullPersistedState();
+        if (oldState != activation.getState()) {
+            return false;
+        }
 
-        return result;
+        callback.execute(activation);
+        return true;
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    private void acquire(final ReentrantLock lock) {
+        try {
+            if (!lock.tryLock(lockTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new ActivationLockTimeoutException(storageId, lockTimeout);
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for activation lock of '" + storageId + "'", exception);
+        }
     }
 
     @FunctionalInterface
     public interface Callback {
         void execute(IActivation activation);
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,156 @@
 package com.nalpeiron.zentitle.sample;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nalpeiron.zentitle.sample.batch.BatchRunner;
+import com.nalpeiron.zentitle.sample.daemon.DaemonProgram;
+import com.nalpeiron.zentitle.sample.metrics.MetricsExporter;
+import com.nalpeiron.zentitle.sample.offline.OfflineActivationPipeline;
+import com.nalpeiron.zentitle.sample.metrics.MetricsRegistry;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import com.nalpeiron.zentitle.sample.options.AppSettingsLoader;
+import com.nalpeiron.zentitle.sample.provisioning.BatchSummary;
+import com.nalpeiron.zentitle.sample.provisioning.BulkProvisioner;
+import com.nalpeiron.zentitle.sample.snapshot.ActivationSnapshotReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
 public class Main {
 
     public static void main(final String[] args) throws Exception {
-        final Program program = new Program();
+        if (args.length > 0 && "--daemon".equals(args[0])) {
+            new DaemonProgram().run();
+            return;
+        }
+
+        if (args.length > 0 && "--provision".equals(args[0])) {
+            if (args.length != 3) {
+                System.err.println("Usage: --provision <seats.csv|seats.jsonl> <results.jsonl>");
+                System.exit(2);
+            }
+            final ObjectMapper objectMapper = ObjectMapperFactory.create();
+            final AppSettings config = AppSettingsLoader.load(objectMapper);
+            LicensingRuntime.configureCoreLibrary(config);
+            final MetricsExporter metricsExporter = MetricsExporter.start(config.getMetrics(), MetricsRegistry.getDefault());
+            final BatchSummary summary;
+            try {
+                summary = new BulkProvisioner(config, objectMapper).provision(Paths.get(args[1]), Paths.get(args[2]));
+            } finally {
+                metricsExporter.close();
+            }
+            System.out.println(summary);
+            System.exit(summary.getFailed() == 0 ? 0 : 1);
+        }
+
+        if (args.length > 0 && ("--offline-requests".equals(args[0]) || "--offline-activate".equals(args[0]))) {
+            final boolean generate = "--offline-requests".equals(args[0]);
+            if (args.length != (generate ? 4 : 3)) {
+                System.err.println(generate
+                        ? "Usage: --offline-requests <seats.csv|seats.jsonl> <request-bundle.jsonl> <report.jsonl>"
+                        : "Usage: --offline-activate <response-bundle.jsonl> <report.jsonl>");
+                System.exit(2);
+            }
+            final ObjectMapper objectMapper = ObjectMapperFactory.create();
+            final AppSettings config = AppSettingsLoader.load(objectMapper);
+            LicensingRuntime.configureCoreLibrary(config);
+            final OfflineActivationPipeline pipeline = new OfflineActivationPipeline(config, objectMapper);
+            final BatchSummary summary = generate
+                    ? pipeline.generateRequests(Paths.get(args[1]), Paths.get(args[2]), Paths.get(args[3]))
+                    : pipeline.applyResponses(Paths.get(args[1]), Paths.get(args[2]));
+            System.out.println(summary);
+            System.exit(summary.getFailed() == 0 ? 0 : 1);
+        }
+
+        if (args.length > 0 && "--check-feature".equals(args[0])) {
+            if (args.length != 2) {
+                System.err.println("Usage: --check-feature <feature key>");
+                System.exit(2);
+            }
+            final ObjectMapper objectMapper = ObjectMapperFactory.create();
+            final AppSettings config = AppSettingsLoader.load(objectMapper);
+            final FeatureDecision decision;
+            try (final ActivationSnapshotReader reader = new ActivationSnapshotReader(config.getSnapshot())) {
+                decision = reader.check(args[1], featureKey -> checkWithActivation(config, featureKey));
+            }
+            System.out.println(decision);
+            System.exit(decision.isAllowed() ? 0 : 1);
+        }
+
+        if (args.length > 0 && "--registry-check".equals(args[0])) {
+            if (args.length < 2) {
+                System.err.println("Usage: --registry-check <feature key> [registry entry names, none for all]");
+                System.exit(2);
+            }
+            final ObjectMapper objectMapper = ObjectMapperFactory.create();
+            final AppSettings config = AppSettingsLoader.load(objectMapper);
+            LicensingRuntime.configureCoreLibrary(config);
+            boolean allowed = true;
+            try (final ActivationRegistry registry = new ActivationRegistry(config)) {
+                if (registry.getNames().isEmpty()) {
+                    System.err.println("No 'Registry.Entries' in 'appsettings.json'");
+                    System.exit(2);
+                }
+                final List<String> names = args.length > 2
+                        ? Arrays.asList(args).subList(2, args.length)
+                        : List.copyOf(registry.getNames());
+                for (final String name : names) {
+                    final FeatureDecision decision = registry.get(name).getFeatureGate().check(args[1]);
+                    System.out.println(name + ": " + decision);
+                    allowed &= decision.isAllowed();
+                }
+            }
+            System.exit(allowed ? 0 : 1);
+        }
+
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            if (args.length > 2) {
+                System.err.println("Usage: --batch [commands file, - or none for standard input]");
+                System.exit(2);
+            }
+            final ObjectMapper objectMapper = ObjectMapperFactory.create();
+            final AppSettings config = AppSettingsLoader.load(objectMapper);
+            LicensingRuntime.configureCoreLibrary(config);
+            final int unsuccessful;
+            try (final BufferedReader input = args.length == 1 || "-".equals(args[1])
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Paths.get(args[1]));
+                 final BatchRunner runner = new BatchRunner(config, objectMapper)) {
+                unsuccessful = runner.run(input, new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+            }
+            System.exit(unsuccessful == 0 ? 0 : 1);
+        }
+
+        if (args.length > 0 && "--cds-training".equals(args[0])) {
+            new CdsTrainingRun().run();
+            return;
+        }
+
+        final boolean fastStart = args.length > 0 && "--fast-start".equals(args[0]);
+        final Program program = new Program(fastStart);
         program.run();
     }
-}
\ No newline at end of file
+
+    /**
+     * Full path behind the snapshot: loads the persisted activation under the activation lock.
+     */
+    private static FeatureDecision checkWithActivation(final AppSettings config, final String featureKey) {
+        LicensingRuntime.configureCoreLibrary(config);
+        try (final LicensingRuntime runtime = new LicensingRuntime(config, LicenseStorage.open(config), () -> {
+            throw new IllegalStateException("Checking a feature does not activate");
+        })) {
+            runtime.initialize();
+            return runtime.getFeatureGate().check(featureKey);
+        } catch (final RuntimeException exception) {
+            throw exception;
+        } catch (final Exception exception) {
+            throw new IllegalStateException("Failed to close the licensing runtime", exception);
+        }
+    }
+}
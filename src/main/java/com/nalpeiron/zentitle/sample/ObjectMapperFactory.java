@@ -0,0 +1,65 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.DeserializationProblemHandler;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+
+public class ObjectMapperFactory {
+
+    public static ObjectMapper create() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        JsonMapper.builder().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true);
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        return objectMapper;
+    }
+
+    /**
+     * @return a mapper like {@link #create()} that fails on properties it cannot map, for converting persisted
+     * data between representations without silently dropping renamed or unknown fields. Properties the type
+     * only derives through a getter, like {@code isEmpty()}, are skipped. Dates keep their offset instead of being
+     * adjusted to UTC, so that converted data compares equal to the original.
+     */
+    public static ObjectMapper createStrict() {
+        final ObjectMapper objectMapper = create();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+        objectMapper.configure(DeserializationFeature.ADJUST_DATES_TO_CONTEXT_TIME_ZONE, false);
+        objectMapper.addHandler(new DerivedPropertySkipper());
+        return objectMapper;
+    }
+
+    private static final class DerivedPropertySkipper extends DeserializationProblemHandler {
+        @Override
+        public boolean handleUnknownProperty(final DeserializationContext context, final JsonParser parser,
+                                             final JsonDeserializer<?> deserializer, final Object beanOrClass,
+                                             final String propertyName) throws IOException {
+            final Class<?> type = beanOrClass instanceof Class ? (Class<?>) beanOrClass : beanOrClass.getClass();
+            if (!hasGetter(type, "get", propertyName) && !hasGetter(type, "is", propertyName)) {
+                return false;
+            }
+            parser.skipChildren();
+            return true;
+        }
+
+        private static boolean hasGetter(final Class<?> type, final String prefix, final String propertyName) {
+            try {
+                type.getMethod(prefix + StringUtils.capitalize(propertyName));
+                return true;
+            } catch (final NoSuchMethodException exception) {
+                return false;
+            }
+        }
+    }
+}
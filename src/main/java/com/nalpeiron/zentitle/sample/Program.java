@@ -1,29 +1,16 @@
 package com.nalpeiron.zentitle.sample;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.json.JsonMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.nalpeiron.zentitle.corelib.jni.ZentitleJniLazyLoading;
-import com.nalpeiron.zentitle.licensingclient.ActivationState;
 import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
-import com.nalpeiron.zentitle.licensingclient.SharedActivation;
-import com.nalpeiron.zentitle.licensingclient.SharedActivationExtensions;
-import com.nalpeiron.zentitle.licensingclient.api.model.ActivationMode;
-import com.nalpeiron.zentitle.licensingclient.licensingapi.HttpClientFactory;
-import com.nalpeiron.zentitle.licensingclient.licensingapi.LicensingApiOptions;
-import com.nalpeiron.zentitle.licensingclient.options.*;
-import com.nalpeiron.zentitle.licensingclient.persistence.IPersistence;
-import com.nalpeiron.zentitle.licensingclient.persistence.Persistence;
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
 import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
-import com.nalpeiron.zentitle.licensingclient.services.DateTimeProvider;
 import com.nalpeiron.zentitle.licensingclient.zentitle2core.DeviceFingerprint;
-import com.nalpeiron.zentitle.licensingclient.zentitle2core.Zentitle2CoreFactory;
+import com.nalpeiron.zentitle.sample.events.ActivationEvent;
 import com.nalpeiron.zentitle.sample.gui.Prompt;
+import com.nalpeiron.zentitle.sample.metrics.MetricsExporter;
+import com.nalpeiron.zentitle.sample.metrics.MetricsRegistry;
 import com.nalpeiron.zentitle.sample.options.AppSettings;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import com.nalpeiron.zentitle.sample.options.AppSettingsLoader;
 import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
 import org.jline.terminal.Terminal;
@@ -31,155 +18,203 @@ import org.jline.terminal.TerminalBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.net.URI;
-import java.nio.file.Paths;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 public class Program {
     private static final Logger logger = LoggerFactory.getLogger(Program.class);
-
     private static final String QUIT_ACTION = "Quit";
 
+    private final boolean fastStart;
+    private final StartupTimer startupTimer = new StartupTimer();
+    private final ExecutorService startupExecutor;
+    private final CompletableFuture<AppSettings> settingsFuture;
+    private final CompletableFuture<Void> coreLibraryFuture;
+    private final CompletableFuture<PreloadedStorage> storageFuture;
     private final LicenseStorage storage;
     private final Prompt prompt;
     private final Terminal terminal;
+    private final LineReader lineReader;
     private final DisplayHelper displayHelper;
-    private final ActivationActions activationActionsStatic;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper;
+
+    public Program() throws Exception {
+        this(false);
+    }
+
+    /**
+     * @param fastStart whether to run the independent startup phases concurrently and print their timings,
+     *                  otherwise they run one after another on the calling thread
+     */
+    public Program(final boolean fastStart) throws Exception {
+        this.fastStart = fastStart;
+        startupExecutor = fastStart
+                ? Executors.newFixedThreadPool(3, new NamedThreadFactory("startup"))
+                : null;
+        final Executor executor = fastStart ? startupExecutor : Runnable::run;
+
+        final CompletableFuture<ObjectMapper> objectMapperFuture = CompletableFuture.supplyAsync(
+                timed("object-mapper", ObjectMapperFactory::create), executor);
+        settingsFuture = objectMapperFuture.thenApplyAsync(
+                mapper -> timed("settings", () -> AppSettingsLoader.load(mapper)).get(), executor);
+        // the core library is loaded lazily by ZentitleJniLazyLoading, on first use by the storage or fingerprint,
+        // which must therefore only start once it is configured
+        coreLibraryFuture = settingsFuture.thenAcceptAsync(config -> timed("core-library", () -> {
+            LicensingRuntime.configureCoreLibrary(config);
+            return null;
+        }).get(), executor);
+        storageFuture = settingsFuture.thenCombineAsync(coreLibraryFuture, (config, configured) -> timed("storage-load", () -> {
+            final IActivationStorage licenseStorage = LicenseStorage.open(config);
+            return new PreloadedStorage(licenseStorage, licenseStorage.load());
+        }).get(), executor);
 
-    public Program() throws IOException {
-        terminal = TerminalBuilder.builder()
+        terminal = startupTimer.time("terminal", () -> TerminalBuilder.builder()
                 .dumb(true)
                 .system(true)
-                .build();
-        final LineReader lineReader = LineReaderBuilder.builder()
+                .build());
+        lineReader = LineReaderBuilder.builder()
                 .terminal(terminal)
                 .build();
         prompt = new Prompt(terminal, lineReader);
         displayHelper = new DisplayHelper(terminal);
-        activationActionsStatic = new ActivationActions(terminal, prompt, displayHelper, objectMapper);
+        objectMapper = join(objectMapperFuture);
         storage = new LicenseStorage(terminal, prompt);
-
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        JsonMapper.builder().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true);
-        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
     }
 
     public void run() throws Exception {
-        final File appSettings;
-        if (new File("appsettings.json").exists()) {
-            appSettings = new File("appsettings.json");
-        } else if (new File("src/main/java/com/nalpeiron/zentitle/sample/appsettings.json").exists()) {
-            appSettings = new File("src/main/java/com/nalpeiron/zentitle/sample/appsettings.json");
-        } else {
-            appSettings = new File("samples/src/main/java/com/nalpeiron/zentitle/sample/appsettings.json");
-        }
-        final AppSettings config = objectMapper.readValue(appSettings, AppSettings.class);
-
-        final boolean useCoreLibrary = config.isUseCoreLibrary();
-        if (useCoreLibrary) {
-            logger.warn("- Using Zentitle2Core C++ library for device fingerprint, secure license storage and offline activation operations");
-            final boolean isPrintLibraryLogs = config.isPrintLibraryLogs();
-            if (isPrintLibraryLogs) {
-                enableCoreLibraryLogging();
+        final AppSettings config;
+        final PreloadedStorage preloadedStorage;
+        try {
+            config = join(settingsFuture);
+            join(coreLibraryFuture);
+            preloadedStorage = join(storageFuture);
+        } finally {
+            if (startupExecutor != null) {
+                startupExecutor.shutdown();
             }
-        } else {
-            logger.warn("- Zentitle2Core C++ library usage is disabled in 'appsettings.json', the won't be loaded and offline activation won't work");
         }
 
-        final AppSettings.Licensing licensingOptionsConfig = config.getLicensing();
-        final IActivationStorage licenseStorage = storage.initialize(useCoreLibrary);
-
-        final String licensingUrl = licensingOptionsConfig.getApiUrl();
-        final URI licensingApiUrl = URI.create(licensingUrl);
-        final IPersistence persistence = new Persistence(licenseStorage, new DateTimeProvider());
-        final LicensingApiOptions licensingApiOptions = new LicensingApiOptions(
-                licensingApiUrl,
-                licensingOptionsConfig.getTenantId(),
-                persistence::getAccessToken,
-                persistence::getApiNonce,
-                persistence::setApiNonce);
-        final CloseableHttpClient httpClient = HttpClientFactory.createHttpClient(licensingApiOptions);
-        final OnlineActivationOptions onlineActivationOptions = new OnlineActivationOptions(
-                licensingApiUrl,
-                () -> httpClient);
-        final String tenantRsaKeyModulus = licensingOptionsConfig.getTenantRsaKeyModulus();
-        final OfflineActivationOptions offlineActivationOptions = new OfflineActivationOptions(tenantRsaKeyModulus);
-        final ActivationOptions activationOptions = new ActivationOptions(
-                licensingOptionsConfig.getTenantId(),
-                licensingOptionsConfig.getProductId(),
-                (() -> {
-                    if (useCoreLibrary && prompt.confirm("Use device fingerprint for seat ID generation?")) {
+        final boolean useCoreLibrary = config.isUseCoreLibrary();
+        final MetricsExporter metricsExporter = MetricsExporter.start(config.getMetrics(), MetricsRegistry.getDefault());
+        try (metricsExporter) {
+            final IActivationStorage licenseStorage = storage.initialize(preloadedStorage.storage, preloadedStorage.data);
+            final FingerprintCache fingerprintCache = FingerprintCache.create(config.getFingerprint(), licenseStorage, objectMapper);
+            try (final LicensingRuntime runtime = startupTimer.time("runtime", () -> new LicensingRuntime(config, licenseStorage, () -> {
+                if (useCoreLibrary && prompt.confirm("Use device fingerprint for seat ID generation?")) {
+                    return fingerprintCache.get(() -> {
                         terminal.writer().println("Generating device fingerprint...");
                         terminal.flush();
                         return DeviceFingerprint.generateForCurrentMachine();
-                    }
-                    return prompt.input("Enter license seat ID: ");
-                }),
-                licenseStorage,
-                onlineActivationOptions,
-                offlineActivationOptions);
-        activationOptions.setTransitionToNewStateCallback((oldState, updatedActivation) ->
-                logger.info("Activation state changed from [{}] to [{}]", oldState, updatedActivation.getState()));
-
-        final ActivationLockingOptions activationLockingOptions = new ActivationLockingOptionsBuilder()
-                .useSystemLock("Global-Zentitle.Licensing.Client-SampleApplication")
-                .build();
+                    });
+                }
+                return prompt.input("Enter license seat ID: ");
+            }))) {
+                runMenu(config, runtime);
+            }
+        }
+    }
 
-        final ISharedActivation activation = new SharedActivation(activationOptions, activationLockingOptions, persistence);
+    private void runMenu(final AppSettings config, final LicensingRuntime runtime) throws Exception {
+        final ISharedActivation activation = runtime.getActivation();
+        final FeatureGate featureGate = runtime.getFeatureGate();
+        final ActivationActions activationActionsStatic = new ActivationActions(terminal, prompt, displayHelper, objectMapper,
+                runtime.getEntitlementCache(), runtime.getCircuitBreaker(), runtime.getEvents(), runtime.getUsageRecorder());
+        // printed above the prompt the menu may be waiting at, this runs on an event thread
+        runtime.getEvents().consume(event -> {
+            if (event.getType() == ActivationEvent.Type.LEASE_EXPIRED) {
+                lineReader.printAbove("Activation lease expired at " + event.getLeaseExpiry() + ", refresh the lease to keep using the product");
+            } else if (event.getType() == ActivationEvent.Type.STORAGE_CHANGED) {
+                lineReader.printAbove("Activation was changed by another process");
+            }
+        });
 
         terminal.writer().println("Initializing activation...");
         terminal.flush();
-        SharedActivationExtensions.initializeWithLock(activation);
+        startupTimer.time("activation-initialize", () -> {
+            runtime.start();
+            return null;
+        });
+
+        final RetryingActionExecutor retryingActionExecutor = new RetryingActionExecutor(
+                runtime.getActionHandler(),
+                RetryPolicy.from(config.getConflictRetry()),
+                activationActionsStatic::findAvailableAction,
+                runtime.getMetrics());
 
-        final LineReader lineReader = LineReaderBuilder.builder()
-                .terminal(terminal)
-                .build();
         String selectedOption = null;
+        boolean firstCheck = true;
 
         do {
             final List<String> options = activation.executeWithLock(a -> {
-                final ActivationMode activationMode = a.getInfo().getMode();
-                final ActivationAction[] activationActions = activationActionsStatic.getAvailableActions().get(a.getState());
-                final List<String> opt = Arrays.stream(activationActions)
-                        .filter(action -> action.getAvailableInModes().contains(activationMode))
-                        .map(ActivationAction::getName)
-                        .collect(Collectors.toList());
+                final List<String> actionNames = activationActionsStatic.getDispatchIndex()
+                        .getActionNames(a.getState(), a.getInfo().getMode());
+                final List<String> opt = new ArrayList<>(actionNames.size() + 1);
+                opt.addAll(actionNames);
                 opt.add(QUIT_ACTION);
                 return opt;
             });
+            if (firstCheck) {
+                firstCheck = false;
+                startupTimer.mark("first-license-check");
+                reportStartup();
+            }
 
             prompt.showMenu(options);
             final Integer choice = readInput(lineReader, options);
             if (choice != null) {
                 try {
-                    selectedOption = processInput(options, choice, activation);
+                    selectedOption = processInput(options, choice, activation, retryingActionExecutor);
                 } catch (final Exception exception) {
                     terminal.writer().println("Error: " + exception.getMessage());
                     terminal.flush();
+                } finally {
+                    // actions like checkout and return change feature counts without a state transition
+                    featureGate.invalidate();
                 }
             }
         } while (!QUIT_ACTION.equals(selectedOption));
+    }
 
-        activation.close();
-        httpClient.close();
+    public StartupTimer getStartupTimer() {
+        return startupTimer;
     }
 
-    private void enableCoreLibraryLogging() {
-        final ZentitleJniLazyLoading zentitleJniLazyLoading = Zentitle2CoreFactory.getZentitleJNI();
-        final String pathToCoreLibLogFile = Paths.get("core-lib-test.log").toString();
-        logger.info("Enabling core library logging to file: {}", pathToCoreLibLogFile);
-        final boolean enabled = zentitleJniLazyLoading.enableLogging(pathToCoreLibLogFile);
-        if (enabled) {
-            logger.info("Core library logging enabled");
-        } else {
-            logger.warn("Failed to enable core library logging");
+    private void reportStartup() {
+        final String report = startupTimer.report();
+        logger.debug(report);
+        if (fastStart) {
+            terminal.writer().print(report);
+            terminal.flush();
+        }
+    }
+
+    private <T> Supplier<T> timed(final String name, final StartupTimer.Phase<T> phase) {
+        return () -> {
+            try {
+                return startupTimer.time(name, phase);
+            } catch (final RuntimeException exception) {
+                throw exception;
+            } catch (final Exception exception) {
+                throw new CompletionException(exception);
+            }
+        };
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (final CompletionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw exception;
         }
     }
 
@@ -201,7 +236,8 @@ public class Program {
         return choice;
     }
 
-    private String processInput(final List<String> options, final int choice, final ISharedActivation activation) {
+    private String processInput(final List<String> options, final int choice, final ISharedActivation activation,
+                                final RetryingActionExecutor retryingActionExecutor) {
         final String selectedOption = options.get(choice - 1);
         terminal.writer().println("You selected: " + selectedOption);
         terminal.flush();
@@ -213,25 +249,21 @@ public class Program {
             terminal.writer().println("Performing action for: " + selectedOption);
             terminal.flush();
 
-            activation.executeWithLock(a -> {
-                final ActivationState state = a.getState();
-                final ActivationAction activationAction = Arrays.stream(activationActionsStatic.getAvailableActions().get(state))
-                        .filter(action -> action.getName().equals(selectedOption))
-                        .findFirst()
-                        .orElseThrow(() -> new IllegalStateException("Unknown action: " + selectedOption));
-                final LockingActivationActionHandler.Callback callback = callbackActivation -> {
-                    try {
-                        activationAction.executeAction(callbackActivation);
-                    } catch (final IOException exception) {
-                        throw new IllegalStateException(exception);
-                    }
-                };
-                final boolean result = LockingActivationActionHandler.lockPullStateAndExecute(callback, a);
-                if (!result) {
-                    displayHelper.writeError("Local activation state changed, operation aborted and state refreshed");
-                }
-            });
+            final boolean result = retryingActionExecutor.execute(selectedOption, activation);
+            if (!result) {
+                displayHelper.writeError("Local activation state changed, operation aborted and state refreshed");
+            }
         }
         return selectedOption;
     }
+
+    private static final class PreloadedStorage {
+        private final IActivationStorage storage;
+        private final PersistentData data;
+
+        private PreloadedStorage(final IActivationStorage storage, final PersistentData data) {
+            this.storage = storage;
+            this.data = data;
+        }
+    }
 }
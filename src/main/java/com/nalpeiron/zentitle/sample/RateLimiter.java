@@ -0,0 +1,32 @@
+package com.nalpeiron.zentitle.sample;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out permits evenly so that no more than the configured number is handed out per second.
+ * A rate of zero or less disables the limit.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private long nextPermitNanos = System.nanoTime();
+
+    public RateLimiter(final double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        final long waitNanos;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            final long permitAt = Math.max(now, nextPermitNanos);
+            nextPermitNanos = permitAt + intervalNanos;
+            waitNanos = permitAt - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
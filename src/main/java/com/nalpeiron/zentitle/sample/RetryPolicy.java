@@ -0,0 +1,40 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.Validate;
+
+import java.time.Duration;
+
+public final class RetryPolicy {
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public RetryPolicy(final int maxAttempts, final Duration initialBackoff, final Duration maxBackoff) {
+        Validate.isTrue(maxAttempts > 0, "Max attempts must be positive");
+        Validate.isTrue(!initialBackoff.isNegative() && !maxBackoff.isNegative(), "Backoff must not be negative");
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public static RetryPolicy from(final AppSettings.ConflictRetry settings) {
+        return new RetryPolicy(
+                settings.getMaxAttempts(),
+                Duration.ofMillis(settings.getInitialBackoffMillis()),
+                Duration.ofMillis(settings.getMaxBackoffMillis()));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Exponential backoff with full jitter: a random delay between zero and the exponential bound.
+     *
+     * @param attempt number of the attempt that just failed, starting at 1
+     */
+    public Duration backoff(final int attempt) {
+        return Duration.ofMillis(Backoff.fullJitter(Backoff.exponentialMillis(initialBackoff.toMillis(), maxBackoff.toMillis(), attempt)));
+    }
+}
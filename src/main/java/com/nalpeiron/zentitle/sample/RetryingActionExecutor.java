@@ -0,0 +1,135 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.sample.metrics.ActivationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes activation actions through {@link LockingActivationActionHandler} and automatically re-runs
+ * idempotent actions when the persisted activation state changed under them.
+ * Before every retry the action is resolved again against the refreshed state, so an action that is no
+ * longer available (e.g. checkout after the license got deactivated by another process) is not re-run.
+ */
+public class RetryingActionExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(RetryingActionExecutor.class);
+
+    private final LockingActivationActionHandler actionHandler;
+    private final RetryPolicy retryPolicy;
+    private final ActionResolver actionResolver;
+    private final ActivationMetrics metrics;
+    private final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface ActionResolver {
+        Optional<ActivationAction> resolve(IActivation activation, String actionName);
+    }
+
+    private enum AttemptResult {
+        EXECUTED, CONFLICT, UNAVAILABLE
+    }
+
+    public RetryingActionExecutor(final LockingActivationActionHandler actionHandler, final RetryPolicy retryPolicy,
+                                  final ActionResolver actionResolver) {
+        this(actionHandler, retryPolicy, actionResolver, ActivationMetrics.disabled());
+    }
+
+    public RetryingActionExecutor(final LockingActivationActionHandler actionHandler, final RetryPolicy retryPolicy,
+                                  final ActionResolver actionResolver, final ActivationMetrics metrics) {
+        this.actionHandler = Objects.requireNonNull(actionHandler, "Action handler must not be null");
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "Retry policy must not be null");
+        this.actionResolver = Objects.requireNonNull(actionResolver, "Action resolver must not be null");
+        this.metrics = Objects.requireNonNull(metrics, "Metrics must not be null");
+    }
+
+    /**
+     * @return {@code true} when the action was executed, {@code false} when it was given up because of conflicts
+     * @throws IllegalStateException when the action is not available in the current activation state
+     */
+    public boolean execute(final String actionName, final ISharedActivation activation) {
+        final Statistics actionStatistics = statistics.computeIfAbsent(actionName, name -> new Statistics());
+        for (int attempt = 1; ; attempt++) {
+            final boolean firstAttempt = attempt == 1;
+            final boolean[] idempotent = {false};
+            final AttemptResult result = actionHandler.executeWithLock(activation, a -> {
+                final Optional<ActivationAction> action = actionResolver.resolve(a, actionName);
+                if (action.isEmpty()) {
+                    if (firstAttempt) {
+                        throw new IllegalStateException("Unknown action: " + actionName);
+                    }
+                    return AttemptResult.UNAVAILABLE;
+                }
+                idempotent[0] = action.get().isIdempotent();
+                final boolean executed = actionHandler.pullStateAndExecute(callbackActivation -> {
+                    try {
+                        metrics.executeAction(action.get(), callbackActivation);
+                    } catch (final IOException exception) {
+                        throw new IllegalStateException(exception);
+                    }
+                }, a);
+                return executed ? AttemptResult.EXECUTED : AttemptResult.CONFLICT;
+            });
+
+            if (result == AttemptResult.EXECUTED) {
+                return true;
+            }
+            if (result == AttemptResult.UNAVAILABLE) {
+                logger.info("Action '{}' is no longer available after the activation state changed", actionName);
+                actionStatistics.giveUps.increment();
+                return false;
+            }
+
+            actionStatistics.conflicts.increment();
+            if (!idempotent[0] || attempt >= retryPolicy.getMaxAttempts()) {
+                actionStatistics.giveUps.increment();
+                return false;
+            }
+
+            final Duration backoff = retryPolicy.backoff(attempt);
+            logger.info("Activation state changed during '{}', retrying in {} ms", actionName, backoff.toMillis());
+            sleep(backoff);
+            actionStatistics.retries.increment();
+        }
+    }
+
+    public Map<String, Statistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private static void sleep(final Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry the action", exception);
+        }
+    }
+
+    public static final class Statistics {
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder giveUps = new LongAdder();
+
+        public long getConflicts() {
+            return conflicts.sum();
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public long getGiveUps() {
+            return giveUps.sum();
+        }
+    }
+}
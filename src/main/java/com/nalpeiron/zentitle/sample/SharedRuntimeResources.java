@@ -0,0 +1,46 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.options.OfflineActivationOptions;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Resources that many {@link LicensingRuntime} instances of one process can share instead of creating their own.
+ * The caller creating the resources owns them, runtimes never close them.
+ */
+public class SharedRuntimeResources {
+    private static final SharedRuntimeResources NONE = new SharedRuntimeResources(null, null);
+
+    private final OfflineActivationOptions offlineActivationOptions;
+    private final ScheduledExecutorService backgroundExecutor;
+
+    /**
+     * @param offlineActivationOptions options holding the parsed tenant RSA key, or {@code null} to let each
+     *                                 runtime parse the key from its settings
+     */
+    public SharedRuntimeResources(final OfflineActivationOptions offlineActivationOptions) {
+        this(offlineActivationOptions, null);
+    }
+
+    /**
+     * @param backgroundExecutor executor for the lease refreshes, usage flushes and entitlement refreshes, or
+     *                           {@code null} to let each runtime start its own threads
+     */
+    public SharedRuntimeResources(final OfflineActivationOptions offlineActivationOptions,
+                                  final ScheduledExecutorService backgroundExecutor) {
+        this.offlineActivationOptions = offlineActivationOptions;
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    public static SharedRuntimeResources none() {
+        return NONE;
+    }
+
+    public OfflineActivationOptions getOfflineActivationOptions() {
+        return offlineActivationOptions;
+    }
+
+    public ScheduledExecutorService getBackgroundExecutor() {
+        return backgroundExecutor;
+    }
+}
@@ -0,0 +1,98 @@
+package com.nalpeiron.zentitle.sample;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each startup phase took, relative to the start of the JVM, so that phases run on different
+ * threads can be shown on a single timeline and the time the JVM spent before {@code main} is part of it.
+ */
+public class StartupTimer {
+    private final long originNanos = jvmStartNanos();
+    private final List<PhaseTiming> phases = new ArrayList<>();
+
+    @FunctionalInterface
+    public interface Phase<T> {
+        T run() throws Exception;
+    }
+
+    public <T> T time(final String name, final Phase<T> phase) throws Exception {
+        final long start = System.nanoTime();
+        try {
+            return phase.run();
+        } finally {
+            add(new PhaseTiming(name, Thread.currentThread().getName(), start - originNanos, System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Records a point in time, e.g. the first license check, as a phase of zero duration.
+     */
+    public void mark(final String name) {
+        add(new PhaseTiming(name, Thread.currentThread().getName(), System.nanoTime() - originNanos, 0));
+    }
+
+    public synchronized List<PhaseTiming> getPhases() {
+        final List<PhaseTiming> sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingLong(PhaseTiming::getStartNanos));
+        return sorted;
+    }
+
+    public String report() {
+        final StringBuilder builder = new StringBuilder("Startup phases (start +duration, ms):").append(System.lineSeparator());
+        for (final PhaseTiming phase : getPhases()) {
+            builder.append(String.format("  %8.1f %+8.1f  %-22s [%s]%n",
+                    toMillis(phase.getStartNanos()), toMillis(phase.getDurationNanos()), phase.getName(), phase.getThread()));
+        }
+        return builder.toString();
+    }
+
+    private synchronized void add(final PhaseTiming timing) {
+        phases.add(timing);
+    }
+
+    /**
+     * @return JVM start time on the {@link System#nanoTime()} scale, only as precise as the millisecond start time
+     */
+    private static long jvmStartNanos() {
+        final long sinceStartMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(Math.max(0, sinceStartMillis));
+    }
+
+    private static double toMillis(final long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public static final class PhaseTiming {
+        private final String name;
+        private final String thread;
+        private final long startNanos;
+        private final long durationNanos;
+
+        private PhaseTiming(final String name, final String thread, final long startNanos, final long durationNanos) {
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+    }
+}
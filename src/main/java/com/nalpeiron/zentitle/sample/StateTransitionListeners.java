@@ -0,0 +1,40 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class StateTransitionListeners {
+    private static final Logger logger = LoggerFactory.getLogger(StateTransitionListeners.class);
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @FunctionalInterface
+    public interface Listener {
+        void onTransition(ActivationState oldState, IActivation updatedActivation);
+    }
+
+    public StateTransitionListeners add(final Listener listener) {
+        listeners.add(Objects.requireNonNull(listener, "Listener must not be null"));
+        return this;
+    }
+
+    public void remove(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void notifyTransition(final ActivationState oldState, final IActivation updatedActivation) {
+        for (final Listener listener : listeners) {
+            try {
+                listener.onTransition(oldState, updatedActivation);
+            } catch (final RuntimeException exception) {
+                logger.warn("State transition listener failed", exception);
+            }
+        }
+    }
+}
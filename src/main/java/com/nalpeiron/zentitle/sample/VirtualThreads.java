@@ -0,0 +1,29 @@
+package com.nalpeiron.zentitle.sample;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates thread-per-task executors on virtual threads when the runtime supports them (Java 21+), falling back
+ * to a cached pool of daemon platform threads on the Java 17 baseline of this project.
+ */
+public final class VirtualThreads {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private VirtualThreads() {
+    }
+
+    public static ExecutorService newThreadPerTaskExecutor(final String name) {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (final ReflectiveOperationException exception) {
+            logger.debug("Virtual threads are not available, using platform threads for {}", name);
+            return Executors.newCachedThreadPool(new NamedThreadFactory(name));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.nalpeiron.zentitle.sample.batch;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One line of a batch script: a command name followed by {@code name=value} arguments, e.g.
+ * {@code checkout key=element-pool-feature amount=2}. Values containing spaces are enclosed in double quotes.
+ */
+public final class BatchCommand {
+    private final int lineNumber;
+    private final String name;
+    private final Map<String, String> arguments;
+
+    private BatchCommand(final int lineNumber, final String name, final Map<String, String> arguments) {
+        this.lineNumber = lineNumber;
+        this.name = name;
+        this.arguments = Collections.unmodifiableMap(arguments);
+    }
+
+    /**
+     * @return the command, {@code null} for blank lines and comments starting with {@code #}
+     * @throws IllegalArgumentException when the line is malformed
+     */
+    public static BatchCommand parse(final int lineNumber, final String line) {
+        final String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        final int nameEnd = indexOfWhitespace(trimmed, 0);
+        final String name = trimmed.substring(0, nameEnd);
+        final Map<String, String> arguments = new LinkedHashMap<>();
+        int position = nameEnd;
+        while (true) {
+            while (position < trimmed.length() && Character.isWhitespace(trimmed.charAt(position))) {
+                position++;
+            }
+            if (position == trimmed.length()) {
+                break;
+            }
+            final int separator = trimmed.indexOf('=', position);
+            if (separator < 0 || separator == position || indexOfWhitespace(trimmed, position) < separator) {
+                throw new IllegalArgumentException("Expected name=value at column " + (position + 1));
+            }
+            final String argumentName = trimmed.substring(position, separator);
+            final String value;
+            if (separator + 1 < trimmed.length() && trimmed.charAt(separator + 1) == '"') {
+                final int closingQuote = trimmed.indexOf('"', separator + 2);
+                if (closingQuote < 0) {
+                    throw new IllegalArgumentException("Unterminated quoted value of '" + argumentName + "'");
+                }
+                value = trimmed.substring(separator + 2, closingQuote);
+                position = closingQuote + 1;
+            } else {
+                position = indexOfWhitespace(trimmed, separator + 1);
+                value = trimmed.substring(separator + 1, position);
+            }
+            if (arguments.put(argumentName, value) != null) {
+                throw new IllegalArgumentException("Argument '" + argumentName + "' given twice");
+            }
+        }
+        return new BatchCommand(lineNumber, name, arguments);
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getArguments() {
+        return arguments;
+    }
+
+    public String getArgument(final String argumentName) {
+        return arguments.get(argumentName);
+    }
+
+    private static int indexOfWhitespace(final String text, final int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+}
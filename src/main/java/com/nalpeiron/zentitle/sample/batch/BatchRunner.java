@@ -0,0 +1,274 @@
+package com.nalpeiron.zentitle.sample.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.zentitle2core.DeviceFingerprint;
+import com.nalpeiron.zentitle.sample.ActivationActions;
+import com.nalpeiron.zentitle.sample.FingerprintCache;
+import com.nalpeiron.zentitle.sample.LicenseStorage;
+import com.nalpeiron.zentitle.sample.LicensingRuntime;
+import com.nalpeiron.zentitle.sample.RetryPolicy;
+import com.nalpeiron.zentitle.sample.RetryingActionExecutor;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.TerminalBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs a script of named commands, one per line, against the {@link ActivationActions} of a single licensing
+ * runtime, e.g.
+ * <pre>
+ * activate code=XXXX-XXXX seat=build-agent-7
+ * checkout key=element-pool-feature amount=2
+ * refresh
+ * show
+ * </pre>
+ * The arguments answer the questions the action would ask interactively. For every command one JSON line with
+ * its status, the activation state afterwards and the text the action displayed is written to the output.
+ * <p>
+ * The runtime, storage and actions are set up once, so a script of thousands of commands pays for the startup
+ * only once. Commands run one after another in the calling thread, the lease refresh scheduler and the other
+ * background components of the runtime are not started, a script refreshes the lease with {@code refresh}.
+ */
+public class BatchRunner implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+    private static final String SEAT_ARGUMENT = "seat";
+
+    private static final Map<String, CommandSpec> COMMANDS = Map.ofEntries(
+            Map.entry("activate", new CommandSpec(ActivationActions.ACTIVATE_WITH_CODE, List.of("code", "name"), Set.of("name"))),
+            Map.entry("offline-request", new CommandSpec(ActivationActions.GENERATE_OFFLINE_ACTIVATION_REQUEST,
+                    List.of("code", "name"), Set.of("name"))),
+            Map.entry("activate-offline", new CommandSpec(ActivationActions.ACTIVATE_OFFLINE, List.of("token"), Set.of())),
+            Map.entry("show", new CommandSpec(ActivationActions.SHOW_ACTIVATION_INFO, List.of(), Set.of())),
+            Map.entry("pull", new CommandSpec(ActivationActions.PULL_STATE_FROM_SERVER, List.of(), Set.of())),
+            Map.entry("pull-local", new CommandSpec(ActivationActions.PULL_STATE_FROM_LOCAL_STORAGE, List.of(), Set.of())),
+            Map.entry("refresh", new CommandSpec(ActivationActions.REFRESH_LEASE, List.of(), Set.of())),
+            Map.entry("refresh-offline", new CommandSpec(ActivationActions.REFRESH_OFFLINE_LEASE, List.of("token"), Set.of())),
+            Map.entry("checkout", new CommandSpec(ActivationActions.CHECKOUT_FEATURE, List.of("key", "amount"), Set.of())),
+            Map.entry("return", new CommandSpec(ActivationActions.RETURN_FEATURE, List.of("key", "amount"), Set.of())),
+            Map.entry("track", new CommandSpec(ActivationActions.TRACK_BOOL_FEATURE_USAGE, List.of("key"), Set.of())),
+            Map.entry("entitlement", new CommandSpec(ActivationActions.GET_ENTITLEMENT, List.of(), Set.of())),
+            Map.entry("deactivate", new CommandSpec(ActivationActions.DEACTIVATE, List.of(), Set.of())),
+            Map.entry("deactivate-offline", new CommandSpec(ActivationActions.DEACTIVATE_OFFLINE, List.of(), Set.of()))
+    );
+
+    private final AppSettings.Batch settings;
+    private final ObjectWriter lineWriter;
+    private final ByteArrayOutputStream terminalOutput = new ByteArrayOutputStream();
+    private final Terminal terminal;
+    private final ScriptedPrompt prompt;
+    private final RecordingDisplayHelper displayHelper;
+    private final LicensingRuntime runtime;
+    private final ActivationActions actions;
+    private final RetryingActionExecutor executor;
+    // read by the seat ID supplier only in the thread running the command, never by a background thread
+    private final ThreadLocal<String> commandSeatId = new ThreadLocal<>();
+
+    public BatchRunner(final AppSettings config, final ObjectMapper objectMapper) throws IOException {
+        this.settings = config.getBatch();
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        terminal = TerminalBuilder.builder()
+                .dumb(true)
+                .system(false)
+                .streams(InputStream.nullInputStream(), terminalOutput)
+                .build();
+        prompt = new ScriptedPrompt(terminal);
+        displayHelper = new RecordingDisplayHelper(terminal);
+
+        final IActivationStorage licenseStorage = LicenseStorage.open(config);
+        final FingerprintCache fingerprintCache = FingerprintCache.create(config.getFingerprint(), licenseStorage, objectMapper);
+        final boolean useCoreLibrary = config.isUseCoreLibrary();
+        runtime = new LicensingRuntime(config, licenseStorage, () -> {
+            final String seatId = commandSeatId.get();
+            if (seatId != null) {
+                return seatId;
+            }
+            if (!settings.getSeatId().isBlank()) {
+                return settings.getSeatId();
+            }
+            if (useCoreLibrary) {
+                return fingerprintCache.get(DeviceFingerprint::generateForCurrentMachine);
+            }
+            throw new IllegalStateException("No seat ID, add seat=<id> to the command or set 'Batch.SeatId'");
+        });
+        actions = new ActivationActions(terminal, prompt, displayHelper, objectMapper,
+                runtime.getEntitlementCache(), runtime.getCircuitBreaker(), runtime.getEvents(), runtime.getUsageRecorder());
+        executor = new RetryingActionExecutor(runtime.getActionHandler(), RetryPolicy.from(config.getConflictRetry()),
+                actions::findAvailableAction, runtime.getMetrics());
+        runtime.initialize();
+    }
+
+    /**
+     * Runs the commands read from the input until its end, or until the first unsuccessful one when
+     * 'Batch.StopOnError' is set.
+     *
+     * @return number of commands that did not succeed
+     */
+    public int run(final BufferedReader input, final Writer output) throws IOException {
+        final long started = System.nanoTime();
+        int lineNumber = 0;
+        int commands = 0;
+        int unsuccessful = 0;
+        String line;
+        while ((line = input.readLine()) != null) {
+            lineNumber++;
+            final CommandResult result = execute(lineNumber, line);
+            if (result == null) {
+                continue;
+            }
+            commands++;
+            write(output, result);
+            if (!result.isSuccessful()) {
+                unsuccessful++;
+                if (settings.isStopOnError()) {
+                    logger.info("Stopping at line {} after {} command", lineNumber, result.getStatus());
+                    break;
+                }
+            }
+        }
+        logger.info("Ran {} commands, {} unsuccessful, in {} ms", commands, unsuccessful,
+                (System.nanoTime() - started) / 1_000_000);
+        return unsuccessful;
+    }
+
+    /**
+     * @return {@code null} for blank and comment lines
+     */
+    private CommandResult execute(final int lineNumber, final String line) {
+        final BatchCommand command;
+        try {
+            command = BatchCommand.parse(lineNumber, line);
+        } catch (final IllegalArgumentException exception) {
+            return new CommandResult(lineNumber, null, CommandResult.Status.INVALID, null, null, exception.getMessage(), 0);
+        }
+        return command == null ? null : execute(command);
+    }
+
+    /**
+     * Runs one command, never throws for a failure of the action itself.
+     */
+    public CommandResult execute(final BatchCommand command) {
+        final CommandSpec spec = COMMANDS.get(command.getName());
+        if (spec == null) {
+            return invalid(command, "Unknown command '" + command.getName() + "', expected one of " + COMMANDS.keySet());
+        }
+        final List<String> answers = new ArrayList<>();
+        for (final String argument : spec.arguments) {
+            final String value = command.getArgument(argument);
+            if (value == null && !spec.optionalArguments.contains(argument)) {
+                return invalid(command, "Missing argument '" + argument + "'");
+            }
+            answers.add(value == null ? "" : value);
+        }
+        for (final String argument : command.getArguments().keySet()) {
+            if (!SEAT_ARGUMENT.equals(argument) && !spec.arguments.contains(argument)) {
+                return invalid(command, "Unexpected argument '" + argument + "'");
+            }
+        }
+
+        final ISharedActivation activation = runtime.getActivation();
+        final long started = System.nanoTime();
+        CommandResult.Status status;
+        String error = null;
+        try {
+            final boolean available = activation.executeWithLock(a -> {
+                return actions.findAvailableAction(a, spec.actionName).isPresent();
+            });
+            if (available) {
+                commandSeatId.set(command.getArgument(SEAT_ARGUMENT));
+                prompt.setAnswers(answers);
+                displayHelper.takeError();
+                if (!executor.execute(spec.actionName, activation)) {
+                    status = CommandResult.Status.ABORTED;
+                } else {
+                    // an action giving up early writes an error and returns without asking all its questions
+                    error = displayHelper.takeError();
+                    final List<String> unusedAnswers = prompt.getUnusedAnswers();
+                    if (error != null) {
+                        status = CommandResult.Status.NOT_PERFORMED;
+                    } else if (!unusedAnswers.isEmpty()) {
+                        status = CommandResult.Status.FAILED;
+                        error = "The action did not ask for the arguments " + unusedAnswers;
+                    } else {
+                        status = CommandResult.Status.OK;
+                    }
+                }
+            } else {
+                status = CommandResult.Status.UNAVAILABLE;
+                error = "'" + spec.actionName + "' is not available in the current activation state";
+            }
+        } catch (final RuntimeException exception) {
+            logger.debug("Command at line {} failed", command.getLineNumber(), exception);
+            status = CommandResult.Status.FAILED;
+            error = exception.getMessage() == null ? exception.getClass().getSimpleName() : exception.getMessage();
+        } finally {
+            commandSeatId.remove();
+            // actions like checkout and return change feature counts without a state transition
+            runtime.getFeatureGate().invalidate();
+        }
+        final double durationMillis = (System.nanoTime() - started) / 1_000_000.0;
+        final ActivationState state = activation.executeWithLock(a -> {
+            return a.getState();
+        });
+        return new CommandResult(command.getLineNumber(), command.getName(), status, String.valueOf(state),
+                takeTerminalOutput(), error, durationMillis);
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            runtime.close();
+        } finally {
+            terminal.close();
+        }
+    }
+
+    private void write(final Writer output, final CommandResult result) throws IOException {
+        output.write(lineWriter.writeValueAsString(result));
+        output.write(System.lineSeparator());
+        // flushed per command, so that a consumer of the output sees every result as soon as it is known
+        output.flush();
+    }
+
+    private CommandResult invalid(final BatchCommand command, final String error) {
+        return new CommandResult(command.getLineNumber(), command.getName(), CommandResult.Status.INVALID, null, null, error, 0);
+    }
+
+    private String takeTerminalOutput() {
+        terminal.flush();
+        final String text = terminalOutput.toString(StandardCharsets.UTF_8).strip();
+        terminalOutput.reset();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static final class CommandSpec {
+        private final String actionName;
+        /**
+         * Arguments in the order the action asks for them.
+         */
+        private final List<String> arguments;
+        private final Set<String> optionalArguments;
+
+        private CommandSpec(final String actionName, final List<String> arguments, final Set<String> optionalArguments) {
+            this.actionName = actionName;
+            this.arguments = arguments;
+            this.optionalArguments = optionalArguments;
+        }
+    }
+}
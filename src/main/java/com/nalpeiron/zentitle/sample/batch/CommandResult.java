@@ -0,0 +1,109 @@
+package com.nalpeiron.zentitle.sample.batch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Machine-readable outcome of one batch command, written as one JSON line.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CommandResult {
+
+    public enum Status {
+        /**
+         * The action ran to completion.
+         */
+        OK,
+        /**
+         * The action is not available in the activation state or mode, nothing was done.
+         */
+        UNAVAILABLE,
+        /**
+         * The activation state changed under the action, it was given up.
+         */
+        ABORTED,
+        /**
+         * The command is unknown or its arguments are missing or malformed, nothing was done.
+         */
+        INVALID,
+        /**
+         * The action ran but reported that it did not do what was asked, e.g. because no feature was eligible or
+         * the licensing API was unavailable.
+         */
+        NOT_PERFORMED,
+        FAILED
+    }
+
+    @JsonProperty("line")
+    private int line;
+
+    @JsonProperty("command")
+    private String command;
+
+    @JsonProperty("status")
+    private Status status;
+
+    @JsonProperty("state")
+    private String state;
+
+    @JsonProperty("output")
+    private String output;
+
+    @JsonProperty("error")
+    private String error;
+
+    @JsonProperty("durationMillis")
+    private double durationMillis;
+
+    public CommandResult() {
+    }
+
+    public CommandResult(final int line, final String command, final Status status, final String state,
+                         final String output, final String error, final double durationMillis) {
+        this.line = line;
+        this.command = command;
+        this.status = status;
+        this.state = state;
+        this.output = output;
+        this.error = error;
+        this.durationMillis = durationMillis;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return activation state after the command
+     */
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * @return text the action wrote to the terminal, {@code null} when it wrote nothing
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public double getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean isSuccessful() {
+        return status == Status.OK;
+    }
+}
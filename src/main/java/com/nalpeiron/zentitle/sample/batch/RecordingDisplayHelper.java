@@ -0,0 +1,33 @@
+package com.nalpeiron.zentitle.sample.batch;
+
+import com.nalpeiron.zentitle.sample.DisplayHelper;
+import org.jline.terminal.Terminal;
+
+/**
+ * Display helper remembering the first error an action wrote, so that a batch command whose action gave up
+ * with an error message instead of an exception is not reported as successful.
+ */
+class RecordingDisplayHelper extends DisplayHelper {
+    private String firstError;
+
+    RecordingDisplayHelper(final Terminal terminal) {
+        super(terminal);
+    }
+
+    @Override
+    public void writeError(final String message) {
+        if (firstError == null) {
+            firstError = message;
+        }
+        super.writeError(message);
+    }
+
+    /**
+     * @return the first error written since the previous call, {@code null} when there was none
+     */
+    String takeError() {
+        final String error = firstError;
+        firstError = null;
+        return error;
+    }
+}
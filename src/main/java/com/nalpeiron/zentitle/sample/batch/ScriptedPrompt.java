@@ -0,0 +1,76 @@
+package com.nalpeiron.zentitle.sample.batch;
+
+import com.nalpeiron.zentitle.sample.gui.Prompt;
+import org.jline.terminal.Terminal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Prompt answering the questions of an {@link com.nalpeiron.zentitle.sample.ActivationAction} from the arguments of
+ * a batch command, in the order the action asks them, instead of reading a human's input.
+ */
+class ScriptedPrompt extends Prompt {
+    private final Deque<String> answers = new ArrayDeque<>();
+
+    ScriptedPrompt(final Terminal terminal) {
+        super(terminal, null);
+    }
+
+    void setAnswers(final List<String> nextAnswers) {
+        answers.clear();
+        answers.addAll(nextAnswers);
+    }
+
+    /**
+     * @return answers the action did not ask for, empty when all were used
+     */
+    List<String> getUnusedAnswers() {
+        return List.copyOf(answers);
+    }
+
+    @Override
+    public String select(final String display, final List<String> options) {
+        final String answer = next(display);
+        if (!options.contains(answer)) {
+            throw new IllegalArgumentException("'" + answer + "' is not one of " + options);
+        }
+        return answer;
+    }
+
+    @Override
+    public boolean confirm(final String prompt) {
+        final String answer = next(prompt);
+        if ("yes".equalsIgnoreCase(answer) || "y".equalsIgnoreCase(answer) || "true".equalsIgnoreCase(answer)) {
+            return true;
+        }
+        if ("no".equalsIgnoreCase(answer) || "n".equalsIgnoreCase(answer) || "false".equalsIgnoreCase(answer)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Expected yes or no for '" + prompt.trim() + "', got '" + answer + "'");
+    }
+
+    @Override
+    public String input(final String prompt) {
+        return next(prompt);
+    }
+
+    @Override
+    public int inputInt(final String prompt) {
+        final String answer = next(prompt);
+        try {
+            return Integer.parseInt(answer);
+        } catch (final NumberFormatException exception) {
+            throw new IllegalArgumentException("Expected a number for '" + prompt.trim() + "', got '" + answer + "'");
+        }
+    }
+
+    private String next(final String prompt) {
+        final String answer = answers.poll();
+        if (answer == null) {
+            throw new IllegalStateException("No argument left to answer '" + prompt.trim() + "'");
+        }
+        return answer;
+    }
+}
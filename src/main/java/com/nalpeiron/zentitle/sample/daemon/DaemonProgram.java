@@ -0,0 +1,66 @@
+package com.nalpeiron.zentitle.sample.daemon;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.zentitle2core.DeviceFingerprint;
+import com.nalpeiron.zentitle.sample.FingerprintCache;
+import com.nalpeiron.zentitle.sample.LicenseStorage;
+import com.nalpeiron.zentitle.sample.LicensingRuntime;
+import com.nalpeiron.zentitle.sample.ObjectMapperFactory;
+import com.nalpeiron.zentitle.sample.metrics.MetricsExporter;
+import com.nalpeiron.zentitle.sample.metrics.MetricsRegistry;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import com.nalpeiron.zentitle.sample.options.AppSettingsLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Non-interactive run mode: owns one activation and serves it to local clients until the JVM is shut down.
+ */
+public class DaemonProgram {
+    private static final Logger logger = LoggerFactory.getLogger(DaemonProgram.class);
+
+    public void run() throws Exception {
+        final ObjectMapper objectMapper = ObjectMapperFactory.create();
+        final AppSettings config = AppSettingsLoader.load(objectMapper);
+        final boolean useCoreLibrary = config.isUseCoreLibrary();
+        LicensingRuntime.configureCoreLibrary(config);
+        final MetricsExporter metricsExporter = MetricsExporter.start(config.getMetrics(), MetricsRegistry.getDefault());
+
+        final AppSettings.Daemon daemonConfig = config.getDaemon();
+        final IActivationStorage licenseStorage = LicenseStorage.open(config);
+        final FingerprintCache fingerprintCache = FingerprintCache.create(config.getFingerprint(), licenseStorage, objectMapper);
+        final LicensingRuntime runtime = new LicensingRuntime(config, licenseStorage, () -> {
+            final String seatId = daemonConfig.getSeatId();
+            if (seatId != null && !seatId.trim().isEmpty()) {
+                return seatId;
+            }
+            if (useCoreLibrary) {
+                return fingerprintCache.get(DeviceFingerprint::generateForCurrentMachine);
+            }
+            throw new IllegalStateException("Daemon.SeatId must be configured when the core library is disabled");
+        });
+        runtime.start();
+
+        final LicensingDaemon daemon = new LicensingDaemon(runtime, Paths.get(daemonConfig.getSocketPath()), daemonConfig.getMaxConnections(),
+                config.getFeatureReservation().getFeatureKeys());
+        daemon.start();
+
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+                runtime.close();
+                metricsExporter.close();
+            } catch (final Exception exception) {
+                logger.warn("Failed to stop the licensing daemon cleanly", exception);
+            } finally {
+                stopped.countDown();
+            }
+        }, "licensing-daemon-shutdown"));
+        stopped.await();
+    }
+}
@@ -0,0 +1,131 @@
+package com.nalpeiron.zentitle.sample.daemon;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed binary frames exchanged between {@link LicensingDaemon} and {@link LicensingDaemonClient}.
+ * <pre>
+ * request:  int length | byte opcode | int requestId | payload
+ * response: int length | int requestId | byte status | payload
+ * </pre>
+ * Strings are encoded as unsigned short length followed by UTF-8 bytes, optional numbers as longs with
+ * {@link #NULL_LONG} standing for {@code null}.
+ */
+public final class DaemonProtocol {
+    public static final int MAX_FRAME_SIZE = 64 * 1024;
+    public static final long NULL_LONG = Long.MIN_VALUE;
+    /**
+     * Opcode and request ID, present in every request.
+     */
+    public static final int REQUEST_HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+
+    public static final byte OP_PING = 0;
+    public static final byte OP_STATE = 1;
+    public static final byte OP_CHECK_FEATURE = 2;
+    public static final byte OP_CHECKOUT = 3;
+    public static final byte OP_RETURN = 4;
+    public static final byte OP_TRACK_USAGE = 5;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_REJECTED = 1;
+    public static final byte STATUS_CONFLICT = 2;
+    public static final byte STATUS_ERROR = 3;
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * Reads one frame into the given buffer, which is cleared first and flipped for reading afterwards.
+     *
+     * @return {@code false} when the channel was closed before a new frame started
+     */
+    public static boolean readFrame(final ReadableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.clear().limit(Integer.BYTES);
+        if (!readFully(channel, buffer, true)) {
+            return false;
+        }
+        final int length = buffer.getInt(0);
+        if (length <= 0 || length > MAX_FRAME_SIZE || length > buffer.capacity()) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        buffer.clear().limit(length);
+        readFully(channel, buffer, false);
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * Writes the content of the given buffer (already flipped) as one frame.
+     */
+    public static void writeFrame(final WritableByteChannel channel, final ByteBuffer header, final ByteBuffer body) throws IOException {
+        header.clear();
+        header.putInt(body.remaining()).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        while (body.hasRemaining()) {
+            channel.write(body);
+        }
+    }
+
+    public static void putString(final ByteBuffer buffer, final String value) {
+        final byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for the daemon protocol");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes the string like {@link #putString(ByteBuffer, String)}, cut at a character boundary so that it fits
+     * into the remaining space of the buffer.
+     */
+    public static void putTruncatedString(final ByteBuffer buffer, final String value) {
+        final int lengthPosition = buffer.position();
+        buffer.putShort((short) 0);
+        final ByteBuffer bytes = buffer.slice();
+        bytes.limit(Math.min(bytes.remaining(), 0xFFFF));
+        StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .encode(CharBuffer.wrap(value == null ? "" : value), bytes, true);
+        buffer.putShort(lengthPosition, (short) bytes.position());
+        buffer.position(buffer.position() + bytes.position());
+    }
+
+    public static String getString(final ByteBuffer buffer) {
+        final int length = Short.toUnsignedInt(buffer.getShort());
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void putNullableLong(final ByteBuffer buffer, final Long value) {
+        buffer.putLong(value == null ? NULL_LONG : value);
+    }
+
+    public static Long getNullableLong(final ByteBuffer buffer) {
+        final long value = buffer.getLong();
+        return value == NULL_LONG ? null : value;
+    }
+
+    private static boolean readFully(final ReadableByteChannel channel, final ByteBuffer buffer, final boolean eofAllowed) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (eofAllowed && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Connection closed in the middle of a frame");
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,362 @@
+package com.nalpeiron.zentitle.sample.daemon;
+
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.api.model.ActivationMode;
+import com.nalpeiron.zentitle.sample.FeatureDecision;
+import com.nalpeiron.zentitle.sample.FeatureGate;
+import com.nalpeiron.zentitle.sample.FeatureReservationPool;
+import com.nalpeiron.zentitle.sample.LicensingRuntime;
+import com.nalpeiron.zentitle.sample.NamedThreadFactory;
+import com.nalpeiron.zentitle.sample.events.ActivationEvent;
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Serves feature checks, checkouts/returns, usage tracking and state queries of a single activation to local
+ * processes over a Unix domain socket, see {@link DaemonProtocol} for the wire format.
+ * Feature checks are answered by the {@link FeatureGate} without taking the activation lock.
+ * <p>
+ * Checkouts and returns of the features in 'FeatureReservation.FeatureKeys' are served from a
+ * {@link FeatureReservationPool}, so that the short checkouts of many local processes share a few licensing API
+ * calls. A checkout the reservation cannot serve in full is rejected, a return of more units than the daemon's
+ * clients hold fails.
+ */
+public class LicensingDaemon implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LicensingDaemon.class);
+
+    private final LicensingRuntime runtime;
+    private final Path socketPath;
+    private final Semaphore connectionPermits;
+    private final Set<String> reservedFeatureKeys;
+    private final ConcurrentHashMap<String, FeatureReservationPool> reservationPools = new ConcurrentHashMap<>();
+    private final ExecutorService workers = Executors.newCachedThreadPool(new NamedThreadFactory("licensing-daemon"));
+    private ServerSocketChannel serverChannel;
+    private UserPrincipal owner;
+    private Thread acceptThread;
+    private volatile boolean closed = false;
+
+    public LicensingDaemon(final LicensingRuntime runtime, final Path socketPath, final int maxConnections) {
+        this(runtime, socketPath, maxConnections, List.of());
+    }
+
+    /**
+     * @param reservedFeatureKeys element-pool features whose checkouts are served from a local reservation
+     */
+    public LicensingDaemon(final LicensingRuntime runtime, final Path socketPath, final int maxConnections,
+                           final Collection<String> reservedFeatureKeys) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Max connections must be positive");
+        }
+        this.runtime = runtime;
+        this.socketPath = socketPath;
+        this.connectionPermits = new Semaphore(maxConnections);
+        this.reservedFeatureKeys = Set.copyOf(reservedFeatureKeys);
+    }
+
+    public synchronized void start() throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Daemon already started");
+        }
+        final UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketPath);
+        if (Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)) {
+            if (isListening(address)) {
+                throw new IllegalStateException("Another licensing daemon is already listening on " + socketPath.toAbsolutePath());
+            }
+            // a socket file left behind by a crashed daemon would make the bind fail
+            logger.info("Removing stale daemon socket {}", socketPath.toAbsolutePath());
+            Files.delete(socketPath);
+        }
+        serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            serverChannel.bind(address);
+            restrictToOwner(socketPath);
+        } catch (final IOException | RuntimeException exception) {
+            serverChannel.close();
+            serverChannel = null;
+            throw exception;
+        }
+        owner = Files.getOwner(socketPath, LinkOption.NOFOLLOW_LINKS);
+        acceptThread = new NamedThreadFactory("licensing-daemon-accept").newThread(this::acceptConnections);
+        acceptThread.start();
+        logger.info("Licensing daemon listening on {}", socketPath.toAbsolutePath());
+    }
+
+    public Path getSocketPath() {
+        return socketPath;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        workers.shutdownNow();
+        // returns the unused reserved units, units held by clients stay checked out
+        for (final FeatureReservationPool pool : reservationPools.values()) {
+            pool.close();
+        }
+        // only the socket this daemon bound is removed, never one of another daemon
+        if (serverChannel != null) {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            final SocketChannel client;
+            try {
+                client = serverChannel.accept();
+            } catch (final AsynchronousCloseException exception) {
+                return;
+            } catch (final IOException exception) {
+                logger.warn("Failed to accept daemon connection", exception);
+                continue;
+            }
+
+            if (!isFromOwner(client)) {
+                closeQuietly(client);
+                continue;
+            }
+            if (!connectionPermits.tryAcquire()) {
+                logger.warn("Rejecting daemon connection, connection limit reached");
+                closeQuietly(client);
+                continue;
+            }
+            try {
+                workers.execute(() -> {
+                    try {
+                        serve(client);
+                    } finally {
+                        connectionPermits.release();
+                        closeQuietly(client);
+                    }
+                });
+            } catch (final RejectedExecutionException exception) {
+                // accepted while the daemon is closing
+                connectionPermits.release();
+                closeQuietly(client);
+            }
+        }
+    }
+
+    private void serve(final SocketChannel client) {
+        final ByteBuffer request = ByteBuffer.allocate(DaemonProtocol.MAX_FRAME_SIZE);
+        final ByteBuffer response = ByteBuffer.allocate(DaemonProtocol.MAX_FRAME_SIZE);
+        final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        try {
+            while (!closed && DaemonProtocol.readFrame(client, request)) {
+                if (request.remaining() < DaemonProtocol.REQUEST_HEADER_SIZE) {
+                    // without a request ID there is nothing to answer, the client does not speak the protocol
+                    logger.warn("Closing daemon connection after a {} byte request frame", request.remaining());
+                    return;
+                }
+                final byte opcode = request.get();
+                final int requestId = request.getInt();
+                response.clear();
+                response.putInt(requestId);
+                try {
+                    handle(opcode, request, response);
+                } catch (final RuntimeException exception) {
+                    logger.debug("Daemon request {} failed", opcode, exception);
+                    response.clear();
+                    response.putInt(requestId);
+                    response.put(DaemonProtocol.STATUS_ERROR);
+                    DaemonProtocol.putTruncatedString(response, errorMessage(exception));
+                }
+                response.flip();
+                DaemonProtocol.writeFrame(client, header, response);
+            }
+        } catch (final IOException exception) {
+            if (!closed) {
+                logger.debug("Daemon connection closed", exception);
+            }
+        }
+    }
+
+    private void handle(final byte opcode, final ByteBuffer request, final ByteBuffer response) {
+        switch (opcode) {
+            case DaemonProtocol.OP_PING:
+                response.put(DaemonProtocol.STATUS_OK);
+                break;
+            case DaemonProtocol.OP_STATE:
+                writeState(response);
+                break;
+            case DaemonProtocol.OP_CHECK_FEATURE:
+                writeFeatureDecision(runtime.getFeatureGate().check(DaemonProtocol.getString(request)), response);
+                break;
+            case DaemonProtocol.OP_CHECKOUT:
+            case DaemonProtocol.OP_RETURN:
+                changeFeatureAmount(opcode == DaemonProtocol.OP_CHECKOUT, DaemonProtocol.getString(request), request.getInt(), response);
+                break;
+            case DaemonProtocol.OP_TRACK_USAGE:
+                final boolean recorded = runtime.getUsageRecorder().record(DaemonProtocol.getString(request));
+                response.put(recorded ? DaemonProtocol.STATUS_OK : DaemonProtocol.STATUS_REJECTED);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown opcode: " + opcode);
+        }
+    }
+
+    private static String errorMessage(final RuntimeException exception) {
+        if (exception instanceof BufferUnderflowException) {
+            return "Malformed request payload";
+        }
+        return exception.getMessage() == null ? exception.getClass().getSimpleName() : exception.getMessage();
+    }
+
+    private void writeState(final ByteBuffer response) {
+        final ISharedActivation activation = runtime.getActivation();
+        final String[] state = new String[2];
+        final OffsetDateTime leaseExpiry = activation.executeWithLock(a -> {
+            final ActivationMode mode = a.getInfo().getMode();
+            state[0] = a.getState().name();
+            state[1] = mode == null ? "" : mode.name();
+            return a.getInfo().getLeaseExpiry();
+        });
+        response.put(DaemonProtocol.STATUS_OK);
+        DaemonProtocol.putString(response, state[0]);
+        DaemonProtocol.putString(response, state[1]);
+        DaemonProtocol.putNullableLong(response, leaseExpiry == null ? null : leaseExpiry.toInstant().toEpochMilli());
+    }
+
+    private static void writeFeatureDecision(final FeatureDecision decision, final ByteBuffer response) {
+        response.put(DaemonProtocol.STATUS_OK);
+        response.put((byte) (decision.isAllowed() ? 1 : 0));
+        DaemonProtocol.putString(response, decision.getType() == null ? "" : decision.getType().name());
+        DaemonProtocol.putNullableLong(response, decision.getActive());
+        DaemonProtocol.putNullableLong(response, decision.getAvailable());
+        DaemonProtocol.putNullableLong(response, decision.getTotal());
+    }
+
+    private void changeFeatureAmount(final boolean checkout, final String featureKey, final int amount, final ByteBuffer response) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (reservedFeatureKeys.contains(featureKey)) {
+            final FeatureReservationPool pool = reservationPools.computeIfAbsent(featureKey, runtime::createReservationPool);
+            boolean changed = true;
+            if (checkout) {
+                changed = acquire(pool, amount);
+            } else {
+                release(pool, amount);
+            }
+            // the reservation checks out and returns units without a state transition
+            runtime.getFeatureGate().invalidate();
+            response.put(changed ? DaemonProtocol.STATUS_OK : DaemonProtocol.STATUS_REJECTED);
+            return;
+        }
+        final boolean executed = runtime.getActionHandler().lockPullStateAndExecute(callbackActivation -> {
+            final IActivationFeature feature = callbackActivation.getFeatures().tryGet(featureKey)
+                    .orElseThrow(() -> new IllegalStateException("Feature with key '" + featureKey + "' not found"));
+            if (checkout) {
+                callbackActivation.checkoutFeature(feature, amount);
+            } else {
+                callbackActivation.returnFeature(feature, amount);
+            }
+        }, runtime.getActivation());
+        if (executed) {
+            runtime.getEvents().publish(checkout
+                    ? ActivationEvent.featureCheckedOut(featureKey, amount)
+                    : ActivationEvent.featureReturned(featureKey, amount));
+        }
+        // feature counts changed without a state transition
+        runtime.getFeatureGate().invalidate();
+        response.put(executed ? DaemonProtocol.STATUS_OK : DaemonProtocol.STATUS_CONFLICT);
+    }
+
+    private static boolean acquire(final FeatureReservationPool pool, final int amount) {
+        for (int acquired = 0; acquired < amount; acquired++) {
+            if (!pool.tryAcquire()) {
+                for (int i = 0; i < acquired; i++) {
+                    pool.release();
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void release(final FeatureReservationPool pool, final int amount) {
+        if (pool.getUnitsInUse() < amount) {
+            throw new IllegalStateException("Only " + pool.getUnitsInUse() + " units of feature '" + pool.getFeatureKey()
+                    + "' are checked out through the daemon");
+        }
+        for (int i = 0; i < amount; i++) {
+            pool.release();
+        }
+    }
+
+    /**
+     * Rejects processes of other users, in addition to the owner-only permissions of the socket file, where the
+     * platform reports the peer credentials.
+     */
+    private boolean isFromOwner(final SocketChannel client) {
+        if (!client.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+            return true;
+        }
+        try {
+            final UnixDomainPrincipal peer = client.getOption(ExtendedSocketOptions.SO_PEERCRED);
+            if (peer.user().getName().equals(owner.getName())) {
+                return true;
+            }
+            logger.warn("Rejecting daemon connection of user '{}'", peer.user().getName());
+        } catch (final IOException exception) {
+            logger.warn("Rejecting daemon connection, its user cannot be determined", exception);
+        }
+        return false;
+    }
+
+    private static boolean isListening(final UnixDomainSocketAddress address) throws IOException {
+        try (final SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            probe.connect(address);
+            return true;
+        } catch (final ConnectException exception) {
+            return false;
+        }
+    }
+
+    private static void restrictToOwner(final Path file) throws IOException {
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            logger.warn("Cannot restrict the permissions of the daemon socket {} on this file system", file.toAbsolutePath());
+            return;
+        }
+        Files.setPosixFilePermissions(file, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+    }
+
+    private static void closeQuietly(final SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (final IOException exception) {
+            // nothing to do, the connection is gone anyway
+        }
+    }
+}
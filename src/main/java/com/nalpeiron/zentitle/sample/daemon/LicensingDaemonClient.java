@@ -0,0 +1,145 @@
+package com.nalpeiron.zentitle.sample.daemon;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.api.model.ActivationMode;
+import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
+import com.nalpeiron.zentitle.sample.FeatureDecision;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Blocking client of the {@link LicensingDaemon}. Instances are thread-safe, requests are sent one at a time
+ * over a single connection; use one client per thread for parallel requests.
+ */
+public class LicensingDaemonClient implements AutoCloseable {
+    private final SocketChannel channel;
+    private final ByteBuffer request = ByteBuffer.allocate(DaemonProtocol.MAX_FRAME_SIZE);
+    private final ByteBuffer response = ByteBuffer.allocate(DaemonProtocol.MAX_FRAME_SIZE);
+    private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    private int nextRequestId = 0;
+
+    public LicensingDaemonClient(final Path socketPath) throws IOException {
+        channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(socketPath));
+    }
+
+    public synchronized void ping() throws IOException {
+        begin(DaemonProtocol.OP_PING);
+        exchange();
+    }
+
+    public synchronized ActivationStatus getStatus() throws IOException {
+        begin(DaemonProtocol.OP_STATE);
+        exchange();
+        final ActivationState state = ActivationState.valueOf(DaemonProtocol.getString(response));
+        final String mode = DaemonProtocol.getString(response);
+        final Long leaseExpiry = DaemonProtocol.getNullableLong(response);
+        return new ActivationStatus(
+                state,
+                mode.isEmpty() ? null : ActivationMode.valueOf(mode),
+                leaseExpiry == null ? null : Instant.ofEpochMilli(leaseExpiry));
+    }
+
+    public synchronized FeatureDecision checkFeature(final String featureKey) throws IOException {
+        begin(DaemonProtocol.OP_CHECK_FEATURE);
+        DaemonProtocol.putString(request, featureKey);
+        exchange();
+        final boolean allowed = response.get() == 1;
+        final String type = DaemonProtocol.getString(response);
+        return FeatureDecision.create(
+                featureKey,
+                allowed,
+                type.isEmpty() ? null : FeatureType.valueOf(type),
+                DaemonProtocol.getNullableLong(response),
+                DaemonProtocol.getNullableLong(response),
+                DaemonProtocol.getNullableLong(response));
+    }
+
+    /**
+     * @return {@code false} when the activation state changed under the request and it was not executed
+     */
+    public synchronized boolean checkoutFeature(final String featureKey, final int amount) throws IOException {
+        return changeFeatureAmount(DaemonProtocol.OP_CHECKOUT, featureKey, amount);
+    }
+
+    /**
+     * @return {@code false} when the activation state changed under the request and it was not executed
+     */
+    public synchronized boolean returnFeature(final String featureKey, final int amount) throws IOException {
+        return changeFeatureAmount(DaemonProtocol.OP_RETURN, featureKey, amount);
+    }
+
+    /**
+     * @return {@code false} when the daemon dropped the usage because its usage queue is full
+     */
+    public synchronized boolean trackFeatureUsage(final String featureKey) throws IOException {
+        begin(DaemonProtocol.OP_TRACK_USAGE);
+        DaemonProtocol.putString(request, featureKey);
+        return exchange() == DaemonProtocol.STATUS_OK;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean changeFeatureAmount(final byte opcode, final String featureKey, final int amount) throws IOException {
+        begin(opcode);
+        DaemonProtocol.putString(request, featureKey);
+        request.putInt(amount);
+        return exchange() == DaemonProtocol.STATUS_OK;
+    }
+
+    private void begin(final byte opcode) {
+        request.clear();
+        request.put(opcode);
+        request.putInt(++nextRequestId);
+    }
+
+    private byte exchange() throws IOException {
+        request.flip();
+        DaemonProtocol.writeFrame(channel, header, request);
+        if (!DaemonProtocol.readFrame(channel, response)) {
+            throw new IOException("Licensing daemon closed the connection");
+        }
+        final int requestId = response.getInt();
+        if (requestId != nextRequestId) {
+            throw new IOException("Unexpected response " + requestId + " for request " + nextRequestId);
+        }
+        final byte status = response.get();
+        if (status == DaemonProtocol.STATUS_ERROR) {
+            throw new IOException("Licensing daemon error: " + DaemonProtocol.getString(response));
+        }
+        return status;
+    }
+
+    public static final class ActivationStatus {
+        private final ActivationState state;
+        private final ActivationMode mode;
+        private final Instant leaseExpiry;
+
+        private ActivationStatus(final ActivationState state, final ActivationMode mode, final Instant leaseExpiry) {
+            this.state = state;
+            this.mode = mode;
+            this.leaseExpiry = leaseExpiry;
+        }
+
+        public ActivationState getState() {
+            return state;
+        }
+
+        public ActivationMode getMode() {
+            return mode;
+        }
+
+        public Instant getLeaseExpiry() {
+            return leaseExpiry;
+        }
+    }
+}
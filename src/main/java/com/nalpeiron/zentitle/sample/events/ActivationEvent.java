@@ -0,0 +1,113 @@
+package com.nalpeiron.zentitle.sample.events;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+/**
+ * Change of the activation, published by {@link ActivationEventPublisher}. Fields that do not apply to the event
+ * type are {@code null}.
+ */
+public final class ActivationEvent {
+    public enum Type {
+        STATE_CHANGED,
+        LEASE_RENEWED,
+        /**
+         * The lease expiry of the activation passed without a renewal, published once per expiry when it passes,
+         * see {@link com.nalpeiron.zentitle.sample.LeaseExpiryTimer}.
+         */
+        LEASE_EXPIRED,
+        FEATURE_CHECKED_OUT,
+        FEATURE_RETURNED,
+        /**
+         * The persisted activation was changed by another process.
+         */
+        STORAGE_CHANGED
+    }
+
+    private final Type type;
+    private final Instant timestamp;
+    private final ActivationState oldState;
+    private final ActivationState newState;
+    private final OffsetDateTime leaseExpiry;
+    private final String featureKey;
+    private final Long amount;
+
+    private ActivationEvent(final Type type, final ActivationState oldState, final ActivationState newState,
+                            final OffsetDateTime leaseExpiry, final String featureKey, final Long amount) {
+        this.type = type;
+        this.timestamp = Instant.now();
+        this.oldState = oldState;
+        this.newState = newState;
+        this.leaseExpiry = leaseExpiry;
+        this.featureKey = featureKey;
+        this.amount = amount;
+    }
+
+    public static ActivationEvent stateChanged(final ActivationState oldState, final ActivationState newState,
+                                               final OffsetDateTime leaseExpiry) {
+        return new ActivationEvent(Type.STATE_CHANGED, oldState, newState, leaseExpiry, null, null);
+    }
+
+    public static ActivationEvent leaseRenewed(final OffsetDateTime leaseExpiry) {
+        return new ActivationEvent(Type.LEASE_RENEWED, null, null, leaseExpiry, null, null);
+    }
+
+    public static ActivationEvent leaseExpired(final OffsetDateTime leaseExpiry) {
+        return new ActivationEvent(Type.LEASE_EXPIRED, null, null, leaseExpiry, null, null);
+    }
+
+    public static ActivationEvent featureCheckedOut(final String featureKey, final long amount) {
+        return new ActivationEvent(Type.FEATURE_CHECKED_OUT, null, null, null, featureKey, amount);
+    }
+
+    public static ActivationEvent featureReturned(final String featureKey, final long amount) {
+        return new ActivationEvent(Type.FEATURE_RETURNED, null, null, null, featureKey, amount);
+    }
+
+    public static ActivationEvent storageChanged() {
+        return new ActivationEvent(Type.STORAGE_CHANGED, null, null, null, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public ActivationState getOldState() {
+        return oldState;
+    }
+
+    public ActivationState getNewState() {
+        return newState;
+    }
+
+    public OffsetDateTime getLeaseExpiry() {
+        return leaseExpiry;
+    }
+
+    public String getFeatureKey() {
+        return featureKey;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return "ActivationEvent{" +
+                "type=" + type +
+                ", timestamp=" + timestamp +
+                ", oldState=" + oldState +
+                ", newState=" + newState +
+                ", leaseExpiry=" + leaseExpiry +
+                ", featureKey='" + featureKey + '\'' +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,90 @@
+package com.nalpeiron.zentitle.sample.events;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Publishes {@link ActivationEvent}s to any number of subscribers, so that components can react to activation
+ * changes without polling the activation state under its lock.
+ * <p>
+ * Every subscriber gets its own buffer of bounded capacity and receives events only as requested through its
+ * subscription. Publishing never blocks, because events are published from within the activation lock: an event
+ * that does not fit into the buffer of a slow subscriber is dropped for that subscriber and counted.
+ */
+public class ActivationEventPublisher implements Flow.Publisher<ActivationEvent>, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ActivationEventPublisher.class);
+
+    private final SubmissionPublisher<ActivationEvent> publisher;
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    /**
+     * @param executor       executor delivering the events to the subscribers
+     * @param bufferCapacity maximum number of undelivered events per subscriber, rounded up to a power of two
+     */
+    public ActivationEventPublisher(final Executor executor, final int bufferCapacity) {
+        Validate.isTrue(bufferCapacity > 0, "Buffer capacity must be positive");
+        publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ActivationEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Subscribes a consumer requesting events one at a time.
+     *
+     * @return future completed when the publisher is closed or the consumer throws
+     */
+    public CompletableFuture<Void> consume(final Consumer<? super ActivationEvent> consumer) {
+        return publisher.consume(consumer);
+    }
+
+    public void publish(final ActivationEvent event) {
+        try {
+            publisher.offer(event, (subscriber, dropped) -> {
+                droppedEvents.increment();
+                logger.debug("Dropped {} for a subscriber with a full buffer", dropped.getType());
+                return false;
+            });
+            publishedEvents.increment();
+        } catch (final IllegalStateException exception) {
+            // closed, the runtime is shutting down
+        }
+    }
+
+    public void onStateTransition(final ActivationState oldState, final IActivation updatedActivation) {
+        publish(ActivationEvent.stateChanged(oldState, updatedActivation.getState(), updatedActivation.getInfo().getLeaseExpiry()));
+    }
+
+    public int getSubscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    public long getPublishedEvents() {
+        return publishedEvents.sum();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Completes all subscriptions once their buffered events have been delivered.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
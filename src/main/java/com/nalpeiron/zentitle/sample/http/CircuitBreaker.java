@@ -0,0 +1,208 @@
+package com.nalpeiron.zentitle.sample.http;
+
+import com.nalpeiron.zentitle.sample.metrics.MetricsRegistry;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.Validate;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Stops calling the licensing API after a number of consecutive failures, so that callers fail fast instead of
+ * waiting for the HTTP timeout on every call. After the open period a limited number of probe calls is let
+ * through, the first successful probe closes the breaker again and a failed one reopens it.
+ */
+public class CircuitBreaker implements CircuitBreakerMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+    static final String TRANSITIONS = "zentitle_circuit_breaker_transitions_total";
+    static final String REJECTED = "zentitle_circuit_breaker_rejected_calls_total";
+
+    public enum State {
+        /**
+         * Calls reach the API, failures are counted.
+         */
+        CLOSED,
+        /**
+         * Calls are rejected without reaching the API.
+         */
+        OPEN,
+        /**
+         * A limited number of probe calls reach the API to detect its recovery.
+         */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final int halfOpenProbes;
+    private final MetricsRegistry registry;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private int probesInFlight = 0;
+    private Instant openedAt = null;
+    private long rejectedCalls = 0;
+    private long transitions = 0;
+
+    /**
+     * @param registry registry receiving the transition and rejection counters, {@code null} to not record them
+     */
+    public CircuitBreaker(final String name, final AppSettings.CircuitBreaker settings, final MetricsRegistry registry) {
+        this(name, settings, registry, Clock.systemUTC());
+    }
+
+    public CircuitBreaker(final String name, final AppSettings.CircuitBreaker settings, final MetricsRegistry registry, final Clock clock) {
+        this.name = Validate.notBlank(name, "Name must not be blank");
+        Validate.isTrue(settings.getFailureThreshold() > 0, "FailureThreshold must be positive");
+        Validate.isTrue(settings.getHalfOpenProbes() > 0, "HalfOpenProbes must be positive");
+        this.failureThreshold = settings.getFailureThreshold();
+        this.openDuration = Duration.ofSeconds(Math.max(0, settings.getOpenSeconds()));
+        this.halfOpenProbes = settings.getHalfOpenProbes();
+        this.registry = registry;
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+    }
+
+    /**
+     * Wraps the client so that its calls go through this breaker.
+     */
+    public CloseableHttpClient protect(final CloseableHttpClient httpClient) {
+        return new CircuitBreakingHttpClient(httpClient, this);
+    }
+
+    /**
+     * Reserves a call. Every permitted call must be followed by {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return {@code false} when the call must be rejected without reaching the API
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+                reject();
+                return false;
+            }
+            // probes of an earlier half-open period that completed while open were never counted down
+            probesInFlight = 0;
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                reject();
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+        // calls permitted before the breaker opened change nothing once it is open
+    }
+
+    /**
+     * Same check as {@link #tryAcquire()} without reserving a call, for callers choosing between the API and a
+     * local fallback.
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (state) {
+            case OPEN:
+                return !clock.instant().isBefore(openedAt.plus(openDuration));
+            case HALF_OPEN:
+                return probesInFlight < halfOpenProbes;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return time until probe calls are let through, zero when the breaker is not open
+     */
+    public synchronized Duration getRemainingOpenTime() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        final Duration remaining = Duration.between(clock.instant(), openedAt.plus(openDuration));
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized State getState() {
+        return state;
+    }
+
+    @Override
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    @Override
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    @Override
+    public synchronized long getTransitions() {
+        return transitions;
+    }
+
+    @Override
+    public synchronized long getRemainingOpenSeconds() {
+        return getRemainingOpenTime().toSeconds();
+    }
+
+    private void open() {
+        openedAt = clock.instant();
+        transitionTo(State.OPEN);
+    }
+
+    private void reject() {
+        rejectedCalls++;
+        if (registry != null) {
+            registry.counter(REJECTED, "breaker", name).increment();
+        }
+    }
+
+    private void transitionTo(final State newState) {
+        if (state == newState) {
+            return;
+        }
+        final State oldState = state;
+        state = newState;
+        transitions++;
+        if (registry != null) {
+            registry.counter(TRANSITIONS, "breaker", name, "from", oldState.name(), "to", newState.name()).increment();
+        }
+        if (newState == State.OPEN) {
+            logger.warn("Licensing API circuit '{}' opened after {} consecutive failures, calls fail fast for {} s",
+                    name, consecutiveFailures, openDuration.toSeconds());
+        } else {
+            logger.info("Licensing API circuit '{}' changed from [{}] to [{}]", name, oldState, newState);
+        }
+    }
+}
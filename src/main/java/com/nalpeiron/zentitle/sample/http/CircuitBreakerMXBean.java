@@ -0,0 +1,17 @@
+package com.nalpeiron.zentitle.sample.http;
+
+public interface CircuitBreakerMXBean {
+    String OBJECT_NAME_PREFIX = "com.nalpeiron.zentitle.sample:type=CircuitBreaker,name=";
+
+    String getName();
+
+    CircuitBreaker.State getState();
+
+    int getConsecutiveFailures();
+
+    long getRejectedCalls();
+
+    long getTransitions();
+
+    long getRemainingOpenSeconds();
+}
@@ -0,0 +1,57 @@
+package com.nalpeiron.zentitle.sample.http;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Client decorator routing every licensing API call through a {@link CircuitBreaker}. I/O errors and server
+ * errors count as failures, any other response proves that the API is reachable.
+ */
+class CircuitBreakingHttpClient extends CloseableHttpClient {
+    private final CloseableHttpClient delegate;
+    private final CircuitBreaker circuitBreaker;
+
+    CircuitBreakingHttpClient(final CloseableHttpClient delegate, final CircuitBreaker circuitBreaker) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate must not be null");
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "Circuit breaker must not be null");
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(final HttpHost target, final ClassicHttpRequest request,
+                                              final HttpContext context) throws IOException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CircuitOpenException(circuitBreaker.getName(), circuitBreaker.getRemainingOpenTime());
+        }
+
+        final CloseableHttpResponse response;
+        try {
+            response = delegate.execute(target, request, context);
+        } catch (final IOException | RuntimeException exception) {
+            circuitBreaker.onFailure();
+            throw exception;
+        }
+        if (response.getCode() >= 500) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        return response;
+    }
+
+    @Override
+    public void close(final CloseMode closeMode) {
+        delegate.close(closeMode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
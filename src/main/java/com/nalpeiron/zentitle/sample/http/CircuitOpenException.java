@@ -0,0 +1,14 @@
+package com.nalpeiron.zentitle.sample.http;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Thrown instead of calling the licensing API while its circuit breaker is open. It is an {@link IOException} so
+ * that the licensing client handles it like any other unreachable API.
+ */
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException(final String name, final Duration remainingOpenTime) {
+        super("Licensing API circuit '" + name + "' is open, calls are rejected for the next " + remainingOpenTime.toSeconds() + " s");
+    }
+}
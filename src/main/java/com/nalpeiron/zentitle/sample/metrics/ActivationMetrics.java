@@ -0,0 +1,108 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.sample.ActivationAction;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Instrumentation points of one licensing runtime. When metrics are disabled every method falls through to
+ * the uninstrumented call, so callers do not need to check.
+ */
+public class ActivationMetrics {
+    static final String ACTION_DURATION = "zentitle_action_duration_seconds";
+    static final String ACTION_FAILURES = "zentitle_action_failures_total";
+    static final String LOCK_WAIT = "zentitle_activation_lock_wait_seconds";
+    static final String LOCK_HOLD = "zentitle_activation_lock_hold_seconds";
+    static final String TRANSITIONS = "zentitle_state_transitions_total";
+
+    private static final ActivationMetrics DISABLED = new ActivationMetrics(null);
+
+    private final MetricsRegistry registry;
+    private final ConcurrentMap<String, LatencyHistogram> actionTimers = new ConcurrentHashMap<>();
+    private final LatencyHistogram sharedLockWaitTime;
+    private final LatencyHistogram sharedLockHoldTime;
+
+    public ActivationMetrics(final MetricsRegistry registry) {
+        this.registry = registry;
+        sharedLockWaitTime = lockWaitTime("shared");
+        sharedLockHoldTime = lockHoldTime("shared");
+    }
+
+    public static ActivationMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return registry != null;
+    }
+
+    public IActivationStorage instrument(final IActivationStorage storage) {
+        return isEnabled() ? new InstrumentedActivationStorage(storage, registry) : storage;
+    }
+
+    public CloseableHttpClient instrument(final CloseableHttpClient httpClient) {
+        return isEnabled() ? new InstrumentedHttpClient(httpClient, registry) : httpClient;
+    }
+
+    /**
+     * Histogram for the wait time of the given lock, or a detached one when metrics are disabled.
+     */
+    public LatencyHistogram lockWaitTime(final String lock) {
+        return isEnabled() ? registry.timer(LOCK_WAIT, "lock", lock) : new LatencyHistogram();
+    }
+
+    public LatencyHistogram lockHoldTime(final String lock) {
+        return isEnabled() ? registry.timer(LOCK_HOLD, "lock", lock) : new LatencyHistogram();
+    }
+
+    /**
+     * {@link ISharedActivation#executeWithLock(Function)} recording how long the caller waited for the shared
+     * activation lock and how long it was held.
+     */
+    public <T> T executeWithLock(final ISharedActivation activation, final Function<IActivation, T> function) {
+        if (!isEnabled()) {
+            return activation.executeWithLock(function);
+        }
+        final long waitStart = System.nanoTime();
+        return activation.executeWithLock(a -> {
+            final long holdStart = System.nanoTime();
+            sharedLockWaitTime.record(holdStart - waitStart);
+            try {
+                return function.apply(a);
+            } finally {
+                sharedLockHoldTime.recordSince(holdStart);
+            }
+        });
+    }
+
+    public void executeAction(final ActivationAction action, final IActivation activation) throws IOException {
+        if (!isEnabled()) {
+            action.executeAction(activation);
+            return;
+        }
+        final String name = action.getName();
+        final long start = System.nanoTime();
+        try {
+            action.executeAction(activation);
+        } catch (final IOException | RuntimeException exception) {
+            registry.counter(ACTION_FAILURES, "action", name).increment();
+            throw exception;
+        } finally {
+            actionTimers.computeIfAbsent(name, key -> registry.timer(ACTION_DURATION, "action", key)).recordSince(start);
+        }
+    }
+
+    public void onStateTransition(final ActivationState oldState, final IActivation activation) {
+        if (isEnabled()) {
+            registry.counter(TRANSITIONS, "from", String.valueOf(oldState), "to", String.valueOf(activation.getState())).increment();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+
+import java.util.Objects;
+
+/**
+ * Storage decorator recording the latency of every load, save and clear.
+ */
+public class InstrumentedActivationStorage implements IActivationStorage {
+    static final String DURATION = "zentitle_storage_operation_duration_seconds";
+
+    private final IActivationStorage delegate;
+    private final LatencyHistogram loadTime;
+    private final LatencyHistogram saveTime;
+    private final LatencyHistogram clearTime;
+
+    public InstrumentedActivationStorage(final IActivationStorage delegate, final MetricsRegistry registry) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate must not be null");
+        this.loadTime = registry.timer(DURATION, "operation", "load");
+        this.saveTime = registry.timer(DURATION, "operation", "save");
+        this.clearTime = registry.timer(DURATION, "operation", "clear");
+    }
+
+    @Override
+    public PersistentData load() {
+        final long start = System.nanoTime();
+        try {
+            return delegate.load();
+        } finally {
+            loadTime.recordSince(start);
+        }
+    }
+
+    @Override
+    public void save(final PersistentData data) {
+        final long start = System.nanoTime();
+        try {
+            delegate.save(data);
+        } finally {
+            saveTime.recordSince(start);
+        }
+    }
+
+    @Override
+    public void clear() {
+        final long start = System.nanoTime();
+        try {
+            delegate.clear();
+        } finally {
+            clearTime.recordSince(start);
+        }
+    }
+
+    @Override
+    public String getStorageId() {
+        return delegate.getStorageId();
+    }
+
+    public IActivationStorage getDelegate() {
+        return delegate;
+    }
+}
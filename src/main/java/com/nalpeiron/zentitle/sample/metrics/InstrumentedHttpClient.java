@@ -0,0 +1,56 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Client decorator recording the latency and response status of every licensing API call.
+ * The latency covers the time until the response head is received, reading the body is not included.
+ */
+public class InstrumentedHttpClient extends CloseableHttpClient {
+    static final String DURATION = "zentitle_http_request_duration_seconds";
+    static final String RESPONSES = "zentitle_http_responses_total";
+    static final String ERRORS = "zentitle_http_request_errors_total";
+
+    private final CloseableHttpClient delegate;
+    private final MetricsRegistry registry;
+
+    public InstrumentedHttpClient(final CloseableHttpClient delegate, final MetricsRegistry registry) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate must not be null");
+        this.registry = Objects.requireNonNull(registry, "Registry must not be null");
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(final HttpHost target, final ClassicHttpRequest request,
+                                              final HttpContext context) throws IOException {
+        final String method = request.getMethod();
+        final long start = System.nanoTime();
+        try {
+            final CloseableHttpResponse response = delegate.execute(target, request, context);
+            registry.counter(RESPONSES, "method", method, "status", Integer.toString(response.getCode())).increment();
+            return response;
+        } catch (final IOException | RuntimeException exception) {
+            registry.counter(ERRORS, "method", method, "exception", exception.getClass().getSimpleName()).increment();
+            throw exception;
+        } finally {
+            registry.timer(DURATION, "method", method).recordSince(start);
+        }
+    }
+
+    @Override
+    public void close(final CloseMode closeMode) {
+        delegate.close(closeMode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,36 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JMX view of a {@link MetricsRegistry}, series are keyed by their Prometheus style identifier.
+ */
+public class LicensingMetrics implements LicensingMetricsMXBean {
+    public static final String OBJECT_NAME = "com.nalpeiron.zentitle.sample:type=LicensingMetrics";
+
+    private final MetricsRegistry registry;
+
+    public LicensingMetrics(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        final Map<String, Long> counters = new LinkedHashMap<>();
+        registry.getCounters().forEach((id, counter) -> counters.put(id.toString(), counter.sum()));
+        return counters;
+    }
+
+    @Override
+    public Map<String, TimerStatistics> getTimers() {
+        final Map<String, TimerStatistics> timers = new LinkedHashMap<>();
+        registry.getTimers().forEach((id, histogram) -> timers.put(id.toString(), new TimerStatistics(histogram)));
+        return timers;
+    }
+
+    @Override
+    public void reset() {
+        registry.reset();
+    }
+}
@@ -0,0 +1,11 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import java.util.Map;
+
+public interface LicensingMetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, TimerStatistics> getTimers();
+
+    void reset();
+}
@@ -0,0 +1,129 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import com.nalpeiron.zentitle.sample.NamedThreadFactory;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes a {@link MetricsRegistry} as configured in the {@code Metrics} settings: as an MXBean, as a
+ * Prometheus text file rewritten periodically (for the node exporter textfile collector) and as a
+ * {@code /metrics} endpoint bound to the loopback interface.
+ */
+public class MetricsExporter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+    private final MetricsRegistry registry;
+    private final ObjectName objectName;
+    private final Path prometheusFile;
+    private final ScheduledExecutorService fileWriter;
+    private final HttpServer httpServer;
+
+    private MetricsExporter(final MetricsRegistry registry, final ObjectName objectName, final Path prometheusFile,
+                            final ScheduledExecutorService fileWriter, final HttpServer httpServer) {
+        this.registry = registry;
+        this.objectName = objectName;
+        this.prometheusFile = prometheusFile;
+        this.fileWriter = fileWriter;
+        this.httpServer = httpServer;
+    }
+
+    public static MetricsExporter start(final AppSettings.Metrics settings, final MetricsRegistry registry) throws IOException {
+        if (!settings.isEnabled()) {
+            return new MetricsExporter(registry, null, null, null, null);
+        }
+
+        final ObjectName objectName = settings.isJmx() ? registerMXBean(registry) : null;
+
+        final String file = settings.getPrometheusFile();
+        final Path prometheusFile = file != null && !file.trim().isEmpty() ? Paths.get(file) : null;
+        ScheduledExecutorService fileWriter = null;
+        if (prometheusFile != null) {
+            fileWriter = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("metrics-file-writer"));
+            final long interval = Math.max(1, settings.getExportIntervalSeconds());
+            fileWriter.scheduleWithFixedDelay(() -> writeFile(registry, prometheusFile), 0, interval, TimeUnit.SECONDS);
+        }
+
+        HttpServer httpServer = null;
+        if (settings.getPrometheusPort() > 0) {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.getPrometheusPort()), 0);
+            httpServer.createContext("/metrics", exchange -> {
+                final byte[] body = PrometheusTextFormat.toString(registry).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", PrometheusTextFormat.CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (final OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(body);
+                }
+            });
+            httpServer.setExecutor(Executors.newSingleThreadExecutor(new NamedThreadFactory("metrics-http")));
+            httpServer.start();
+            logger.info("Serving metrics on http://{}/metrics", httpServer.getAddress());
+        }
+
+        return new MetricsExporter(registry, objectName, prometheusFile, fileWriter, httpServer);
+    }
+
+    @Override
+    public void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        if (fileWriter != null) {
+            fileWriter.shutdownNow();
+            // leave the final values behind for the collector
+            writeFile(registry, prometheusFile);
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (final JMException exception) {
+                logger.warn("Failed to unregister {}", objectName, exception);
+            }
+        }
+    }
+
+    private static ObjectName registerMXBean(final MetricsRegistry registry) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(LicensingMetrics.OBJECT_NAME);
+            server.registerMBean(new LicensingMetrics(registry), objectName);
+            return objectName;
+        } catch (final JMException exception) {
+            logger.warn("Failed to register the licensing metrics MXBean", exception);
+            return null;
+        }
+    }
+
+    private static void writeFile(final MetricsRegistry registry, final Path file) {
+        try {
+            final Path absoluteFile = file.toAbsolutePath();
+            final Path temporaryFile = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(), ".tmp");
+            try (final Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+                PrometheusTextFormat.write(registry, writer);
+            }
+            // collectors must never see a partially written file
+            Files.move(temporaryFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException exception) {
+            logger.warn("Failed to write metrics to {}", file, exception);
+        }
+    }
+}
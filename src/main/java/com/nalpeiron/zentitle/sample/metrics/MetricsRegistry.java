@@ -0,0 +1,57 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process store of timers and counters, read by the JMX and Prometheus exporters.
+ * Series are created on first use; callers on hot paths should keep the returned instances instead of
+ * looking them up for every measurement.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<SeriesId, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SeriesId, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Registry shared by all licensing runtimes of the process.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public LatencyHistogram timer(final String name, final String... labels) {
+        return timers.computeIfAbsent(new SeriesId(name, labels), id -> new LatencyHistogram());
+    }
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public LongAdder counter(final String name, final String... labels) {
+        return counters.computeIfAbsent(new SeriesId(name, labels), id -> new LongAdder());
+    }
+
+    public SortedMap<SeriesId, LatencyHistogram> getTimers() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(timers));
+    }
+
+    public SortedMap<SeriesId, LongAdder> getCounters() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(counters));
+    }
+
+    /**
+     * Resets the values of all series, the series themselves stay registered.
+     */
+    public void reset() {
+        timers.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+}
@@ -0,0 +1,61 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the registry in the Prometheus text exposition format.
+ * Timers are exported as summaries in seconds, with a fixed set of quantiles.
+ */
+public final class PrometheusTextFormat {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private PrometheusTextFormat() {
+    }
+
+    public static void write(final MetricsRegistry registry, final Appendable output) throws IOException {
+        String currentName = null;
+        for (final Map.Entry<SeriesId, LongAdder> counter : registry.getCounters().entrySet()) {
+            final SeriesId id = counter.getKey();
+            if (!id.getName().equals(currentName)) {
+                currentName = id.getName();
+                output.append("# TYPE ").append(currentName).append(" counter\n");
+            }
+            output.append(id.toString()).append(' ').append(Long.toString(counter.getValue().sum())).append('\n');
+        }
+
+        currentName = null;
+        for (final Map.Entry<SeriesId, LatencyHistogram> timer : registry.getTimers().entrySet()) {
+            final SeriesId id = timer.getKey();
+            final LatencyHistogram histogram = timer.getValue();
+            if (!id.getName().equals(currentName)) {
+                currentName = id.getName();
+                output.append("# TYPE ").append(currentName).append(" summary\n");
+            }
+            for (final double quantile : QUANTILES) {
+                output.append(id.getName()).append(id.formatLabels("quantile", Double.toString(quantile)))
+                        .append(' ').append(Double.toString(histogram.getPercentile(quantile, TimeUnit.SECONDS))).append('\n');
+            }
+            final String labels = id.formatLabels(null, null);
+            output.append(id.getName()).append("_sum").append(labels).append(' ')
+                    .append(Double.toString(histogram.getSumNanos() / 1e9)).append('\n');
+            output.append(id.getName()).append("_count").append(labels).append(' ')
+                    .append(Long.toString(histogram.getCount())).append('\n');
+        }
+    }
+
+    public static String toString(final MetricsRegistry registry) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            write(registry, builder);
+        } catch (final IOException exception) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(exception);
+        }
+        return builder.toString();
+    }
+}
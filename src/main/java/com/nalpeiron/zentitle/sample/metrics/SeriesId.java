@@ -0,0 +1,91 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Metric name together with its label pairs, e.g. {@code zentitle_action_duration_seconds{action="Show"}}.
+ */
+public final class SeriesId implements Comparable<SeriesId> {
+    private final String name;
+    private final List<String> labels;
+    private final String text;
+
+    SeriesId(final String name, final String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name/value pairs");
+        }
+        this.name = Objects.requireNonNull(name, "Name must not be null");
+        this.labels = Collections.unmodifiableList(Arrays.asList(labels.clone()));
+        this.text = name + formatLabels(null, null);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return label names and values, alternating
+     */
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Formats the labels in the Prometheus text format, optionally with one extra label appended.
+     *
+     * @return e.g. {@code {action="Show",quantile="0.99"}}, or an empty string when there are no labels
+     */
+    public String formatLabels(final String extraName, final String extraValue) {
+        if (labels.isEmpty() && extraName == null) {
+            return "";
+        }
+        final StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < labels.size(); i += 2) {
+            appendLabel(builder, labels.get(i), labels.get(i + 1));
+        }
+        if (extraName != null) {
+            appendLabel(builder, extraName, extraValue);
+        }
+        builder.setLength(builder.length() - 1);
+        return builder.append('}').toString();
+    }
+
+    private static void appendLabel(final StringBuilder builder, final String name, final String value) {
+        builder.append(name).append("=\"");
+        final String safeValue = String.valueOf(value);
+        for (int i = 0; i < safeValue.length(); i++) {
+            final char c = safeValue.charAt(i);
+            if (c == '\\' || c == '"') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append("\",");
+    }
+
+    @Override
+    public int compareTo(final SeriesId other) {
+        return text.compareTo(other.text);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof SeriesId && text.equals(((SeriesId) other).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,42 @@
+package com.nalpeiron.zentitle.sample.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time view of a {@link LatencyHistogram}, exposed as composite data through JMX.
+ */
+public class TimerStatistics {
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    TimerStatistics(final LatencyHistogram histogram) {
+        this.count = histogram.getCount();
+        this.meanMillis = histogram.getMeanNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+        this.p50Millis = histogram.getPercentile(0.5, TimeUnit.MILLISECONDS);
+        this.p99Millis = histogram.getPercentile(0.99, TimeUnit.MILLISECONDS);
+        this.maxMillis = (double) histogram.getMaxNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+}
@@ -0,0 +1,201 @@
+package com.nalpeiron.zentitle.sample.offline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.options.OfflineActivationOptions;
+import com.nalpeiron.zentitle.sample.NamedThreadFactory;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import com.nalpeiron.zentitle.sample.provisioning.BatchSummary;
+import com.nalpeiron.zentitle.sample.provisioning.SeatJsonLines;
+import com.nalpeiron.zentitle.sample.provisioning.SeatRequest;
+import com.nalpeiron.zentitle.sample.provisioning.SeatRequestReader;
+import com.nalpeiron.zentitle.sample.provisioning.SeatResult;
+import com.nalpeiron.zentitle.sample.provisioning.SeatActivation;
+import com.nalpeiron.zentitle.sample.provisioning.SeatActivationFactory;
+import java.util.HashSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Offline activation of many seats in two steps, for sites without access to the licensing API:
+ * <ol>
+ *     <li>{@link #generateRequests} writes the activation request tokens of all seats into one bundle, which is
+ *     taken to the End User Portal</li>
+ *     <li>{@link #applyResponses} activates the seats with the bundle of response tokens from the portal</li>
+ * </ol>
+ * Seats are processed in parallel, each with its own storage in the provisioning storage directory, which must
+ * be kept between the two steps. All seats share one {@link OfflineActivationOptions}, so the tenant RSA key
+ * that verifies the response tokens is parsed only once.
+ */
+public class OfflineActivationPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(OfflineActivationPipeline.class);
+
+    private final AppSettings config;
+    private final AppSettings.Provisioning settings;
+    private final ObjectMapper objectMapper;
+
+    public OfflineActivationPipeline(final AppSettings config, final ObjectMapper objectMapper) {
+        this.config = config;
+        this.settings = config.getProvisioning();
+        this.objectMapper = objectMapper;
+    }
+
+    public BatchSummary generateRequests(final Path seats, final Path requestBundle, final Path report)
+            throws IOException, InterruptedException {
+        final List<SeatRequest> requests = new SeatRequestReader(objectMapper).read(seats);
+        try (final SeatJsonLines bundle = new SeatJsonLines(objectMapper, requestBundle)) {
+            return run(requests, SeatRequest::getSeatId, report, (activationFactory, request) -> {
+                final String[] token = new String[1];
+                final ActivationState state;
+                try (final SeatActivation seat = activationFactory.open(request.getSeatId())) {
+                    state = seat.getActivation().executeWithLock(a -> {
+                        if (a.getState() != ActivationState.ACTIVE) {
+                            token[0] = a.generateOfflineActivationRequestToken(request.getActivationCode(), request.getSeatName());
+                        }
+                        return a.getState();
+                    });
+                }
+                if (token[0] == null) {
+                    return new Outcome(SeatResult.Status.ALREADY_ACTIVE, state);
+                }
+                // a seat whose token is missing from the bundle fails, so that the next run generates it again
+                bundle.append(new OfflineToken(request.getSeatId(), request.getSeatName(), token[0]));
+                return new Outcome(SeatResult.Status.REQUEST_GENERATED, state);
+            });
+        }
+    }
+
+    public BatchSummary applyResponses(final Path responseBundle, final Path report) throws IOException, InterruptedException {
+        return run(readTokens(responseBundle), OfflineToken::getSeatId, report, (activationFactory, response) -> {
+            try (final SeatActivation seat = activationFactory.open(response.getSeatId())) {
+                final SeatResult.Status[] status = new SeatResult.Status[1];
+                final ActivationState state = seat.getActivation().executeWithLock(a -> {
+                    if (a.getState() == ActivationState.ACTIVE) {
+                        status[0] = SeatResult.Status.ALREADY_ACTIVE;
+                    } else {
+                        // verifies the token signature with the shared tenant RSA key
+                        a.activateOffline(response.getToken());
+                        status[0] = a.getState() == ActivationState.ACTIVE ? SeatResult.Status.ACTIVATED : SeatResult.Status.FAILED;
+                    }
+                    return a.getState();
+                });
+                return new Outcome(status[0], state);
+            }
+        });
+    }
+
+    private <T> BatchSummary run(final List<T> items, final Function<T, String> seatId, final Path report,
+                                 final SeatOperation<T> operation) throws IOException, InterruptedException {
+        final Set<String> completedSeats = SeatJsonLines.readSuccessfulSeats(objectMapper, report);
+        final List<T> pending = new ArrayList<>();
+        for (final T item : items) {
+            if (!completedSeats.contains(seatId.apply(item))) {
+                pending.add(item);
+            }
+        }
+
+        final Path storageDirectory = Paths.get(settings.getStorageDirectory());
+        Files.createDirectories(storageDirectory);
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final long start = System.nanoTime();
+
+        try (final SeatJsonLines resultLog = new SeatJsonLines(objectMapper, report)) {
+            final SeatActivationFactory activationFactory = new SeatActivationFactory(config, storageDirectory);
+            final ExecutorService executor = Executors.newFixedThreadPool(settings.getConcurrency(), new NamedThreadFactory("offline-seat"));
+            try {
+                for (final T item : pending) {
+                    executor.execute(() -> {
+                        final SeatResult result = execute(operation, activationFactory, item, seatId.apply(item));
+                        (result.isSuccessful() ? succeeded : failed).incrementAndGet();
+                        try {
+                            resultLog.append(result);
+                        } catch (final IOException exception) {
+                            logger.error("Failed to record the result of seat '{}', it is processed again on the next run",
+                                    result.getSeatId(), exception);
+                        }
+                    });
+                }
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        return new BatchSummary(items.size() - pending.size(), succeeded.get(), failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static <T> SeatResult execute(final SeatOperation<T> operation, final SeatActivationFactory activationFactory,
+                                          final T item, final String seatId) {
+        final long start = System.nanoTime();
+        try {
+            final Outcome outcome = operation.execute(activationFactory, item);
+            return SeatResult.completed(seatId, outcome.status, outcome.state.name(), null, start);
+        } catch (final Exception exception) {
+            logger.warn("Offline operation of seat '{}' failed", seatId, exception);
+            return SeatResult.completed(seatId, SeatResult.Status.FAILED, null, String.valueOf(exception.getMessage()), start);
+        }
+    }
+
+    /**
+     * @throws IOException when a line is malformed, or a seat ID or token occurs twice in the bundle
+     */
+    private List<OfflineToken> readTokens(final Path bundle) throws IOException {
+        final List<OfflineToken> tokens = new ArrayList<>();
+        final Set<String> seatIds = new HashSet<>();
+        final Set<String> tokenValues = new HashSet<>();
+        try (final BufferedReader reader = Files.newBufferedReader(bundle, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                final OfflineToken token = objectMapper.readValue(line, OfflineToken.class);
+                if (token.getSeatId() == null || token.getToken() == null) {
+                    throw new IOException("Missing seat ID or token on line " + lineNumber + " of " + bundle);
+                }
+                if (!seatIds.add(token.getSeatId())) {
+                    throw new IOException("Duplicate seat ID '" + token.getSeatId() + "' on line " + lineNumber + " of " + bundle);
+                }
+                if (!tokenValues.add(token.getToken())) {
+                    throw new IOException("Duplicate token on line " + lineNumber + " of " + bundle);
+                }
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    @FunctionalInterface
+    private interface SeatOperation<T> {
+        Outcome execute(SeatActivationFactory activationFactory, T item) throws Exception;
+    }
+
+    private static final class Outcome {
+        private final SeatResult.Status status;
+        private final ActivationState state;
+
+        private Outcome(final SeatResult.Status status, final ActivationState state) {
+            this.status = status;
+            this.state = state;
+        }
+    }
+}
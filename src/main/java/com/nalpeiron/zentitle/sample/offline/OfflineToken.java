@@ -0,0 +1,41 @@
+package com.nalpeiron.zentitle.sample.offline;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Entry of an offline bundle file: the activation request token generated for a seat, or the activation
+ * response token issued for it by the End User Portal.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OfflineToken {
+    @JsonProperty("seatId")
+    private String seatId;
+
+    @JsonProperty("seatName")
+    private String seatName;
+
+    @JsonProperty("token")
+    private String token;
+
+    public OfflineToken() {
+    }
+
+    public OfflineToken(final String seatId, final String seatName, final String token) {
+        this.seatId = seatId;
+        this.seatName = seatName;
+        this.token = token;
+    }
+
+    public String getSeatId() {
+        return seatId;
+    }
+
+    public String getSeatName() {
+        return seatName;
+    }
+
+    public String getToken() {
+        return token;
+    }
+}
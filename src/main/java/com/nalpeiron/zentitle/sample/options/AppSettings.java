@@ -3,6 +3,9 @@ package com.nalpeiron.zentitle.sample.options;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class AppSettings {
     @JsonProperty("UseCoreLibrary")
     private boolean useCoreLibrary;
@@ -13,6 +16,57 @@ public class AppSettings {
     @JsonProperty("Licensing")
     private Licensing licensing;
 
+    @JsonProperty("LeaseRefresh")
+    private LeaseRefresh leaseRefresh = new LeaseRefresh();
+
+    @JsonProperty("UsageTracking")
+    private UsageTracking usageTracking = new UsageTracking();
+
+    @JsonProperty("Locking")
+    private Locking locking = new Locking();
+
+    @JsonProperty("ConflictRetry")
+    private ConflictRetry conflictRetry = new ConflictRetry();
+
+    @JsonProperty("Daemon")
+    private Daemon daemon = new Daemon();
+
+    @JsonProperty("Storage")
+    private Storage storage = new Storage();
+
+    @JsonProperty("Provisioning")
+    private Provisioning provisioning = new Provisioning();
+
+    @JsonProperty("Metrics")
+    private Metrics metrics = new Metrics();
+
+    @JsonProperty("Fingerprint")
+    private Fingerprint fingerprint = new Fingerprint();
+
+    @JsonProperty("EntitlementCache")
+    private EntitlementCache entitlementCache = new EntitlementCache();
+
+    @JsonProperty("Registry")
+    private Registry registry = new Registry();
+
+    @JsonProperty("CircuitBreaker")
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    @JsonProperty("Events")
+    private Events events = new Events();
+
+    @JsonProperty("FeatureReservation")
+    private FeatureReservation featureReservation = new FeatureReservation();
+
+    @JsonProperty("Snapshot")
+    private Snapshot snapshot = new Snapshot();
+
+    @JsonProperty("AsyncActivation")
+    private AsyncActivation asyncActivation = new AsyncActivation();
+
+    @JsonProperty("Batch")
+    private Batch batch = new Batch();
+
     public boolean isUseCoreLibrary() {
         return useCoreLibrary;
     }
@@ -25,6 +79,74 @@ public class AppSettings {
         return licensing;
     }
 
+    public LeaseRefresh getLeaseRefresh() {
+        return leaseRefresh;
+    }
+
+    public UsageTracking getUsageTracking() {
+        return usageTracking;
+    }
+
+    public Locking getLocking() {
+        return locking;
+    }
+
+    public ConflictRetry getConflictRetry() {
+        return conflictRetry;
+    }
+
+    public Daemon getDaemon() {
+        return daemon;
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public Provisioning getProvisioning() {
+        return provisioning;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Fingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    public EntitlementCache getEntitlementCache() {
+        return entitlementCache;
+    }
+
+    public Registry getRegistry() {
+        return registry;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Events getEvents() {
+        return events;
+    }
+
+    public FeatureReservation getFeatureReservation() {
+        return featureReservation;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public AsyncActivation getAsyncActivation() {
+        return asyncActivation;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
     public static class Licensing {
         @JsonProperty("ApiUrl")
         private String apiUrl;
@@ -54,4 +176,468 @@ public class AppSettings {
             return productId;
         }
     }
+
+    public static class LeaseRefresh {
+        @JsonProperty("Enabled")
+        private boolean enabled = true;
+
+        @JsonProperty("RenewAtFraction")
+        private double renewAtFraction = 0.5;
+
+        @JsonProperty("JitterFraction")
+        private double jitterFraction = 0.1;
+
+        @JsonProperty("MinDelaySeconds")
+        private long minDelaySeconds = 30;
+
+        @JsonProperty("IdleCheckSeconds")
+        private long idleCheckSeconds = 60;
+
+        @JsonProperty("RetryInitialDelaySeconds")
+        private long retryInitialDelaySeconds = 5;
+
+        @JsonProperty("RetryMaxDelaySeconds")
+        private long retryMaxDelaySeconds = 300;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public double getRenewAtFraction() {
+            return renewAtFraction;
+        }
+
+        public double getJitterFraction() {
+            return jitterFraction;
+        }
+
+        public long getMinDelaySeconds() {
+            return minDelaySeconds;
+        }
+
+        public long getIdleCheckSeconds() {
+            return idleCheckSeconds;
+        }
+
+        public long getRetryInitialDelaySeconds() {
+            return retryInitialDelaySeconds;
+        }
+
+        public long getRetryMaxDelaySeconds() {
+            return retryMaxDelaySeconds;
+        }
+    }
+
+    public static class UsageTracking {
+        @JsonProperty("FlushIntervalMillis")
+        private long flushIntervalMillis = 1000;
+
+        @JsonProperty("MaxPendingEvents")
+        private long maxPendingEvents = 10000;
+
+        @JsonProperty("OverflowPolicy")
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+        /**
+         * Usage API calls made per activation lock acquisition while flushing, the lock is released in between.
+         */
+        @JsonProperty("MaxCallsPerLock")
+        private int maxCallsPerLock = 20;
+
+        /**
+         * Failed usage calls in a row after which the pending usage of a feature is dropped.
+         */
+        @JsonProperty("MaxSendAttempts")
+        private int maxSendAttempts = 10;
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public long getMaxPendingEvents() {
+            return maxPendingEvents;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public int getMaxCallsPerLock() {
+            return maxCallsPerLock;
+        }
+
+        public int getMaxSendAttempts() {
+            return maxSendAttempts;
+        }
+    }
+
+    public static class Locking {
+        @JsonProperty("TimeoutMillis")
+        private long timeoutMillis = 30000;
+
+        @JsonProperty("Fair")
+        private boolean fair = false;
+
+        public long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        public boolean isFair() {
+            return fair;
+        }
+    }
+
+    public static class ConflictRetry {
+        @JsonProperty("MaxAttempts")
+        private int maxAttempts = 3;
+
+        @JsonProperty("InitialBackoffMillis")
+        private long initialBackoffMillis = 50;
+
+        @JsonProperty("MaxBackoffMillis")
+        private long maxBackoffMillis = 1000;
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public long getInitialBackoffMillis() {
+            return initialBackoffMillis;
+        }
+
+        public long getMaxBackoffMillis() {
+            return maxBackoffMillis;
+        }
+    }
+
+    public static class Daemon {
+        @JsonProperty("SocketPath")
+        private String socketPath = "zentitle-licensing.sock";
+
+        @JsonProperty("SeatId")
+        private String seatId;
+
+        @JsonProperty("MaxConnections")
+        private int maxConnections = 64;
+
+        public String getSocketPath() {
+            return socketPath;
+        }
+
+        public String getSeatId() {
+            return seatId;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+    }
+
+    public static class Storage {
+        @JsonProperty("Type")
+        private StorageType type = StorageType.AUTO;
+
+        @JsonProperty("ChangeDetection")
+        private boolean changeDetection = true;
+
+        public StorageType getType() {
+            return type;
+        }
+
+        public boolean isChangeDetection() {
+            return changeDetection;
+        }
+    }
+
+    public static class Provisioning {
+        @JsonProperty("Concurrency")
+        private int concurrency = 16;
+
+        @JsonProperty("ActivationsPerSecond")
+        private double activationsPerSecond = 10;
+
+        @JsonProperty("StorageDirectory")
+        private String storageDirectory = "provisioned-seats";
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public double getActivationsPerSecond() {
+            return activationsPerSecond;
+        }
+
+        public String getStorageDirectory() {
+            return storageDirectory;
+        }
+    }
+
+    public static class Metrics {
+        @JsonProperty("Enabled")
+        private boolean enabled = true;
+
+        @JsonProperty("Jmx")
+        private boolean jmx = true;
+
+        @JsonProperty("PrometheusFile")
+        private String prometheusFile;
+
+        @JsonProperty("PrometheusPort")
+        private int prometheusPort = 0;
+
+        @JsonProperty("ExportIntervalSeconds")
+        private long exportIntervalSeconds = 15;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public boolean isJmx() {
+            return jmx;
+        }
+
+        public String getPrometheusFile() {
+            return prometheusFile;
+        }
+
+        public int getPrometheusPort() {
+            return prometheusPort;
+        }
+
+        public long getExportIntervalSeconds() {
+            return exportIntervalSeconds;
+        }
+    }
+
+    public static class Fingerprint {
+        @JsonProperty("CacheEnabled")
+        private boolean cacheEnabled = true;
+
+        @JsonProperty("TtlHours")
+        private long ttlHours = 720;
+
+        @JsonProperty("ForceRegenerate")
+        private boolean forceRegenerate = false;
+
+        public boolean isCacheEnabled() {
+            return cacheEnabled;
+        }
+
+        public long getTtlHours() {
+            return ttlHours;
+        }
+
+        public boolean isForceRegenerate() {
+            return forceRegenerate;
+        }
+    }
+
+    public static class EntitlementCache {
+        @JsonProperty("Enabled")
+        private boolean enabled = true;
+
+        @JsonProperty("TtlSeconds")
+        private long ttlSeconds = 60;
+
+        @JsonProperty("StaleWhileRevalidateSeconds")
+        private long staleWhileRevalidateSeconds = 600;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public long getStaleWhileRevalidateSeconds() {
+            return staleWhileRevalidateSeconds;
+        }
+    }
+
+    public static class Registry {
+        @JsonProperty("BackgroundThreads")
+        private int backgroundThreads = 2;
+
+        @JsonProperty("Entries")
+        private List<RegistryEntry> entries = new ArrayList<>();
+
+        public int getBackgroundThreads() {
+            return backgroundThreads;
+        }
+
+        public List<RegistryEntry> getEntries() {
+            return entries;
+        }
+    }
+
+    /**
+     * Licensing settings of one product in the {@link Registry}.
+     */
+    public static class RegistryEntry extends Licensing {
+        @JsonProperty("Name")
+        private String name;
+
+        @JsonProperty("SeatId")
+        private String seatId;
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSeatId() {
+            return seatId;
+        }
+    }
+
+    public static class CircuitBreaker {
+        @JsonProperty("Enabled")
+        private boolean enabled = true;
+
+        @JsonProperty("FailureThreshold")
+        private int failureThreshold = 5;
+
+        @JsonProperty("OpenSeconds")
+        private long openSeconds = 30;
+
+        @JsonProperty("HalfOpenProbes")
+        private int halfOpenProbes = 1;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public long getOpenSeconds() {
+            return openSeconds;
+        }
+
+        public int getHalfOpenProbes() {
+            return halfOpenProbes;
+        }
+    }
+
+    public static class Events {
+        @JsonProperty("BufferCapacity")
+        private int bufferCapacity = 256;
+
+        @JsonProperty("StorageWatchMillis")
+        private long storageWatchMillis = 1000;
+
+        public int getBufferCapacity() {
+            return bufferCapacity;
+        }
+
+        public long getStorageWatchMillis() {
+            return storageWatchMillis;
+        }
+    }
+
+    public static class FeatureReservation {
+        @JsonProperty("ChunkSize")
+        private int chunkSize = 10;
+
+        @JsonProperty("IdleReturnSeconds")
+        private long idleReturnSeconds = 60;
+
+        /**
+         * Element-pool features whose daemon checkouts are served from a local reservation, empty to check out every
+         * unit from the licensing API.
+         */
+        @JsonProperty("FeatureKeys")
+        private List<String> featureKeys = new ArrayList<>();
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public long getIdleReturnSeconds() {
+            return idleReturnSeconds;
+        }
+
+        public List<String> getFeatureKeys() {
+            return featureKeys;
+        }
+    }
+
+    public static class Snapshot {
+        @JsonProperty("Enabled")
+        private boolean enabled = false;
+
+        /**
+         * Path of the memory-mapped snapshot file, blank for {@code activation.snapshot} in the application directory.
+         */
+        @JsonProperty("File")
+        private String file = "";
+
+        @JsonProperty("CapacityBytes")
+        private int capacityBytes = 65536;
+
+        /**
+         * Age after which readers no longer trust a snapshot, e.g. because its writer died, 0 for no limit.
+         */
+        @JsonProperty("MaxAgeSeconds")
+        private long maxAgeSeconds = 3600;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public int getCapacityBytes() {
+            return capacityBytes;
+        }
+
+        public long getMaxAgeSeconds() {
+            return maxAgeSeconds;
+        }
+    }
+
+    public static class AsyncActivation {
+        /**
+         * Number of threads running the calls. The calls take turns on the activation lock, so more threads only
+         * let more calls wait for their turn.
+         */
+        @JsonProperty("Threads")
+        private int threads = 2;
+
+        /**
+         * Deadline of calls made without an explicit one, 0 for none.
+         */
+        @JsonProperty("DefaultDeadlineMillis")
+        private long defaultDeadlineMillis = 30000;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getDefaultDeadlineMillis() {
+            return defaultDeadlineMillis;
+        }
+    }
+
+    public static class Batch {
+        /**
+         * Seat ID of activations whose command has no {@code seat} argument, blank for the device fingerprint.
+         */
+        @JsonProperty("SeatId")
+        private String seatId = "";
+
+        @JsonProperty("StopOnError")
+        private boolean stopOnError = false;
+
+        public String getSeatId() {
+            return seatId;
+        }
+
+        public boolean isStopOnError() {
+            return stopOnError;
+        }
+    }
 }
\ No newline at end of file
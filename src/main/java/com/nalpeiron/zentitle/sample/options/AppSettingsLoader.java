@@ -0,0 +1,21 @@
+package com.nalpeiron.zentitle.sample.options;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+
+public class AppSettingsLoader {
+
+    public static AppSettings load(final ObjectMapper objectMapper) throws IOException {
+        final File appSettings;
+        if (new File("appsettings.json").exists()) {
+            appSettings = new File("appsettings.json");
+        } else if (new File("src/main/java/com/nalpeiron/zentitle/sample/appsettings.json").exists()) {
+            appSettings = new File("src/main/java/com/nalpeiron/zentitle/sample/appsettings.json");
+        } else {
+            appSettings = new File("samples/src/main/java/com/nalpeiron/zentitle/sample/appsettings.json");
+        }
+        return objectMapper.readValue(appSettings, AppSettings.class);
+    }
+}
@@ -0,0 +1,16 @@
+package com.nalpeiron.zentitle.sample.options;
+
+/**
+ * What {@link com.nalpeiron.zentitle.sample.FeatureUsageRecorder} does with usage recorded while its pending queue is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Usage recorded while the pending queue is full is dropped and counted.
+     */
+    DROP,
+    /**
+     * The recording thread reports one chunk of the pending usage itself before recording, slowing the
+     * producers down by at most {@code MaxCallsPerLock} API calls.
+     */
+    FLUSH_IN_CALLER
+}
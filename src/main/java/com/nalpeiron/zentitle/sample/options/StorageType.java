@@ -0,0 +1,23 @@
+package com.nalpeiron.zentitle.sample.options;
+
+/**
+ * Format of the persisted activation, see {@link com.nalpeiron.zentitle.sample.LicenseStorage}.
+ */
+public enum StorageType {
+    /**
+     * {@link #SECURE} when the core library is enabled, {@link #PLAIN_TEXT} otherwise.
+     */
+    AUTO,
+    /**
+     * Encrypted storage of the Zentitle2Core library.
+     */
+    SECURE,
+    /**
+     * Pretty printed JSON file.
+     */
+    PLAIN_TEXT,
+    /**
+     * Compact binary file, migrated from an existing plain text file on first use.
+     */
+    BINARY
+}
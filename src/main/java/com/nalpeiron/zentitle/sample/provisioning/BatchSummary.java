@@ -0,0 +1,39 @@
+package com.nalpeiron.zentitle.sample.provisioning;
+
+/**
+ * Outcome counts of a batch of seat operations.
+ */
+public class BatchSummary {
+    private final int skipped;
+    private final int succeeded;
+    private final int failed;
+    private final long elapsedMillis;
+
+    public BatchSummary(final int skipped, final int succeeded, final int failed, final long elapsedMillis) {
+        this.skipped = skipped;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return succeeded + " seats succeeded, " + failed + " failed, " + skipped + " skipped (already completed) in " + elapsedMillis + " ms";
+    }
+}
@@ -0,0 +1,111 @@
+package com.nalpeiron.zentitle.sample.provisioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.sample.ActivationExtensions;
+import com.nalpeiron.zentitle.sample.RateLimiter;
+import com.nalpeiron.zentitle.sample.VirtualThreads;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Activates many seats concurrently, each with its own activation and storage file.
+ * Results are appended to a JSONL file as soon as each seat completes; running again with the same output file
+ * skips the seats that were already provisioned successfully.
+ */
+public class BulkProvisioner {
+    private static final Logger logger = LoggerFactory.getLogger(BulkProvisioner.class);
+
+    private final AppSettings config;
+    private final AppSettings.Provisioning settings;
+    private final ObjectMapper objectMapper;
+
+    public BulkProvisioner(final AppSettings config, final ObjectMapper objectMapper) {
+        this.config = config;
+        this.settings = config.getProvisioning();
+        this.objectMapper = objectMapper;
+    }
+
+    public BatchSummary provision(final Path input, final Path output) throws IOException, InterruptedException {
+        final List<SeatRequest> requests = new SeatRequestReader(objectMapper).read(input);
+        final Set<String> completedSeats = SeatJsonLines.readSuccessfulSeats(objectMapper, output);
+        final List<SeatRequest> pending = new ArrayList<>();
+        for (final SeatRequest request : requests) {
+            if (!completedSeats.contains(request.getSeatId())) {
+                pending.add(request);
+            }
+        }
+        logger.info("Provisioning {} seats, {} already provisioned", pending.size(), requests.size() - pending.size());
+
+        final Path storageDirectory = Paths.get(settings.getStorageDirectory());
+        Files.createDirectories(storageDirectory);
+        final Semaphore concurrency = new Semaphore(settings.getConcurrency());
+        final RateLimiter rateLimiter = new RateLimiter(settings.getActivationsPerSecond());
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final long start = System.nanoTime();
+
+        try (final SeatJsonLines resultLog = new SeatJsonLines(objectMapper, output)) {
+            final SeatActivationFactory activationFactory = new SeatActivationFactory(config, storageDirectory);
+            final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("seat-provisioning");
+            try {
+                for (final SeatRequest request : pending) {
+                    concurrency.acquire();
+                    rateLimiter.acquire();
+                    executor.execute(() -> {
+                        try {
+                            final SeatResult result = provisionSeat(request, activationFactory);
+                            (result.isSuccessful() ? succeeded : failed).incrementAndGet();
+                            resultLog.append(result);
+                        } catch (final IOException exception) {
+                            logger.error("Failed to record the result of seat '{}', it is provisioned again on the next run",
+                                    request.getSeatId(), exception);
+                        } finally {
+                            concurrency.release();
+                        }
+                    });
+                }
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        return new BatchSummary(requests.size() - pending.size(), succeeded.get(), failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private SeatResult provisionSeat(final SeatRequest request, final SeatActivationFactory activationFactory) {
+        final long start = System.nanoTime();
+        final String seatId = request.getSeatId();
+        try (final SeatActivation seat = activationFactory.open(seatId)) {
+            final SeatResult.Status[] status = new SeatResult.Status[1];
+            final ActivationState state = seat.getActivation().executeWithLock(a -> {
+                if (a.getState() == ActivationState.ACTIVE) {
+                    status[0] = SeatResult.Status.ALREADY_ACTIVE;
+                } else {
+                    ActivationExtensions.activateWithCode(a, request.getActivationCode(), request.getSeatName());
+                    status[0] = a.getState() == ActivationState.ACTIVE ? SeatResult.Status.ACTIVATED : SeatResult.Status.FAILED;
+                }
+                return a.getState();
+            });
+            return SeatResult.completed(seatId, status[0], state.name(), null, start);
+        } catch (final Exception exception) {
+            logger.warn("Provisioning of seat '{}' failed", seatId, exception);
+            return SeatResult.completed(seatId, SeatResult.Status.FAILED, null, String.valueOf(exception.getMessage()), start);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.nalpeiron.zentitle.sample.provisioning;
+
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+
+/**
+ * Activation of a single seat, with only the HTTP client it needs and none of the background components of a
+ * {@link com.nalpeiron.zentitle.sample.LicensingRuntime}.
+ */
+public class SeatActivation implements AutoCloseable {
+    private final ISharedActivation activation;
+    private final CloseableHttpClient httpClient;
+
+    SeatActivation(final ISharedActivation activation, final CloseableHttpClient httpClient) {
+        this.activation = activation;
+        this.httpClient = httpClient;
+    }
+
+    public ISharedActivation getActivation() {
+        return activation;
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            activation.close();
+        } finally {
+            httpClient.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.nalpeiron.zentitle.sample.provisioning;
+
+import com.nalpeiron.zentitle.licensingclient.SharedActivation;
+import com.nalpeiron.zentitle.licensingclient.SharedActivationExtensions;
+import com.nalpeiron.zentitle.licensingclient.licensingapi.HttpClientFactory;
+import com.nalpeiron.zentitle.licensingclient.licensingapi.LicensingApiOptions;
+import com.nalpeiron.zentitle.licensingclient.options.ActivationLockingOptions;
+import com.nalpeiron.zentitle.licensingclient.options.ActivationLockingOptionsBuilder;
+import com.nalpeiron.zentitle.licensingclient.options.ActivationOptions;
+import com.nalpeiron.zentitle.licensingclient.options.OfflineActivationOptions;
+import com.nalpeiron.zentitle.licensingclient.options.OnlineActivationOptions;
+import com.nalpeiron.zentitle.licensingclient.persistence.IPersistence;
+import com.nalpeiron.zentitle.licensingclient.persistence.Persistence;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.PlainTextFileActivationStorage;
+import com.nalpeiron.zentitle.licensingclient.services.DateTimeProvider;
+import com.nalpeiron.zentitle.sample.LicenseStorage;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Creates the activation of a single seat, with its own storage file in the seat storage directory and its own
+ * system lock, so that seats never block each other. The seats share the parsed tenant RSA key and start no
+ * background threads.
+ */
+public class SeatActivationFactory {
+    private static final String SYSTEM_LOCK_PREFIX = "Global-Zentitle.Licensing.Client-Provisioning-";
+
+    private final AppSettings.Licensing settings;
+    private final Path storageDirectory;
+    private final URI licensingApiUrl;
+    private final OfflineActivationOptions offlineActivationOptions;
+
+    public SeatActivationFactory(final AppSettings config, final Path storageDirectory) {
+        this.settings = config.getLicensing();
+        this.storageDirectory = storageDirectory;
+        this.licensingApiUrl = URI.create(settings.getApiUrl());
+        this.offlineActivationOptions = new OfflineActivationOptions(settings.getTenantRsaKeyModulus());
+    }
+
+    /**
+     * Creates the activation of the seat and loads its persisted state, the caller must close it.
+     */
+    public SeatActivation open(final String seatId) {
+        final String name = LicenseStorage.toFileName(seatId);
+        final IActivationStorage storage = new PlainTextFileActivationStorage(storageDirectory.resolve(name + ".json"));
+        final IPersistence persistence = new Persistence(storage, new DateTimeProvider());
+        final CloseableHttpClient httpClient = HttpClientFactory.createHttpClient(new LicensingApiOptions(
+                licensingApiUrl,
+                settings.getTenantId(),
+                persistence::getAccessToken,
+                persistence::getApiNonce,
+                persistence::setApiNonce));
+        final ActivationOptions activationOptions = new ActivationOptions(
+                settings.getTenantId(),
+                settings.getProductId(),
+                () -> seatId,
+                storage,
+                new OnlineActivationOptions(licensingApiUrl, () -> httpClient),
+                offlineActivationOptions);
+        final ActivationLockingOptions lockingOptions = new ActivationLockingOptionsBuilder()
+                .useSystemLock(SYSTEM_LOCK_PREFIX + name)
+                .build();
+        final SeatActivation seat = new SeatActivation(new SharedActivation(activationOptions, lockingOptions, persistence), httpClient);
+        try {
+            SharedActivationExtensions.initializeWithLock(seat.getActivation());
+        } catch (final RuntimeException exception) {
+            try {
+                seat.close();
+            } catch (final Exception closeException) {
+                exception.addSuppressed(closeException);
+            }
+            throw exception;
+        }
+        return seat;
+    }
+}
@@ -0,0 +1,69 @@
+package com.nalpeiron.zentitle.sample.provisioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * JSONL file of per-seat records ({@link SeatResult}s or offline tokens), appended to by many threads as seats
+ * complete.
+ */
+public class SeatJsonLines implements AutoCloseable {
+    private final ObjectWriter lineWriter;
+    private final BufferedWriter writer;
+
+    public SeatJsonLines(final ObjectMapper objectMapper, final Path file) throws IOException {
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return IDs of the seats recorded as successful in an existing log, empty when the file does not exist
+     */
+    public static Set<String> readSuccessfulSeats(final ObjectMapper objectMapper, final Path file) throws IOException {
+        final Set<String> completed = new HashSet<>();
+        if (!Files.exists(file)) {
+            return completed;
+        }
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                final SeatResult result = objectMapper.readValue(line, SeatResult.class);
+                if (result.isSuccessful()) {
+                    completed.add(result.getSeatId());
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * @throws IOException when the record could not be written, the caller must not treat the seat as completed
+     */
+    public void append(final Object record) throws IOException {
+        final String line = lineWriter.writeValueAsString(record);
+        synchronized (writer) {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
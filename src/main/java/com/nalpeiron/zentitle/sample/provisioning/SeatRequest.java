@@ -0,0 +1,35 @@
+package com.nalpeiron.zentitle.sample.provisioning;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class SeatRequest {
+    @JsonProperty("seatId")
+    private String seatId;
+
+    @JsonProperty("seatName")
+    private String seatName;
+
+    @JsonProperty("activationCode")
+    private String activationCode;
+
+    public SeatRequest() {
+    }
+
+    public SeatRequest(final String seatId, final String seatName, final String activationCode) {
+        this.seatId = seatId;
+        this.seatName = seatName;
+        this.activationCode = activationCode;
+    }
+
+    public String getSeatId() {
+        return seatId;
+    }
+
+    public String getSeatName() {
+        return seatName;
+    }
+
+    public String getActivationCode() {
+        return activationCode;
+    }
+}
@@ -0,0 +1,61 @@
+package com.nalpeiron.zentitle.sample.provisioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads seat requests from a JSONL file (one {@link SeatRequest} object per line) or from a CSV file with the
+ * columns {@code seatId,seatName,activationCode}. CSV values must not contain commas, an optional header line
+ * is skipped.
+ */
+public class SeatRequestReader {
+    private final ObjectMapper objectMapper;
+
+    public SeatRequestReader(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public List<SeatRequest> read(final Path file) throws IOException {
+        final boolean jsonLines = file.getFileName().toString().toLowerCase(Locale.ROOT).matches(".*\\.(jsonl|ndjson)$");
+        final List<SeatRequest> requests = new ArrayList<>();
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final SeatRequest request = jsonLines ? objectMapper.readValue(line, SeatRequest.class) : parseCsv(line);
+                if (request == null) {
+                    continue;
+                }
+                if (request.getSeatId() == null || request.getSeatId().trim().isEmpty()) {
+                    throw new IOException("Missing seat ID on line " + lineNumber + " of " + file);
+                }
+                requests.add(request);
+            }
+        }
+        return requests;
+    }
+
+    private static SeatRequest parseCsv(final String line) throws IOException {
+        final String[] columns = line.split(",", -1);
+        if (columns.length != 3) {
+            throw new IOException("Expected 3 columns (seatId,seatName,activationCode) but got " + columns.length + ": " + line);
+        }
+        if ("seatId".equalsIgnoreCase(columns[0].trim())) {
+            return null;
+        }
+        final String seatName = columns[1].trim();
+        return new SeatRequest(columns[0].trim(), seatName.isEmpty() ? null : seatName, columns[2].trim());
+    }
+}
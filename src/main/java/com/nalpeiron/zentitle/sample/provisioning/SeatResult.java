@@ -0,0 +1,83 @@
+package com.nalpeiron.zentitle.sample.provisioning;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeatResult {
+
+    public enum Status {
+        ACTIVATED, ALREADY_ACTIVE, REQUEST_GENERATED, FAILED
+    }
+
+    @JsonProperty("seatId")
+    private String seatId;
+
+    @JsonProperty("status")
+    private Status status;
+
+    @JsonProperty("state")
+    private String state;
+
+    @JsonProperty("message")
+    private String message;
+
+    @JsonProperty("durationMillis")
+    private long durationMillis;
+
+    @JsonProperty("completedAt")
+    private OffsetDateTime completedAt;
+
+    public SeatResult() {
+    }
+
+    public SeatResult(final String seatId, final Status status, final String state, final String message,
+                      final long durationMillis, final OffsetDateTime completedAt) {
+        this.seatId = seatId;
+        this.status = status;
+        this.state = state;
+        this.message = message;
+        this.durationMillis = durationMillis;
+        this.completedAt = completedAt;
+    }
+
+    public String getSeatId() {
+        return seatId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public OffsetDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public boolean isSuccessful() {
+        return status != Status.FAILED;
+    }
+
+    /**
+     * Result of a seat operation that started at the given {@link System#nanoTime()}.
+     */
+    public static SeatResult completed(final String seatId, final Status status, final String state,
+                                       final String message, final long startNanos) {
+        return new SeatResult(seatId, status, state, message,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), OffsetDateTime.now());
+    }
+}
@@ -0,0 +1,81 @@
+package com.nalpeiron.zentitle.sample.snapshot;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.sample.FeatureDecision;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Activation state, lease expiry and features as published by the process holding the activation lock.
+ */
+public final class ActivationSnapshot {
+    private final long sequence;
+    private final Instant publishedAt;
+    private final ActivationState state;
+    private final OffsetDateTime leaseExpiry;
+    private final Map<String, FeatureDecision> features;
+
+    ActivationSnapshot(final long sequence, final Instant publishedAt, final ActivationState state,
+                       final OffsetDateTime leaseExpiry, final Map<String, FeatureDecision> features) {
+        this.sequence = sequence;
+        this.publishedAt = publishedAt;
+        this.state = state;
+        this.leaseExpiry = leaseExpiry;
+        this.features = Collections.unmodifiableMap(features);
+    }
+
+    /**
+     * @return version of the snapshot, increasing with every publication
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    public ActivationState getState() {
+        return state;
+    }
+
+    public OffsetDateTime getLeaseExpiry() {
+        return leaseExpiry;
+    }
+
+    public Set<String> getFeatureKeys() {
+        return features.keySet();
+    }
+
+    public FeatureDecision decide(final String featureKey) {
+        final FeatureDecision decision = features.get(featureKey);
+        return decision == null ? FeatureDecision.create(featureKey, false, null, null, null, null) : decision;
+    }
+
+    /**
+     * @param maxAge age after which the snapshot is no longer trusted, {@link Duration#ZERO} for no limit
+     * @return {@code true} when the lease of an active snapshot expired, or the snapshot is older than the maximum age
+     */
+    public boolean isStale(final Instant now, final Duration maxAge) {
+        if (!maxAge.isZero() && publishedAt.plus(maxAge).isBefore(now)) {
+            return true;
+        }
+        return state == ActivationState.ACTIVE && leaseExpiry != null && !now.isBefore(leaseExpiry.toInstant());
+    }
+
+    @Override
+    public String toString() {
+        return "ActivationSnapshot{" +
+                "sequence=" + sequence +
+                ", publishedAt=" + publishedAt +
+                ", state=" + state +
+                ", leaseExpiry=" + leaseExpiry +
+                ", features=" + features.keySet() +
+                '}';
+    }
+}
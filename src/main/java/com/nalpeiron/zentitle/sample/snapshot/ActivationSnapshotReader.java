@@ -0,0 +1,229 @@
+package com.nalpeiron.zentitle.sample.snapshot;
+
+import com.nalpeiron.zentitle.sample.FeatureDecision;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the snapshot published by an {@link ActivationSnapshotWriter}, possibly in another process, without taking
+ * the activation lock.
+ * <p>
+ * Once the file is mapped, a read whose sequence did not change since the previous read only compares the sequence
+ * and returns the already decoded snapshot, without any system call. A read that overlaps a publication is retried
+ * a few times; when it keeps failing, or the snapshot is missing or stale, callers fall back to the activation.
+ */
+public class ActivationSnapshotReader implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ActivationSnapshotReader.class);
+    private static final int MAX_ATTEMPTS = 16;
+
+    private final Path file;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final LongAdder snapshotReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    private volatile MappedByteBuffer buffer = null;
+    private FileChannel channel = null;
+    private volatile ActivationSnapshot cached = null;
+
+    public ActivationSnapshotReader(final AppSettings.Snapshot settings) {
+        this(SnapshotLayout.resolveFile(settings), Duration.ofSeconds(settings.getMaxAgeSeconds()), Clock.systemUTC());
+    }
+
+    /**
+     * @param maxAge age after which a snapshot is no longer trusted, {@link Duration#ZERO} for no limit
+     */
+    public ActivationSnapshotReader(final Path file, final Duration maxAge, final Clock clock) {
+        this.file = Objects.requireNonNull(file, "File must not be null");
+        this.maxAge = Objects.requireNonNull(maxAge, "Max age must not be null");
+        Validate.isTrue(!maxAge.isNegative(), "Max age must not be negative");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+    }
+
+    /**
+     * @return the published snapshot, empty when there is none, it is stale or could not be read consistently
+     */
+    public Optional<ActivationSnapshot> read() {
+        final ActivationSnapshot snapshot = readConsistent();
+        if (snapshot == null || snapshot.isStale(clock.instant(), maxAge)) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot);
+    }
+
+    /**
+     * Decides from the snapshot, or with the fallback, typically the feature gate of a licensing runtime, when no
+     * usable snapshot is available.
+     */
+    public FeatureDecision check(final String featureKey, final Function<String, FeatureDecision> fallback) {
+        final Optional<ActivationSnapshot> snapshot = read();
+        if (snapshot.isPresent()) {
+            snapshotReads.increment();
+            return snapshot.get().decide(featureKey);
+        }
+        fallbacks.increment();
+        return fallback.apply(featureKey);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getSnapshotReads() {
+        return snapshotReads.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * @return reads repeated because they overlapped a publication, saw an inconsistent payload or found the file grown
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer = null;
+        cached = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private ActivationSnapshot readConsistent() {
+        final MappedByteBuffer current = buffer;
+        MappedByteBuffer mapped = current != null ? current : map();
+        if (mapped == null) {
+            return null;
+        }
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                retries.increment();
+                Thread.onSpinWait();
+            }
+            final long sequence = (long) SnapshotLayout.LONGS.getAcquire(mapped, SnapshotLayout.SEQUENCE_OFFSET);
+            final ActivationSnapshot decoded = cached;
+            if (decoded != null && decoded.getSequence() == sequence) {
+                return decoded;
+            }
+            if ((sequence & 1) != 0) {
+                continue;
+            }
+
+            final int length = mapped.getInt(SnapshotLayout.LENGTH_OFFSET);
+            final long expectedChecksum = mapped.getLong(SnapshotLayout.CHECKSUM_OFFSET);
+            final boolean beyondMapping = length > mapped.capacity() - SnapshotLayout.HEADER_SIZE;
+            final byte[] payload = length > 0 && !beyondMapping ? new byte[length] : null;
+            if (payload != null) {
+                mapped.get(SnapshotLayout.HEADER_SIZE, payload);
+            }
+            // the payload copy must be complete before the sequence is checked again
+            VarHandle.loadLoadFence();
+            if ((long) SnapshotLayout.LONGS.getVolatile(mapped, SnapshotLayout.SEQUENCE_OFFSET) != sequence) {
+                continue;
+            }
+            if (beyondMapping) {
+                // a writer with a larger capacity grew the file after it was mapped
+                mapped = remap(mapped);
+                if (mapped == null) {
+                    return null;
+                }
+                continue;
+            }
+            if (payload == null) {
+                // withdrawn, or never published
+                return null;
+            }
+
+            final CRC32C checksum = new CRC32C();
+            checksum.update(payload);
+            // a matching sequence with a mismatching checksum means a writer died while publishing
+            if (checksum.getValue() != expectedChecksum) {
+                continue;
+            }
+            try {
+                final ActivationSnapshot snapshot = SnapshotLayout.decode(sequence, ByteBuffer.wrap(payload));
+                cached = snapshot;
+                return snapshot;
+            } catch (final RuntimeException exception) {
+                logger.warn("Failed to decode activation snapshot {}", file, exception);
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a mapping of the whole file as it is now, {@code null} when it cannot be mapped
+     */
+    private synchronized MappedByteBuffer remap(final MappedByteBuffer stale) {
+        if (buffer == stale) {
+            logger.debug("Activation snapshot {} grew, mapping it again", file);
+            buffer = null;
+            cached = null;
+            try {
+                channel.close();
+            } catch (final IOException exception) {
+                logger.debug("Failed to close the previous mapping of {}", file, exception);
+            }
+            channel = null;
+        }
+        return map();
+    }
+
+    private synchronized MappedByteBuffer map() {
+        if (buffer != null) {
+            return buffer;
+        }
+        try {
+            final FileChannel opened = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                if (opened.size() <= SnapshotLayout.HEADER_SIZE) {
+                    opened.close();
+                    return null;
+                }
+                final MappedByteBuffer mapped = opened.map(FileChannel.MapMode.READ_ONLY, 0, opened.size());
+                if (mapped.getInt(SnapshotLayout.MAGIC_OFFSET) != SnapshotLayout.MAGIC
+                        || mapped.getInt(SnapshotLayout.FORMAT_OFFSET) != SnapshotLayout.FORMAT) {
+                    logger.warn("File {} is not an activation snapshot of format {}", file, SnapshotLayout.FORMAT);
+                    opened.close();
+                    return null;
+                }
+                channel = opened;
+                buffer = mapped;
+                return mapped;
+            } catch (final IOException | RuntimeException exception) {
+                opened.close();
+                throw exception;
+            }
+        } catch (final NoSuchFileException exception) {
+            return null;
+        } catch (final IOException exception) {
+            logger.warn("Failed to map activation snapshot {}", file, exception);
+            return null;
+        }
+    }
+}
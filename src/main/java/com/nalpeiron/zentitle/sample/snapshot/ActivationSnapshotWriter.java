@@ -0,0 +1,171 @@
+package com.nalpeiron.zentitle.sample.snapshot;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Clock;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Publishes the activation into a memory-mapped file, from which {@link ActivationSnapshotReader}s in other
+ * processes check entitlement without the activation lock.
+ * <p>
+ * The snapshot is a non-authoritative copy for fast checks: the activation and its storage stay the only source of
+ * truth, readers stop trusting a snapshot after 'Snapshot.MaxAgeSeconds', and nothing is ever changed through it.
+ * The file is created readable and writable by its owner only, where the file system supports POSIX permissions.
+ * <p>
+ * Publish only while holding the activation lock, e.g. from a state transition callback or within
+ * {@code executeWithLock}: the system lock is what keeps writers of different processes apart. Every publication
+ * follows the seqlock protocol, the sequence in the header is made odd before the payload is changed and even
+ * again afterwards, so readers can detect and retry a read that overlapped a publication.
+ */
+public class ActivationSnapshotWriter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ActivationSnapshotWriter.class);
+    private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+
+    private final Path file;
+    private final Clock clock;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer payload;
+    private final CRC32C checksum = new CRC32C();
+    private boolean overflowLogged = false;
+
+    public ActivationSnapshotWriter(final AppSettings.Snapshot settings) throws IOException {
+        this(SnapshotLayout.resolveFile(settings), settings.getCapacityBytes(), Clock.systemUTC());
+    }
+
+    public ActivationSnapshotWriter(final Path file, final int capacityBytes, final Clock clock) throws IOException {
+        Validate.isTrue(capacityBytes > SnapshotLayout.HEADER_SIZE, "Snapshot capacity must exceed the %d byte header",
+                SnapshotLayout.HEADER_SIZE);
+        this.file = Objects.requireNonNull(file, "File must not be null");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        final boolean posix = file.getFileSystem().supportedFileAttributeViews().contains("posix");
+        channel = posix
+                ? FileChannel.open(file, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                        PosixFilePermissions.asFileAttribute(OWNER_ONLY))
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // a file created before by a version without owner-only permissions
+            if (posix && !Files.getPosixFilePermissions(file).equals(OWNER_ONLY)) {
+                Files.setPosixFilePermissions(file, OWNER_ONLY);
+            }
+            // readers of an older, smaller file must keep seeing the header at the same place
+            final long size = Math.max(capacityBytes, channel.size());
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (final IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+        payload = ByteBuffer.allocate(buffer.capacity() - SnapshotLayout.HEADER_SIZE);
+        // a file written by another process keeps its sequence, so that its readers see the next publication as new
+        if (buffer.getInt(SnapshotLayout.MAGIC_OFFSET) != SnapshotLayout.MAGIC
+                || buffer.getInt(SnapshotLayout.FORMAT_OFFSET) != SnapshotLayout.FORMAT) {
+            buffer.putInt(SnapshotLayout.LENGTH_OFFSET, 0);
+            buffer.putInt(SnapshotLayout.FORMAT_OFFSET, SnapshotLayout.FORMAT);
+            buffer.putInt(SnapshotLayout.MAGIC_OFFSET, SnapshotLayout.MAGIC);
+        }
+    }
+
+    /**
+     * Publishes the state, lease expiry and features of the activation. When they do not fit into the file, the
+     * snapshot is withdrawn instead, so that readers fall back to the activation. An activation that is not
+     * activated is published as {@link #publishNotActivated()}.
+     */
+    public synchronized void publish(final IActivation activation) {
+        // a deactivated activation may still list the features it had
+        if (activation.getState() == ActivationState.NOT_ACTIVATED) {
+            publishNotActivated();
+            return;
+        }
+        if (!SnapshotLayout.encode(activation, clock.millis(), payload)) {
+            if (!overflowLogged) {
+                logger.warn("Activation does not fit into the {} byte snapshot {}, increase 'Snapshot.CapacityBytes'",
+                        buffer.capacity(), file);
+                overflowLogged = true;
+            }
+            withdraw();
+            return;
+        }
+        checksum.reset();
+        checksum.update(payload.duplicate());
+        write(payload, checksum.getValue());
+    }
+
+    /**
+     * Publishes that there is no activation, e.g. after a deactivation, so that readers deny every feature instead
+     * of trusting the last published features.
+     */
+    public synchronized void publishNotActivated() {
+        SnapshotLayout.encodeNotActivated(clock.millis(), payload);
+        checksum.reset();
+        checksum.update(payload.duplicate());
+        write(payload, checksum.getValue());
+    }
+
+    /**
+     * Marks the snapshot as unavailable, readers fall back to the activation until the next publication.
+     */
+    public synchronized void withdraw() {
+        write(null, 0);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return sequence of the last publication, even unless a publication is in progress or was interrupted
+     */
+    public long getSequence() {
+        return (long) SnapshotLayout.LONGS.getVolatile(buffer, SnapshotLayout.SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Publishes {@link #publishNotActivated()} and closes the file, so that readers do not keep trusting an
+     * activation whose changes are no longer published. Close while holding the activation lock, like publishing.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        publishNotActivated();
+        buffer.force();
+        channel.close();
+    }
+
+    private void write(final ByteBuffer data, final long dataChecksum) {
+        final long sequence = (long) SnapshotLayout.LONGS.getVolatile(buffer, SnapshotLayout.SEQUENCE_OFFSET);
+        // an odd sequence was left behind by a writer that died while publishing, skip to the next odd one
+        final long writing = (sequence & 1) == 0 ? sequence + 1 : sequence + 2;
+        SnapshotLayout.LONGS.setVolatile(buffer, SnapshotLayout.SEQUENCE_OFFSET, writing);
+        // the odd sequence must be visible before any payload byte changes
+        VarHandle.storeStoreFence();
+        if (data == null) {
+            buffer.putInt(SnapshotLayout.LENGTH_OFFSET, 0);
+        } else {
+            buffer.put(SnapshotLayout.HEADER_SIZE, data, 0, data.limit());
+            buffer.putInt(SnapshotLayout.LENGTH_OFFSET, data.limit());
+            buffer.putLong(SnapshotLayout.CHECKSUM_OFFSET, dataChecksum);
+        }
+        SnapshotLayout.LONGS.setRelease(buffer, SnapshotLayout.SEQUENCE_OFFSET, writing + 1);
+    }
+}
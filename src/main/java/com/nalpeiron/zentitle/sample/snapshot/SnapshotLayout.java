@@ -0,0 +1,137 @@
+package com.nalpeiron.zentitle.sample.snapshot;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
+import com.nalpeiron.zentitle.sample.FeatureDecision;
+import com.nalpeiron.zentitle.sample.LicenseStorage;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary layout of the snapshot file, shared by the writer and the readers.
+ * <pre>
+ * header, 64 bytes   magic (int), format (int), sequence (long), payload length (int), unused (int), CRC32C of the payload (long)
+ * payload            published at (long, epoch millis), state (byte, ordinal), lease expiry (long, epoch millis),
+ *                    feature count (int), per feature: key length (short), key (UTF-8), type (byte, ordinal),
+ *                    active, available and total (long each)
+ * </pre>
+ * The sequence is odd while the writer is changing the payload. Absent values are stored as {@link #NONE}, and a
+ * payload length of 0 means that no snapshot is available.
+ */
+final class SnapshotLayout {
+    static final int MAGIC = 0x5A534E50;
+    static final int FORMAT = 1;
+    static final int MAGIC_OFFSET = 0;
+    static final int FORMAT_OFFSET = 4;
+    static final int SEQUENCE_OFFSET = 8;
+    static final int LENGTH_OFFSET = 16;
+    static final int CHECKSUM_OFFSET = 24;
+    static final int HEADER_SIZE = 64;
+    static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * Gives the sequence volatile, acquire and release access ordering the payload accesses, also across processes
+     * mapping the same file.
+     */
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final ActivationState[] STATES = ActivationState.values();
+    private static final FeatureType[] FEATURE_TYPES = FeatureType.values();
+
+    private SnapshotLayout() {
+    }
+
+    static Path resolveFile(final AppSettings.Snapshot settings) {
+        return StringUtils.isBlank(settings.getFile())
+                ? LicenseStorage.appDirectory().resolve("activation.snapshot")
+                : Paths.get(settings.getFile());
+    }
+
+    /**
+     * @return {@code false} when the payload does not fit into the buffer
+     */
+    static boolean encode(final IActivation activation, final long publishedAtMillis, final ByteBuffer payload) {
+        payload.clear();
+        try {
+            payload.putLong(publishedAtMillis);
+            payload.put((byte) activation.getState().ordinal());
+            payload.putLong(toMillis(activation.getInfo().getLeaseExpiry()));
+            final Iterable<IActivationFeature> features = activation.getInfo().getFeatures();
+            final int countPosition = payload.position();
+            payload.putInt(0);
+            int count = 0;
+            for (final IActivationFeature feature : features) {
+                final byte[] key = feature.getKey().getBytes(StandardCharsets.UTF_8);
+                payload.putShort((short) key.length);
+                payload.put(key);
+                payload.put(feature.getType() == null ? -1 : (byte) feature.getType().ordinal());
+                payload.putLong(feature.getActive() == null ? NONE : feature.getActive());
+                payload.putLong(feature.getAvailable() == null ? NONE : feature.getAvailable());
+                payload.putLong(feature.getTotal() == null ? NONE : feature.getTotal());
+                count++;
+            }
+            payload.putInt(countPosition, count);
+        } catch (final BufferOverflowException exception) {
+            return false;
+        }
+        payload.flip();
+        return true;
+    }
+
+    /**
+     * Encodes a snapshot of an activation that is not activated, without lease expiry and features.
+     */
+    static void encodeNotActivated(final long publishedAtMillis, final ByteBuffer payload) {
+        payload.clear();
+        payload.putLong(publishedAtMillis);
+        payload.put((byte) ActivationState.NOT_ACTIVATED.ordinal());
+        payload.putLong(NONE);
+        payload.putInt(0);
+        payload.flip();
+    }
+
+    static ActivationSnapshot decode(final long sequence, final ByteBuffer payload) {
+        final Instant publishedAt = Instant.ofEpochMilli(payload.getLong());
+        final ActivationState state = STATES[payload.get()];
+        final long leaseExpiryMillis = payload.getLong();
+        final OffsetDateTime leaseExpiry = leaseExpiryMillis == NONE
+                ? null
+                : OffsetDateTime.ofInstant(Instant.ofEpochMilli(leaseExpiryMillis), ZoneOffset.UTC);
+        final boolean allowed = state == ActivationState.ACTIVE;
+        final int count = payload.getInt();
+        final Map<String, FeatureDecision> features = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            final byte[] key = new byte[payload.getShort() & 0xFFFF];
+            payload.get(key);
+            final byte type = payload.get();
+            final String featureKey = new String(key, StandardCharsets.UTF_8);
+            features.put(featureKey, FeatureDecision.create(featureKey, allowed, type < 0 ? null : FEATURE_TYPES[type],
+                    fromStored(payload.getLong()), fromStored(payload.getLong()), fromStored(payload.getLong())));
+        }
+        return new ActivationSnapshot(sequence, publishedAt, state, leaseExpiry, features);
+    }
+
+    private static long toMillis(final OffsetDateTime dateTime) {
+        return dateTime == null ? NONE : dateTime.toInstant().toEpochMilli();
+    }
+
+    private static Long fromStored(final long value) {
+        return value == NONE ? null : value;
+    }
+}
@@ -0,0 +1,64 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryActivationStorageTest {
+    private static final ObjectMapper objectMapper = ObjectMapperFactory.createStrict();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsTheSavedDataUnchanged() throws IOException {
+        final BinaryActivationStorage storage = createStorage();
+        final PersistentData saved = createData();
+
+        storage.save(saved);
+
+        // a storage dropping a field would lose it from the activation on the next start
+        assertEquals(objectMapper.valueToTree(saved), objectMapper.valueToTree(storage.load()));
+    }
+
+    @Test
+    void rejectsChecksumMismatch() throws IOException {
+        final byte[] content = BinaryActivationStorage.encode(createData());
+        content[content.length - 1] ^= 1;
+        Files.write(directory.resolve("license.bin"), content);
+
+        assertThrows(IllegalStateException.class, createStorage()::load);
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Files.write(directory.resolve("license.bin"), "{\"not\":\"binary\"}".getBytes());
+
+        assertThrows(IllegalStateException.class, createStorage()::load);
+    }
+
+    @Test
+    void rejectsUnknownVersion() throws IOException {
+        final byte[] content = BinaryActivationStorage.encode(createData());
+        content[4] = 2;
+        Files.write(directory.resolve("license.bin"), content);
+
+        assertThrows(IllegalStateException.class, createStorage()::load);
+    }
+
+    private BinaryActivationStorage createStorage() {
+        return new BinaryActivationStorage(directory.resolve("license.bin"), directory.resolve("license.json"));
+    }
+
+    private static PersistentData createData() throws IOException {
+        return objectMapper.readValue("{}", PersistentData.class);
+    }
+}
@@ -0,0 +1,67 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryTreeCodecTest {
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    @Test
+    void roundTripsEveryNodeType() throws IOException {
+        final ObjectNode tree = nodes.objectNode();
+        tree.putNull("null");
+        tree.put("false", false);
+        tree.put("true", true);
+        tree.put("zero", 0);
+        tree.put("negative", -1);
+        tree.put("min", Long.MIN_VALUE);
+        tree.put("max", Long.MAX_VALUE);
+        tree.put("double", 0.1d);
+        tree.put("bigInteger", BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TEN));
+        tree.put("decimal", new BigDecimal("12345.678900"));
+        tree.put("string", "Zentitle \u2013 licen\u00e7a \uD83D\uDD11");
+        tree.put("empty", "");
+        tree.put("binary", new byte[]{0, 1, (byte) 0xFF});
+        tree.putArray("array").add(1).add("two").addNull().addObject().put("string", "nested");
+        tree.putObject("object").putObject("object").put("double", -2.5e-300d);
+
+        assertEquals(tree, roundTrip(tree));
+    }
+
+    @Test
+    void writesRepeatedKeysOnce() {
+        final ObjectNode tree = nodes.objectNode();
+        final ArrayNode features = tree.putArray("features");
+        for (int i = 0; i < 100; i++) {
+            features.addObject().put("featureKey", "feature-" + i);
+        }
+
+        final int length = BinaryTreeCodec.encode(tree).length;
+        assertTrue(length < 100 * ("featureKey".length() + "feature-00".length()), "encoded to " + length + " bytes");
+    }
+
+    @Test
+    void rejectsTruncatedInput() {
+        final ObjectNode tree = nodes.objectNode();
+        tree.put("string", "truncated");
+        final byte[] encoded = BinaryTreeCodec.encode(tree);
+
+        assertThrows(IOException.class, () -> BinaryTreeCodec.decode(ByteBuffer.wrap(encoded, 0, encoded.length - 1).slice()));
+    }
+
+    private static JsonNode roundTrip(final JsonNode tree) throws IOException {
+        return BinaryTreeCodec.decode(ByteBuffer.wrap(BinaryTreeCodec.encode(tree)));
+    }
+}
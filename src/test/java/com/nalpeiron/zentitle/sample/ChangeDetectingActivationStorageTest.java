@@ -0,0 +1,131 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.persistence.PersistentData;
+import com.nalpeiron.zentitle.licensingclient.persistence.storage.IActivationStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ChangeDetectingActivationStorageTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsAnUnchangedFileOnce() {
+        final FileStorage delegate = new FileStorage(directory.resolve("license.json"));
+        delegate.save(createData());
+        final ChangeDetectingActivationStorage storage = new ChangeDetectingActivationStorage(delegate, delegate.file);
+
+        final PersistentData first = storage.load();
+
+        assertSame(first, storage.load());
+        assertEquals(1, delegate.loads.get());
+        assertEquals(1, storage.getHits());
+        assertEquals(1, storage.getMisses());
+    }
+
+    @Test
+    void servesSavedDataWithoutLoading() {
+        final FileStorage delegate = new FileStorage(directory.resolve("license.json"));
+        final ChangeDetectingActivationStorage storage = new ChangeDetectingActivationStorage(delegate, delegate.file);
+        final PersistentData saved = createData();
+
+        storage.save(saved);
+
+        assertSame(saved, storage.load());
+        assertEquals(0, delegate.loads.get());
+    }
+
+    @Test
+    void reportsAndReloadsAnExternalChange() throws IOException {
+        final FileStorage delegate = new FileStorage(directory.resolve("license.json"));
+        final ChangeDetectingActivationStorage storage = new ChangeDetectingActivationStorage(delegate, delegate.file);
+        final AtomicInteger changes = new AtomicInteger();
+        storage.setExternalChangeListener(changes::incrementAndGet);
+        storage.save(createData());
+
+        Files.writeString(delegate.file, "written by another process");
+        storage.checkForExternalChange();
+        storage.load();
+
+        assertEquals(1, changes.get());
+        assertEquals(1, delegate.loads.get());
+    }
+
+    @Test
+    void detectsAReplacedFileOfTheSameSizeAndModificationTime() throws IOException {
+        final FileStorage delegate = new FileStorage(directory.resolve("license.json"));
+        delegate.save(createData());
+        final ChangeDetectingActivationStorage storage = new ChangeDetectingActivationStorage(delegate, delegate.file);
+        final PersistentData first = storage.load();
+
+        final FileTime modified = Files.getLastModifiedTime(delegate.file);
+        final Path replacement = Files.write(directory.resolve("replacement"), Files.readAllBytes(delegate.file));
+        Files.setLastModifiedTime(replacement, modified);
+        Files.move(replacement, delegate.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        assertNotSame(first, storage.load());
+        assertEquals(2, delegate.loads.get());
+    }
+
+    private static PersistentData createData() {
+        try {
+            return ObjectMapperFactory.create().readValue("{}", PersistentData.class);
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Storage writing a marker to the file and counting its loads, each of which returns a new instance.
+     */
+    private static final class FileStorage implements IActivationStorage {
+        private final Path file;
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private FileStorage(final Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public PersistentData load() {
+            loads.incrementAndGet();
+            return createData();
+        }
+
+        @Override
+        public void save(final PersistentData data) {
+            try {
+                Files.writeString(file, "saved");
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        @Override
+        public void clear() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        @Override
+        public String getStorageId() {
+            return file.toString();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ActivationState;
+import com.nalpeiron.zentitle.licensingclient.IActivation;
+import com.nalpeiron.zentitle.licensingclient.IActivationFeature;
+import com.nalpeiron.zentitle.licensingclient.IActivationInfo;
+import com.nalpeiron.zentitle.licensingclient.IFeatures;
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-memory activation for tests: features with unit counts that checkouts and returns change like the licensing
+ * API would, and an activation lock. The library interfaces are implemented through proxies, so that methods the
+ * tests do not use need no implementation.
+ */
+final class FakeActivation {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Feature> features = new LinkedHashMap<>();
+    private final ISharedActivation activation;
+    private final OffsetDateTime leaseExpiry = OffsetDateTime.now().plusHours(1);
+    private final Set<String> rejectedUsage = new HashSet<>();
+
+    FakeActivation() {
+        final IActivationInfo info = proxy(IActivationInfo.class, (method, args) -> {
+            switch (method) {
+                case "getLeaseExpiry":
+                    return leaseExpiry;
+                case "getFeatures":
+                    final List<IActivationFeature> list = new ArrayList<>();
+                    features.values().forEach(feature -> list.add(feature.view));
+                    return list;
+                default:
+                    return null;
+            }
+        });
+        final IFeatures featureLookup = proxy(IFeatures.class, (method, args) ->
+                Optional.ofNullable(features.get((String) args[0])).map(feature -> feature.view));
+        activation = proxy(ISharedActivation.class, (method, args) -> {
+            switch (method) {
+                case "executeWithLock":
+                    return executeWithLock(args[0]);
+                case "getState":
+                    return ActivationState.ACTIVE;
+                case "getInfo":
+                    return info;
+                case "getFeatures":
+                    return featureLookup;
+                case "checkoutFeature":
+                    checkout(((IActivationFeature) args[0]).getKey(), (Long) args[1]);
+                    return null;
+                case "returnFeature":
+                    giveBack(((IActivationFeature) args[0]).getKey(), (Long) args[1]);
+                    return null;
+                case "trackFeatureUsage":
+                    trackUsage(((IActivationFeature) args[0]).getKey());
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    FakeActivation withFeature(final String key, final FeatureType type, final Long total) {
+        features.put(key, new Feature(key, type, total));
+        return this;
+    }
+
+    ISharedActivation get() {
+        return activation;
+    }
+
+    /**
+     * Makes every usage call of the feature fail.
+     */
+    synchronized FakeActivation rejectUsage(final String key) {
+        rejectedUsage.add(key);
+        return this;
+    }
+
+    synchronized long getActive(final String key) {
+        return features.get(key).active;
+    }
+
+    synchronized long getTrackedUsage(final String key) {
+        return features.get(key).usage;
+    }
+
+    private Object executeWithLock(final Object call) {
+        lock.lock();
+        try {
+            if (call instanceof Function) {
+                @SuppressWarnings("unchecked") final Function<IActivation, Object> function = (Function<IActivation, Object>) call;
+                return function.apply(activation);
+            }
+            @SuppressWarnings("unchecked") final Consumer<IActivation> consumer = (Consumer<IActivation>) call;
+            consumer.accept(activation);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private synchronized void checkout(final String key, final long amount) {
+        final Feature feature = features.get(key);
+        if (feature.total != null && feature.active + amount > feature.total) {
+            throw new IllegalStateException("Not enough units of feature '" + key + "'");
+        }
+        feature.active += amount;
+    }
+
+    private synchronized void giveBack(final String key, final long amount) {
+        final Feature feature = features.get(key);
+        if (amount > feature.active) {
+            throw new IllegalStateException("Feature '" + key + "' has only " + feature.active + " units checked out");
+        }
+        feature.active -= amount;
+    }
+
+    private synchronized void trackUsage(final String key) {
+        if (rejectedUsage.contains(key)) {
+            throw new IllegalStateException("Usage of feature '" + key + "' rejected");
+        }
+        features.get(key).usage++;
+    }
+
+    private static <T> T proxy(final Class<T> type, final Handler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeActivation.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                        default:
+                            return handler.handle(method.getName(), args);
+                    }
+                }));
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+
+    private final class Feature {
+        private final Long total;
+        private final IActivationFeature view;
+        private long active = 0;
+        private long usage = 0;
+
+        private Feature(final String key, final FeatureType type, final Long total) {
+            this.total = total;
+            this.view = proxy(IActivationFeature.class, (method, args) -> {
+                synchronized (FakeActivation.this) {
+                    switch (method) {
+                        case "getKey":
+                            return key;
+                        case "getType":
+                            return type;
+                        case "getActive":
+                            return total == null ? null : active;
+                        case "getAvailable":
+                            return total == null ? null : total - active;
+                        case "getTotal":
+                            return total;
+                        default:
+                            return null;
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeatureReservationPoolTest {
+    private static final String FEATURE_KEY = "element-pool-feature";
+    private static final long AVAILABLE = 25;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final FakeActivation activation = new FakeActivation().withFeature(FEATURE_KEY, FeatureType.ELEMENT_POOL, AVAILABLE);
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void handsOutEveryAvailableUnitWithFewerServerCheckouts() {
+        try (final FeatureReservationPool pool = createPool()) {
+            for (long i = 0; i < AVAILABLE; i++) {
+                assertTrue(pool.tryAcquire(), "unit " + i + " of " + AVAILABLE);
+            }
+            assertFalse(pool.tryAcquire(), "more units than available");
+            assertEquals(AVAILABLE, pool.getUnitsInUse());
+            // chunks of 10: 10 + 10 + 5
+            assertEquals(3, pool.getServerCheckouts());
+            assertEquals(AVAILABLE, activation.getActive(FEATURE_KEY));
+        }
+    }
+
+    @Test
+    void reusesReleasedUnitsWithoutServerCheckouts() {
+        try (final FeatureReservationPool pool = createPool()) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(pool.tryAcquire());
+                pool.release();
+            }
+            assertEquals(1, pool.getServerCheckouts());
+            assertEquals(100, pool.getAcquisitions());
+        }
+    }
+
+    @Test
+    void returnsUnusedUnitsOnClose() {
+        final FeatureReservationPool pool = createPool();
+        for (long i = 0; i < AVAILABLE; i++) {
+            assertTrue(pool.tryAcquire());
+        }
+        for (long i = 0; i < AVAILABLE; i++) {
+            pool.release();
+        }
+        pool.close();
+        assertEquals(0, activation.getActive(FEATURE_KEY));
+        assertEquals(0, pool.getLocalUnits());
+    }
+
+    @Test
+    void keepsUnitsInUseCheckedOutOnClose() {
+        final FeatureReservationPool pool = createPool();
+        assertTrue(pool.tryAcquire());
+        pool.close();
+        assertEquals(1, activation.getActive(FEATURE_KEY));
+        // released after close, nothing hands it out again
+        pool.release();
+        assertEquals(0, activation.getActive(FEATURE_KEY));
+    }
+
+    @Test
+    void rejectsReleaseWithoutUnitInUse() {
+        try (final FeatureReservationPool pool = createPool()) {
+            assertThrows(IllegalStateException.class, pool::release);
+            assertTrue(pool.tryAcquire());
+            pool.release();
+            assertThrows(IllegalStateException.class, pool::release);
+        }
+    }
+
+    @Test
+    void rejectsFeaturesThatAreNotElementPools() {
+        activation.withFeature("bool-feature", FeatureType.BOOL, null);
+        try (final FeatureReservationPool pool = new FeatureReservationPool(activation.get(), "bool-feature",
+                new AppSettings.FeatureReservation(), executor, null)) {
+            assertThrows(IllegalStateException.class, pool::tryAcquire);
+        }
+    }
+
+    private FeatureReservationPool createPool() {
+        return new FeatureReservationPool(activation.get(), FEATURE_KEY, new AppSettings.FeatureReservation(), executor, null);
+    }
+}
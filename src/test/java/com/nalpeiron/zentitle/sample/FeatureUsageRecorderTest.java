@@ -0,0 +1,96 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.api.model.FeatureType;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeatureUsageRecorderTest {
+    private static final int MAX_SEND_ATTEMPTS = 3;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+    private final FakeActivation activation = new FakeActivation()
+            .withFeature("good", FeatureType.BOOL, null)
+            .withFeature("rejected", FeatureType.BOOL, null)
+            .rejectUsage("rejected");
+
+    @AfterEach
+    void shutDown() {
+        flusher.shutdownNow();
+    }
+
+    @Test
+    void reportsCoalescedUsage() throws IOException {
+        activation.withFeature("other", FeatureType.BOOL, null);
+        final FeatureUsageRecorder recorder = createRecorder("DROP", 100);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(recorder.record("good"));
+            assertTrue(recorder.record("other"));
+        }
+
+        recorder.flush();
+
+        assertEquals(50, activation.getTrackedUsage("good"));
+        assertEquals(50, activation.getTrackedUsage("other"));
+        assertEquals(0, recorder.getPendingEvents());
+    }
+
+    @Test
+    void dropsUsageOfAFeatureAfterRepeatedFailures() throws IOException {
+        final FeatureUsageRecorder recorder = createRecorder("DROP", 100);
+        recorder.record("rejected");
+        recorder.record("rejected");
+        recorder.record("good");
+
+        for (int attempt = 1; attempt < MAX_SEND_ATTEMPTS; attempt++) {
+            assertThrows(IllegalStateException.class, recorder::flush);
+            assertTrue(recorder.getPendingEvents() >= 2, "usage of the failing feature is retried");
+        }
+        assertThrows(IllegalStateException.class, recorder::flush);
+
+        // the failing feature goes last after its first failure, it does not hold back the others
+        assertEquals(1, activation.getTrackedUsage("good"));
+        assertEquals(0, recorder.getPendingEvents());
+        assertEquals(2, recorder.getDroppedEvents());
+        recorder.flush();
+        assertEquals(0, activation.getTrackedUsage("rejected"));
+    }
+
+    @Test
+    void flushesInTheCallerWhenFull() throws IOException {
+        final FeatureUsageRecorder recorder = createRecorder("FLUSH_IN_CALLER", 2);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(recorder.record("good"));
+        }
+
+        assertTrue(recorder.getPendingEvents() <= 2);
+        assertEquals(5, activation.getTrackedUsage("good") + recorder.getPendingEvents());
+    }
+
+    @Test
+    void dropsWhenFull() throws IOException {
+        final FeatureUsageRecorder recorder = createRecorder("DROP", 2);
+        assertTrue(recorder.record("good"));
+        assertTrue(recorder.record("good"));
+
+        assertFalse(recorder.record("good"));
+        assertEquals(1, recorder.getDroppedEvents());
+    }
+
+    private FeatureUsageRecorder createRecorder(final String overflowPolicy, final int maxPendingEvents) throws IOException {
+        // flushed by the tests only
+        final AppSettings.UsageTracking settings = ObjectMapperFactory.create().readValue("{\"FlushIntervalMillis\": 3600000, "
+                + "\"MaxPendingEvents\": " + maxPendingEvents + ", \"OverflowPolicy\": \"" + overflowPolicy + "\", "
+                + "\"MaxSendAttempts\": " + MAX_SEND_ATTEMPTS + "}", AppSettings.UsageTracking.class);
+        return new FeatureUsageRecorder(activation.get(), settings, flusher);
+    }
+}
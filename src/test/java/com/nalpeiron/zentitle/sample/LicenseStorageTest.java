@@ -0,0 +1,35 @@
+package com.nalpeiron.zentitle.sample;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LicenseStorageTest {
+
+    @Test
+    void keepsSafeCharacters() {
+        assertEquals("seat-0042", LicenseStorage.toFileName("seat-0042"));
+    }
+
+    @Test
+    void escapesOtherCharacters() {
+        assertEquals("a_002fb", LicenseStorage.toFileName("a/b"));
+        assertEquals("a_005fb", LicenseStorage.toFileName("a_b"));
+        assertEquals("_0041", LicenseStorage.toFileName("A"));
+        assertEquals("_00e9", LicenseStorage.toFileName("\u00e9"));
+    }
+
+    @Test
+    void distinctValuesGetDistinctNamesIgnoringCase() {
+        final String[] values = {"a/b", "a_b", "a.b", "a b", "A/b", "a_002fb", "Ab", "ab", "..", "_", ""};
+        final Set<String> names = new HashSet<>();
+        for (final String value : values) {
+            assertTrue(names.add(LicenseStorage.toFileName(value).toLowerCase(Locale.ROOT)), "Name of '" + value + "'");
+        }
+    }
+}
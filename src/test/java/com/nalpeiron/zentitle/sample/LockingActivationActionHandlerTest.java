@@ -0,0 +1,96 @@
+package com.nalpeiron.zentitle.sample;
+
+import com.nalpeiron.zentitle.licensingclient.ISharedActivation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockingActivationActionHandlerTest {
+    private static final Duration TIMEOUT = Duration.ofMillis(100);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch holding = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void serializesHandlersOfTheSameStorage() throws Exception {
+        final String storageId = uniqueStorageId();
+        final Future<Boolean> holder = holdActionLock(new LockingActivationActionHandler(storageId, TIMEOUT, false));
+
+        // another runtime with an activation of its own over the same storage
+        final LockingActivationActionHandler other = new LockingActivationActionHandler(storageId, TIMEOUT, false);
+        assertThrows(ActivationLockTimeoutException.class, () -> other.lockPullStateAndExecute(a -> {
+        }, new FakeActivation().get()));
+
+        release.countDown();
+        assertTrue(holder.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void doesNotBlockOtherStorages() throws Exception {
+        holdActionLock(new LockingActivationActionHandler(uniqueStorageId(), TIMEOUT, false));
+
+        final LockingActivationActionHandler other = new LockingActivationActionHandler(uniqueStorageId(), TIMEOUT, false);
+        assertTrue(other.lockPullStateAndExecute(a -> {
+        }, new FakeActivation().get()));
+    }
+
+    @Test
+    void failsWhenTheActivationLockTakesPastTheDeadline() throws Exception {
+        final ISharedActivation activation = new FakeActivation().get();
+        executor.submit(() -> activation.executeWithLock(a -> {
+            holding.countDown();
+            await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        executor.submit(() -> {
+            Thread.sleep(TIMEOUT.toMillis() * 3);
+            release.countDown();
+            return null;
+        });
+
+        final AtomicBoolean executed = new AtomicBoolean();
+        final LockingActivationActionHandler handler = new LockingActivationActionHandler(uniqueStorageId(), TIMEOUT, false);
+        assertThrows(ActivationLockTimeoutException.class, () -> handler.lockPullStateAndExecute(a -> executed.set(true), activation));
+        assertFalse(executed.get());
+    }
+
+    private Future<Boolean> holdActionLock(final LockingActivationActionHandler handler) throws InterruptedException {
+        final Future<Boolean> holder = executor.submit(() -> handler.lockPullStateAndExecute(a -> {
+            holding.countDown();
+            await(release);
+        }, new FakeActivation().get()));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        return holder;
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String uniqueStorageId() {
+        return "/tmp/license-" + UUID.randomUUID() + ".json";
+    }
+}
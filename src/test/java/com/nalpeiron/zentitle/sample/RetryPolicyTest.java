@@ -0,0 +1,47 @@
+package com.nalpeiron.zentitle.sample;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    @Test
+    void backoffStaysWithinTheExponentialBound() {
+        final RetryPolicy policy = new RetryPolicy(5, Duration.ofMillis(100), Duration.ofSeconds(10));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.backoff(1).toMillis() <= 100);
+            assertTrue(policy.backoff(3).toMillis() <= 400);
+        }
+    }
+
+    @Test
+    void backoffSaturatesAtTheMaximumForLargeAttempts() {
+        final RetryPolicy policy = new RetryPolicy(5, Duration.ofDays(1), Duration.ofDays(7));
+
+        for (final int attempt : new int[]{40, 64, 1000, Integer.MAX_VALUE}) {
+            final long millis = policy.backoff(attempt).toMillis();
+            assertTrue(millis >= 0 && millis <= Duration.ofDays(7).toMillis(), "Backoff of attempt " + attempt);
+        }
+    }
+
+    @Test
+    void exponentialBoundSaturatesInsteadOfOverflowing() {
+        assertEquals(100, Backoff.exponentialMillis(100, 1_000, 1));
+        assertEquals(800, Backoff.exponentialMillis(100, 1_000, 4));
+        assertEquals(1_000, Backoff.exponentialMillis(100, 1_000, 5));
+        assertEquals(Long.MAX_VALUE, Backoff.exponentialMillis(Long.MAX_VALUE / 2, Long.MAX_VALUE, 10));
+        assertEquals(Long.MAX_VALUE, Backoff.exponentialMillis(3, Long.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void jitterAcceptsTheLargestBound() {
+        assertTrue(Backoff.fullJitter(Long.MAX_VALUE) >= 0);
+        assertTrue(Backoff.equalJitter(Long.MAX_VALUE) >= Long.MAX_VALUE / 2);
+        assertEquals(0, Backoff.fullJitter(0));
+    }
+}
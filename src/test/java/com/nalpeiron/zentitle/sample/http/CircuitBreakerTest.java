@@ -0,0 +1,103 @@
+package com.nalpeiron.zentitle.sample.http;
+
+import com.nalpeiron.zentitle.sample.ObjectMapperFactory;
+import com.nalpeiron.zentitle.sample.options.AppSettings;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void opensAfterConsecutiveFailures() throws IOException {
+        final CircuitBreaker breaker = createBreaker(3, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCalls());
+    }
+
+    @Test
+    void closesAfterSuccessfulProbe() throws IOException {
+        final CircuitBreaker breaker = createBreaker(1, 1);
+        breaker.tryAcquire();
+        breaker.onFailure();
+
+        clock.advance(OPEN_DURATION);
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only one probe at a time");
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void grantsAllProbesAgainAfterReopening() throws IOException {
+        final CircuitBreaker breaker = createBreaker(1, 2);
+        breaker.tryAcquire();
+        breaker.onFailure();
+
+        clock.advance(OPEN_DURATION);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        // the first probe reopens the breaker, the second completes while it is open
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        clock.advance(OPEN_DURATION);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire(), "probe slot of the earlier half-open period leaked");
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private CircuitBreaker createBreaker(final int failureThreshold, final int halfOpenProbes) throws IOException {
+        final AppSettings.CircuitBreaker settings = ObjectMapperFactory.create().readValue("{\"FailureThreshold\": " + failureThreshold
+                + ", \"OpenSeconds\": " + OPEN_DURATION.toSeconds() + ", \"HalfOpenProbes\": " + halfOpenProbes + "}", AppSettings.CircuitBreaker.class);
+        return new CircuitBreaker("test", settings, null, clock);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(final Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
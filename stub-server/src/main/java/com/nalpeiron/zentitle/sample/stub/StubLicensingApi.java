@@ -0,0 +1,273 @@
+package com.nalpeiron.zentitle.sample.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory licensing API state behind the {@link StubLicensingServer}: online activations identified by their
+ * access token, each with a fixed set of features, and optionally a limit of activated seats per product.
+ * <p>
+ * The routes and payloads are made up for this sample. They are modelled on the licensing API, but not taken from
+ * the requests of the licensing client, so the client cannot be pointed at the stub and expected to work. A request
+ * matching no route is answered 404 and recorded, see {@link #getUnmatchedRequests()}, which tells what the routes
+ * lack for a given client.
+ */
+class StubLicensingApi {
+    private static final Logger logger = LoggerFactory.getLogger(StubLicensingApi.class);
+    static final String ACTIVATE = "/api/v1/activate";
+    static final String ACTIVATION = "/api/v1/activation";
+    static final String STATE = ACTIVATION + "/state";
+    static final String REFRESH = ACTIVATION + "/refresh";
+    static final String ENTITLEMENT = ACTIVATION + "/entitlement";
+    static final String CHECKOUT = ACTIVATION + "/features/checkout";
+    static final String RETURN = ACTIVATION + "/features/return";
+    static final String TRACK = ACTIVATION + "/features/track";
+    private static final Set<String> ROUTES = Set.of("POST " + ACTIVATE, "GET " + STATE, "POST " + REFRESH,
+            "GET " + ENTITLEMENT, "POST " + CHECKOUT, "POST " + RETURN, "POST " + TRACK, "DELETE " + ACTIVATION);
+
+    private final ObjectMapper mapper;
+    private final Duration leasePeriod;
+    private final Clock clock;
+    private final int seatLimit;
+    private final ConcurrentHashMap<String, Activation> activations = new ConcurrentHashMap<>();
+    private final Map<String, Integer> seatsInUse = new HashMap<>();
+    private final LongAdder seatLimitRejections = new LongAdder();
+    private final Set<String> unmatchedRequests = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param seatLimit maximum number of activations per product, 0 for no limit
+     */
+    StubLicensingApi(final ObjectMapper mapper, final Duration leasePeriod, final Clock clock, final int seatLimit) {
+        this.mapper = Objects.requireNonNull(mapper, "Mapper must not be null");
+        this.leasePeriod = Objects.requireNonNull(leasePeriod, "Lease period must not be null");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        Validate.isTrue(seatLimit >= 0, "Seat limit must not be negative");
+        this.seatLimit = seatLimit;
+    }
+
+    /**
+     * Handles one API call.
+     *
+     * @param accessToken bearer token of the request, {@code null} when missing
+     * @return response to send, with a {@code null} body for empty responses
+     */
+    Response handle(final String method, final String path, final String accessToken, final JsonNode body) {
+        final String route = method + " " + path;
+        if (!ROUTES.contains(route)) {
+            if (unmatchedRequests.add(route)) {
+                logger.warn("No stub for {}, the stub is not wire-compatible with this client", route);
+            }
+            return Response.error(404, "No stub for " + route);
+        }
+        if ("POST".equals(method) && ACTIVATE.equals(path)) {
+            return activate(body);
+        }
+
+        final Activation activation = accessToken == null ? null : activations.get(accessToken);
+        if (activation == null) {
+            return Response.error(401, "Unknown or missing access token");
+        }
+        switch (route) {
+            case "GET " + STATE:
+                return Response.ok(activation.toJson());
+            case "POST " + REFRESH:
+                return Response.ok(activation.refresh().toJson());
+            case "GET " + ENTITLEMENT:
+                return Response.ok(activation.entitlementJson());
+            case "POST " + CHECKOUT:
+                return activation.changeUsage(text(body, "key"), amount(body));
+            case "POST " + RETURN:
+                return activation.changeUsage(text(body, "key"), -amount(body));
+            case "POST " + TRACK:
+                return activation.changeUsage(text(body, "key"), 0);
+            case "DELETE " + ACTIVATION:
+                deactivate(activation);
+                return Response.noContent();
+            default:
+                throw new IllegalStateException("Unhandled route " + route);
+        }
+    }
+
+    Set<String> getUnmatchedRequests() {
+        return Set.copyOf(unmatchedRequests);
+    }
+
+    int getActivationCount() {
+        return activations.size();
+    }
+
+    long getSeatLimitRejections() {
+        return seatLimitRejections.sum();
+    }
+
+    private Response activate(final JsonNode body) {
+        final String productId = text(body, "productId");
+        final String seatId = text(body, "seatId");
+        if (productId == null || seatId == null) {
+            return Response.error(400, "productId and seatId are required");
+        }
+        final JsonNode seatName = body.get("seatName");
+        final Activation activation = new Activation(UUID.randomUUID().toString(), productId, seatId,
+                seatName == null || seatName.isNull() ? null : seatName.asText());
+        synchronized (seatsInUse) {
+            final int seats = seatsInUse.getOrDefault(productId, 0);
+            if (seatLimit > 0 && seats >= seatLimit) {
+                seatLimitRejections.increment();
+                return Response.error(409, "All " + seatLimit + " seats of product '" + productId + "' are in use");
+            }
+            seatsInUse.put(productId, seats + 1);
+            activations.put(activation.accessToken, activation);
+        }
+        return Response.ok(activation.toJson());
+    }
+
+    private void deactivate(final Activation activation) {
+        synchronized (seatsInUse) {
+            if (activations.remove(activation.accessToken) != null) {
+                seatsInUse.merge(activation.productId, -1, (seats, delta) -> seats + delta == 0 ? null : seats + delta);
+            }
+        }
+    }
+
+    private static String text(final JsonNode body, final String field) {
+        final JsonNode value = body == null ? null : body.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static long amount(final JsonNode body) {
+        final JsonNode value = body == null ? null : body.get("amount");
+        return value == null ? 1 : value.asLong(1);
+    }
+
+    private final class Activation {
+        private final String accessToken;
+        private final String productId;
+        private final String seatId;
+        private final String seatName;
+        private final Map<String, Feature> features = new LinkedHashMap<>();
+        private OffsetDateTime leaseExpiry;
+
+        private Activation(final String accessToken, final String productId, final String seatId, final String seatName) {
+            this.accessToken = accessToken;
+            this.productId = productId;
+            this.seatId = seatId;
+            this.seatName = seatName;
+            this.leaseExpiry = OffsetDateTime.now(clock).plus(leasePeriod);
+            features.put("bool-feature", new Feature("bool-feature", "bool", null));
+            features.put("element-pool-feature", new Feature("element-pool-feature", "elementPool", 10L));
+            features.put("consumption-feature", new Feature("consumption-feature", "consumption", 100L));
+        }
+
+        private synchronized Activation refresh() {
+            leaseExpiry = OffsetDateTime.now(clock).plus(leasePeriod);
+            return this;
+        }
+
+        private synchronized Response changeUsage(final String key, final long delta) {
+            final Feature feature = key == null ? null : features.get(key);
+            if (feature == null) {
+                return Response.error(404, "Unknown feature '" + key + "'");
+            }
+            final long active = feature.active + delta;
+            if (active < 0 || (feature.total != null && active > feature.total)) {
+                return Response.error(409, "Not enough units of feature '" + key + "'");
+            }
+            feature.active = active;
+            return Response.ok(toJson());
+        }
+
+        private synchronized ObjectNode toJson() {
+            final ObjectNode json = mapper.createObjectNode();
+            json.put("accessToken", accessToken);
+            json.put("productId", productId);
+            json.put("seatId", seatId);
+            json.put("seatName", seatName);
+            json.put("mode", "online");
+            json.put("status", "active");
+            json.put("leaseExpiry", leaseExpiry.toString());
+            final ArrayNode featureArray = json.putArray("features");
+            for (final Feature feature : features.values()) {
+                final ObjectNode featureJson = featureArray.addObject();
+                featureJson.put("key", feature.key);
+                featureJson.put("type", feature.type);
+                if (feature.total != null) {
+                    featureJson.put("active", feature.active);
+                    featureJson.put("available", feature.total - feature.active);
+                    featureJson.put("total", feature.total);
+                }
+            }
+            return json;
+        }
+
+        private ObjectNode entitlementJson() {
+            final ObjectNode json = mapper.createObjectNode();
+            json.put("productId", productId);
+            json.put("seatCount", 1);
+            json.set("features", toJson().get("features"));
+            return json;
+        }
+    }
+
+    private static final class Feature {
+        private final String key;
+        private final String type;
+        private final Long total;
+        private long active = 0;
+
+        private Feature(final String key, final String type, final Long total) {
+            this.key = key;
+            this.type = type;
+            this.total = total;
+        }
+    }
+
+    static final class Response {
+        private final int status;
+        private final JsonNode body;
+
+        private Response(final int status, final JsonNode body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(final JsonNode body) {
+            return new Response(200, body);
+        }
+
+        static Response noContent() {
+            return new Response(204, null);
+        }
+
+        static Response error(final int status, final String message) {
+            final ObjectNode body = JsonNodeFactory.instance.objectNode();
+            body.put("error", message);
+            return new Response(status, body);
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        JsonNode getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.nalpeiron.zentitle.sample.stub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.nalpeiron.zentitle.sample.VirtualThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the licensing API, listening on the loopback interface only. Besides the configured latency
+ * and error rate, a fault can be switched on at runtime with {@code POST /stub/fault?mode=UNAVAILABLE|HANG|NONE},
+ * e.g. to watch the circuit breaker of a program open and close again.
+ * <p>
+ * The stub is not wire-compatible with the licensing client, see {@link StubLicensingApi}. The requests it does not
+ * serve are listed by {@code GET /stub/unmatched} and {@link #getUnmatchedRequests()}.
+ */
+public class StubLicensingServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StubLicensingServer.class);
+    private static final String FAULT_PATH = "/stub/fault";
+    private static final String UNMATCHED_PATH = "/stub/unmatched";
+
+    public enum Fault {
+        NONE,
+        /**
+         * Every API call fails with 503 Service Unavailable.
+         */
+        UNAVAILABLE,
+        /**
+         * Every API call hangs for {@code HangMillis} before failing with 504 Gateway Timeout.
+         */
+        HANG
+    }
+
+    private final StubServerSettings settings;
+    private final ObjectMapper mapper;
+    private final StubLicensingApi api;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private volatile Fault fault = Fault.NONE;
+
+    private StubLicensingServer(final StubServerSettings settings, final ObjectMapper mapper,
+                                final HttpServer httpServer, final ExecutorService executor) {
+        this.settings = settings;
+        this.mapper = mapper;
+        this.api = new StubLicensingApi(mapper, Duration.ofSeconds(settings.getLeaseSeconds()), Clock.systemUTC(),
+                settings.getSeatLimit());
+        this.httpServer = httpServer;
+        this.executor = executor;
+    }
+
+    public static StubLicensingServer start(final StubServerSettings settings, final ObjectMapper mapper) throws IOException {
+        final HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.getPort()), 0);
+        // injected latency must not hold back other requests
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("stub-licensing-api");
+        final StubLicensingServer server = new StubLicensingServer(settings, mapper, httpServer, executor);
+        httpServer.createContext("/api/", server::handleApi);
+        httpServer.createContext(FAULT_PATH, server::handleFault);
+        httpServer.createContext(UNMATCHED_PATH, server::handleUnmatched);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        logger.info("Stub licensing API listening on {}", server.getUri());
+        return server;
+    }
+
+    public URI getUri() {
+        return URI.create("http://" + httpServer.getAddress().getHostString() + ":" + httpServer.getAddress().getPort());
+    }
+
+    public Fault getFault() {
+        return fault;
+    }
+
+    public void setFault(final Fault fault) {
+        logger.info("Stub licensing API fault changed from [{}] to [{}]", this.fault, fault);
+        this.fault = fault;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.sum();
+    }
+
+    public int getActivationCount() {
+        return api.getActivationCount();
+    }
+
+    /**
+     * @return method and path of every distinct request that matched no route of the stub
+     */
+    public Set<String> getUnmatchedRequests() {
+        return api.getUnmatchedRequests();
+    }
+
+    /**
+     * @return activations rejected because all seats of the product were in use
+     */
+    public long getSeatLimitRejections() {
+        return api.getSeatLimitRejections();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleApi(final HttpExchange exchange) throws IOException {
+        requests.increment();
+        try {
+            if (injectFault(exchange)) {
+                return;
+            }
+            final JsonNode body;
+            try {
+                body = readBody(exchange);
+            } catch (final JsonProcessingException exception) {
+                send(exchange, 400, StubLicensingApi.Response.error(400, "Malformed request body").getBody());
+                return;
+            }
+            final StubLicensingApi.Response response = api.handle(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                    accessToken(exchange), body);
+            send(exchange, response.getStatus(), response.getBody());
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        }
+    }
+
+    private boolean injectFault(final HttpExchange exchange) throws IOException, InterruptedException {
+        if (settings.getLatencyMillis() > 0) {
+            Thread.sleep(settings.getLatencyMillis());
+        }
+        final Fault currentFault = fault;
+        if (currentFault == Fault.HANG) {
+            Thread.sleep(settings.getHangMillis());
+            injectedErrors.increment();
+            send(exchange, 504, StubLicensingApi.Response.error(504, "Injected timeout").getBody());
+            return true;
+        }
+        if (currentFault == Fault.UNAVAILABLE || ThreadLocalRandom.current().nextDouble() < settings.getErrorRate()) {
+            injectedErrors.increment();
+            send(exchange, 503, StubLicensingApi.Response.error(503, "Injected failure").getBody());
+            return true;
+        }
+        return false;
+    }
+
+    private void handleFault(final HttpExchange exchange) throws IOException {
+        final String query = exchange.getRequestURI().getQuery();
+        if (!"POST".equals(exchange.getRequestMethod()) || query == null || !query.startsWith("mode=")) {
+            send(exchange, 400, StubLicensingApi.Response.error(400, "Use POST " + FAULT_PATH + "?mode=NONE|UNAVAILABLE|HANG").getBody());
+            return;
+        }
+        try {
+            setFault(Fault.valueOf(query.substring("mode=".length()).toUpperCase(Locale.ROOT)));
+            send(exchange, 204, null);
+        } catch (final IllegalArgumentException exception) {
+            send(exchange, 400, StubLicensingApi.Response.error(400, "Unknown fault mode in '" + query + "'").getBody());
+        }
+    }
+
+    private void handleUnmatched(final HttpExchange exchange) throws IOException {
+        final ArrayNode unmatched = mapper.createArrayNode();
+        getUnmatchedRequests().forEach(unmatched::add);
+        send(exchange, 200, unmatched);
+    }
+
+    private JsonNode readBody(final HttpExchange exchange) throws IOException {
+        try (final InputStream input = exchange.getRequestBody()) {
+            final byte[] bytes = input.readAllBytes();
+            return bytes.length == 0 ? null : mapper.readTree(bytes);
+        }
+    }
+
+    private static String accessToken(final HttpExchange exchange) {
+        final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return authorization.substring(7).trim();
+    }
+
+    private void send(final HttpExchange exchange, final int status, final JsonNode body) throws IOException {
+        try {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            final byte[] bytes = mapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
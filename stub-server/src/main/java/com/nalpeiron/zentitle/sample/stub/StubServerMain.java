@@ -0,0 +1,48 @@
+package com.nalpeiron.zentitle.sample.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nalpeiron.zentitle.sample.ObjectMapperFactory;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the {@link StubLicensingServer} until the process is stopped.
+ * <p>
+ * Options, all optional: {@code --port=8089 --latency-millis=0 --error-rate=0 --hang-millis=60000
+ * --lease-seconds=3600 --seat-limit=0}.
+ */
+public class StubServerMain {
+    private static final Map<String, String> OPTIONS = Map.of(
+            "--port", "Port",
+            "--latency-millis", "LatencyMillis",
+            "--error-rate", "ErrorRate",
+            "--hang-millis", "HangMillis",
+            "--lease-seconds", "LeaseSeconds",
+            "--seat-limit", "SeatLimit"
+    );
+
+    public static void main(final String[] args) throws Exception {
+        final ObjectMapper objectMapper = ObjectMapperFactory.create();
+        final ObjectNode options = objectMapper.createObjectNode();
+        for (final String arg : args) {
+            final String[] option = arg.split("=", 2);
+            if (option.length != 2 || !OPTIONS.containsKey(option[0])) {
+                throw new IllegalArgumentException("Unknown option '" + arg + "', expected --name=value with a name of " + OPTIONS.keySet());
+            }
+            options.put(OPTIONS.get(option[0]), option[1]);
+        }
+        final StubServerSettings settings = objectMapper.treeToValue(options, StubServerSettings.class);
+
+        final StubLicensingServer server = StubLicensingServer.start(settings, objectMapper);
+        System.out.println("Stub licensing API listening on " + server.getUri() + ", it is not wire-compatible with the "
+                + "licensing client, requests it does not serve are listed by GET " + server.getUri() + "/stub/unmatched");
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+}
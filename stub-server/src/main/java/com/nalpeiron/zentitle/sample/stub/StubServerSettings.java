@@ -0,0 +1,50 @@
+package com.nalpeiron.zentitle.sample.stub;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class StubServerSettings {
+    @JsonProperty("Port")
+    private int port = 8089;
+
+    @JsonProperty("LatencyMillis")
+    private long latencyMillis = 0;
+
+    @JsonProperty("ErrorRate")
+    private double errorRate = 0;
+
+    @JsonProperty("HangMillis")
+    private long hangMillis = 60000;
+
+    @JsonProperty("LeaseSeconds")
+    private long leaseSeconds = 3600;
+
+    /**
+     * Maximum number of activations per product, 0 for no limit.
+     */
+    @JsonProperty("SeatLimit")
+    private int seatLimit = 0;
+
+    public int getPort() {
+        return port;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public long getHangMillis() {
+        return hangMillis;
+    }
+
+    public long getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public int getSeatLimit() {
+        return seatLimit;
+    }
+}